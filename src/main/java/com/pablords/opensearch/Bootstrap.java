@@ -1,18 +1,27 @@
 package com.pablords.opensearch;
 
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.json.JsonpMapper;
 import org.opensearch.client.opensearch.OpenSearchClient;
-import org.opensearch.client.opensearch.core.BulkRequest;
-import org.opensearch.client.opensearch.core.BulkResponse;
-import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
 import org.opensearch.client.opensearch.indices.CreateIndexRequest;
+import org.opensearch.client.opensearch.indices.CreateIndexResponse;
 import org.opensearch.client.opensearch.indices.ExistsRequest;
+import org.opensearch.client.transport.endpoints.SimpleEndpoint;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
-import java.io.File;
+import jakarta.json.stream.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -23,6 +32,7 @@ public class Bootstrap {
 
   private static final String INDEX_NAME = "semantic-search-demo";
   private static final String VECTOR_FIELD = "text_vector";
+  private static final int CALIBRATION_SAMPLE = 256; // Produtos usados na calibração INT8 do snapshot
 
   public static void deleteIndexIfExists(OpenSearchClient client) throws Exception {
     if (client.indices().exists(new ExistsRequest.Builder().index(INDEX_NAME).build()).value()) {
@@ -30,9 +40,32 @@ public class Bootstrap {
       client.indices().delete(d -> d.index(INDEX_NAME));
       System.out.println("Índice deletado.");
     }
+    Path manifestFile = manifestPath();
+    if (manifestFile != null) {
+      Files.deleteIfExists(manifestFile); // Descrevia o índice apagado
+    }
+  }
+
+  /**
+   * Número de documentos no índice, ou -1 se o índice não existe
+   */
+  public static long countDocuments(OpenSearchClient client) throws Exception {
+    if (!client.indices().exists(new ExistsRequest.Builder().index(INDEX_NAME).build()).value()) {
+      return -1;
+    }
+    return client.count(c -> c.index(INDEX_NAME)).count();
   }
 
   public static void createKnnIndex(OpenSearchClient client, int vectorDim) throws Exception {
+    createKnnIndex(client, vectorDim, VectorCodec.Type.FLOAT32);
+  }
+
+  /**
+   * Cria o índice híbrido; com INT8 o campo vetorial usa byte vectors
+   * (data_type: byte, 1 byte por dimensão no índice Lucene)
+   */
+  public static void createKnnIndex(OpenSearchClient client, int vectorDim, VectorCodec.Type encoding)
+      throws Exception {
 
     // Verificar se o índice já existe
     if (client.indices().exists(new ExistsRequest.Builder().index(INDEX_NAME).build()).value()) {
@@ -69,101 +102,361 @@ public class Bootstrap {
                     .analyzer("standard")))
             // Campo category para filtros
             .properties("category", p -> p
-                .keyword(k -> k)))
+                .keyword(k -> k))
+            // Sinais numéricos de ranking: lidos via doc values no re-ranking
+            .properties("popularity", p -> p
+                .long_(l -> l))
+            .properties("quality", p -> p
+                .double_(dbl -> dbl))
+            .properties("ctr", p -> p
+                .double_(dbl -> dbl)))
         .build();
 
-    client.indices().create(createReq);
+    if (encoding == VectorCodec.Type.INT8) {
+      createWithByteVectors(client, createReq);
+    } else {
+      client.indices().create(createReq);
+    }
     System.out.println("✓ Índice criado com campos otimizados para busca híbrida");
     System.out.println("  - title: BM25 indexing com boost");
     System.out.println("  - description: BM25 indexing");
-    System.out.println("  - " + VECTOR_FIELD + ": k-NN semântica (HNSW + cosine)");
+    System.out.println("  - " + VECTOR_FIELD + ": k-NN semântica (HNSW + cosine"
+        + (encoding == VectorCodec.Type.INT8 ? ", byte vectors" : "") + ")");
     System.out.println("  - category: filtros exatos");
+    System.out.println("  - popularity, quality, ctr: sinais numéricos (doc values)");
   }
 
-  public static void indexDocuments(OpenSearchClient client, EmbeddingModel model) throws Exception {
+  /**
+   * O cliente não expõe data_type no knn_vector: serializa a mesma requisição,
+   * acrescenta "data_type": "byte" ao campo vetorial e envia o JSON direto
+   * pelo transporte (requer OpenSearch 2.9+ com engine lucene)
+   */
+  private static void createWithByteVectors(OpenSearchClient client, CreateIndexRequest createReq)
+      throws Exception {
+    JsonpMapper jsonpMapper = client._transport().jsonpMapper();
+    StringWriter json = new StringWriter();
+    try (JsonGenerator generator = jsonpMapper.jsonProvider().createGenerator(json)) {
+      createReq.serialize(generator, jsonpMapper);
+    }
+
+    ObjectNode body = (ObjectNode) new ObjectMapper().readTree(json.toString());
+    ((ObjectNode) body.at("/mappings/properties/" + VECTOR_FIELD)).put("data_type", "byte");
+
+    SimpleEndpoint<JsonData, CreateIndexResponse> endpoint = new SimpleEndpoint<>(
+        request -> "PUT",
+        request -> "/" + INDEX_NAME,
+        SimpleEndpoint.emptyMap(),
+        SimpleEndpoint.emptyMap(),
+        true,
+        CreateIndexResponse._DESERIALIZER);
+    client._transport().performRequest(JsonData.of(body), endpoint, client._transportOptions());
+  }
+
+  /**
+   * Indexa o catálogo de -Dcatalog.path (padrão: data/products_synthetic.json)
+   *
+   * Com -Dcatalog.snapshot=arquivo: se o snapshot existe, foi gravado a
+   * partir deste mesmo catálogo (caminho, tamanho e SHA-256) e pelo mesmo
+   * modelo, o índice é reconstruído dele
+   * (sem parsing nem embeddings); senão o catálogo é indexado normalmente e
+   * o snapshot é gravado junto (vetores em -Dcatalog.snapshot.encoding,
+   * padrão FLOAT16)
+   *
+   * O índice deve estar vazio: o manifesto de -Dsync.manifest (padrão
+   * data/index.manifest, "none" desativa) é regravado para os próximos
+   * deltas ({@link #syncDocuments})
+   */
+  public static void indexDocuments(OpenSearchClient client, CachedEmbeddingModel model) throws Exception {
     System.out.println("\n--- Indexando Documentos ---");
+    Path catalog = Path.of(System.getProperty("catalog.path", "data/products_synthetic.json"));
+    String snapshotPath = System.getProperty("catalog.snapshot");
+    if (snapshotPath == null) {
+      indexCatalog(client, model, catalog, null);
+      return;
+    }
+
+    Path snapshot = Path.of(snapshotPath);
+    String source = CatalogSnapshot.source(catalog);
+    if (isSnapshotUsable(snapshot, source, model)) {
+      indexSnapshot(client, model, snapshot);
+    } else {
+      indexCatalog(client, model, catalog, snapshot, source);
+    }
+  }
+
+  /**
+   * Streaming: o catálogo é lido produto a produto conforme o pipeline consome
+   *
+   * @param catalog  Array JSON ou JSONL ({@link CatalogReader}), ou CSV com
+   *                 cabeçalho ({@link CsvReader}); qualquer um pode estar em gzip
+   * @param snapshot Snapshot a gravar com os produtos e embeddings (null = nenhum)
+   */
+  public static void indexCatalog(OpenSearchClient client, CachedEmbeddingModel model, Path catalog, Path snapshot)
+      throws Exception {
+    indexCatalog(client, model, catalog, snapshot, snapshot != null ? CatalogSnapshot.source(catalog) : null);
+  }
+
+  /**
+   * @param source Origem do catálogo já calculada ({@link CatalogSnapshot#source(Path)})
+   */
+  private static void indexCatalog(OpenSearchClient client, CachedEmbeddingModel model, Path catalog, Path snapshot,
+      String source) throws Exception {
+    CatalogSync sync = catalogSync(client, model);
+    readCatalog(catalog, products -> indexStream(client, model, products, snapshot, source, sync));
+  }
+
+  /**
+   * Sincronização incremental do catálogo de -Dcatalog.path com o índice
+   * existente, pelo manifesto de -Dsync.manifest: só produtos novos ou
+   * alterados passam por embedding e Bulk, e os que saíram do catálogo
+   * são removidos
+   *
+   * @return false se não há manifesto utilizável (índice deve ser recriado
+   *         e indexado com {@link #indexDocuments})
+   */
+  public static boolean syncDocuments(OpenSearchClient client, CachedEmbeddingModel model) throws Exception {
+    CatalogSync sync = catalogSync(client, model);
+    if (sync == null || !sync.canSync()) {
+      return false;
+    }
+    System.out.println("\n--- Sincronizando Documentos (delta) ---");
+    Path catalog = Path.of(System.getProperty("catalog.path", "data/products_synthetic.json"));
+    long startTime = System.currentTimeMillis();
+    BulkIndexer.Stats stats = readCatalog(catalog, sync::sync);
+    finishIndexing(client, stats, startTime);
+    return true;
+  }
+
+  /**
+   * O índice existente foi gerado com a mesma configuração de vetores do
+   * modelo (modelo, dimensão, codificação e escala INT8)? Compara a
+   * impressão digital do manifesto de -Dsync.manifest, como em
+   * {@link CatalogSync#canSync()}; sem manifesto a resposta é não
+   */
+  public static boolean matchesIndex(CachedEmbeddingModel model) {
+    Path manifestFile = manifestPath();
+    if (manifestFile == null) {
+      System.out.println("Configuração do índice desconhecida: manifesto desativado (-Dsync.manifest=none)");
+      return false;
+    }
+    try {
+      CatalogManifest manifest = CatalogManifest.load(manifestFile);
+      if (manifest == null) {
+        System.out.println("Configuração do índice desconhecida: manifesto " + manifestFile + " não existe");
+        return false;
+      }
+      String expected = CatalogManifest.fingerprint(model, INDEX_NAME);
+      if (!expected.equals(manifest.getFingerprint())) {
+        System.out.println("Índice de outra configuração (" + manifest.getFingerprint() + " ≠ " + expected + ")");
+        return false;
+      }
+      return true;
+    } catch (IOException e) {
+      System.err.println("Manifesto " + manifestFile + " ignorado: " + e.getMessage());
+      return false;
+    }
+  }
 
-    ObjectMapper mapper = new ObjectMapper();
-    List<Map<String, String>> products = mapper.readValue(
-        new File("data/products_synthetic.json"),
-        new TypeReference<List<Map<String, String>>>() {
-        });
+  /**
+   * Sincronizador com o manifesto de -Dsync.manifest, ou null se desativado
+   */
+  private static CatalogSync catalogSync(OpenSearchClient client, CachedEmbeddingModel model) {
+    Path manifest = manifestPath();
+    return manifest != null ? new CatalogSync(client, model, INDEX_NAME, manifest) : null;
+  }
+
+  private static Path manifestPath() {
+    String manifest = System.getProperty("sync.manifest", "data/index.manifest");
+    return "none".equals(manifest) ? null : Path.of(manifest);
+  }
+
+  private interface CatalogTask {
+    BulkIndexer.Stats run(Iterator<CatalogProduct> products) throws Exception;
+  }
 
-    indexDocumentsBatch(client, model, products);
+  /**
+   * Abre o catálogo pelo formato (CSV pela extensão; JSON/JSONL pelo conteúdo)
+   * e entrega o stream de produtos à tarefa
+   */
+  private static BulkIndexer.Stats readCatalog(Path catalog, CatalogTask task) throws Exception {
+    String name = catalog.getFileName().toString().toLowerCase(Locale.ROOT);
+    if (name.endsWith(".csv") || name.endsWith(".csv.gz")) {
+      try (CsvReader csv = CsvReader.open(catalog)) {
+        return task.run(csv.products());
+      }
+    }
+    try (CatalogReader products = CatalogReader.open(catalog)) {
+      return task.run(products);
+    }
+  }
+
+  /**
+   * Reconstrói o índice a partir de um {@link CatalogSnapshot}: campos e
+   * vetores lidos do arquivo mapeado direto para o Bulk, sem o modelo
+   * (exceto a calibração INT8, se pendente)
+   */
+  public static void indexSnapshot(OpenSearchClient client, CachedEmbeddingModel model, Path path) throws Exception {
+    long startTime = System.currentTimeMillis();
+    Path manifestFile = manifestPath();
+    if (manifestFile != null) {
+      Files.deleteIfExists(manifestFile); // Índice recriado: o manifesto antigo não vale mais
+    }
+    BulkIndexer indexer = new BulkIndexer(client, INDEX_NAME);
+    CatalogManifest manifest;
+    try (CatalogSnapshot snapshot = CatalogSnapshot.open(path); BulkIndexer bulk = indexer) {
+      manifest = new CatalogManifest(snapshot.size());
+      System.out.println("Indexando do snapshot: " + snapshot);
+      if (model.needsCalibration()) {
+        List<String> sample = new ArrayList<>();
+        for (int row = 0; row < Math.min(snapshot.size(), CALIBRATION_SAMPLE); row++) {
+          sample.add(snapshot.getProduct(row).text(EmbeddingModel.DEFAULT_EMBED_FIELDS));
+        }
+        model.calibrate(sample);
+      }
+      for (int row = 0; row < snapshot.size(); row++) {
+        CatalogProduct product = snapshot.getProduct(row);
+        bulk.index(snapshot.getId(row), toDocument(model, product, snapshot.getVector(row)));
+        manifest.add(snapshot.getId(row), product.contentHash());
+      }
+    }
+    BulkIndexer.Stats stats = indexer.getStats();
+    if (manifestFile != null && stats.failedDocs == 0) {
+      manifest.save(manifestFile, CatalogManifest.fingerprint(model, INDEX_NAME));
+    }
+    finishIndexing(client, stats, startTime);
+  }
+
+  /**
+   * Snapshot existe, foi gravado a partir do mesmo catálogo (mesma origem)
+   * e bate com o modelo?
+   */
+  private static boolean isSnapshotUsable(Path snapshot, String source, CachedEmbeddingModel model) {
+    try {
+      if (!Files.exists(snapshot)) {
+        return false;
+      }
+      try (CatalogSnapshot existing = CatalogSnapshot.open(snapshot)) {
+        if (!existing.getSource().equals(source)) {
+          System.out.println("Snapshot " + snapshot + " é de outro catálogo ou de uma versão anterior: será regravado");
+          return false;
+        }
+        if (existing.getModelName().equals(model.getModelName())
+            && existing.getDimension() == model.getDimension()) {
+          return true;
+        }
+        System.out.println("Snapshot " + snapshot + " é de outro modelo (" + existing.getModelName()
+            + "): será regravado");
+      }
+    } catch (IOException e) {
+      System.err.println("Snapshot " + snapshot + " ignorado: " + e.getMessage());
+    }
+    return false;
   }
 
   /**
    * Indexa documentos em batch usando Bulk API para melhor performance
-   * 
+   *
    * @param client Cliente OpenSearch
    * @param model  Modelo de embedding
-   * @param texts  Lista de produtos (Map com title, description, category)
+   * @param texts  Lista de produtos (Map com title, description, category e
+   *               os sinais numéricos popularity, quality, ctr)
    */
-  public static void indexDocumentsBatch(OpenSearchClient client, EmbeddingModel model, List<Map<String, String>> texts)
+  public static void indexDocumentsBatch(OpenSearchClient client, CachedEmbeddingModel model, List<Map<String, String>> texts)
       throws Exception {
     if (texts == null || texts.isEmpty()) {
       System.out.println("Nenhum documento para indexar.");
       return;
     }
+    indexDocumentsStream(client, model, texts.stream().map(CatalogProduct::fromMap).iterator(), null);
+  }
 
-    System.out.println("Gerando embeddings em batch para " + texts.size() + " documentos...");
+  /**
+   * Indexa um catálogo em streaming pelo {@link IngestionPipeline}: leitura,
+   * embeddings e Bulk acontecem ao mesmo tempo, com filas limitadas entre
+   * os estágios (memória constante, qualquer que seja o tamanho do catálogo)
+   *
+   * @param products Produtos do catálogo (_id = {@link CatalogProduct#documentId()})
+   * @param snapshot Snapshot a gravar junto (null = nenhum); só é publicado se
+   *                 a indexação terminar sem falhas
+   */
+  public static void indexDocumentsStream(OpenSearchClient client, CachedEmbeddingModel model,
+      Iterator<CatalogProduct> products, Path snapshot) throws Exception {
+    indexStream(client, model, products, snapshot, null, null);
+  }
+
+  /**
+   * @param source Origem gravada no snapshot (null = desconhecida: o snapshot nunca é reaproveitado)
+   * @param sync   Com sincronizador, indexa por {@link CatalogSync#rebuild} e grava o manifesto
+   */
+  private static BulkIndexer.Stats indexStream(OpenSearchClient client, CachedEmbeddingModel model,
+      Iterator<CatalogProduct> products, Path snapshot, String source, CatalogSync sync) throws Exception {
+    System.out.println("Indexando documentos (pipeline leitura → embedding → Bulk)...");
     long startTime = System.currentTimeMillis();
 
-    // Gerar todos os embeddings em batch (mais eficiente)
-    List<float[]> embeddings = model.embedBatch(texts);
-
-    long embeddingTime = System.currentTimeMillis() - startTime;
-    System.out.println("Embeddings gerados em " + embeddingTime + "ms");
-
-    // Criar requisição Bulk
-    BulkRequest.Builder bulkBuilder = new BulkRequest.Builder();
-
-    for (int i = 0; i < texts.size(); i++) {
-      final int docIndex = i;
-      Map<String, String> product = texts.get(i);
-      String title = product.get("title");
-      String description = product.get("description");
-      String category = product.get("category");
-      float[] vector = embeddings.get(i);
-
-      // Criar documento com TODOS os campos para busca híbrida
-      Map<String, Object> docBody = new HashMap<>();
-      docBody.put("title", title);
-      docBody.put("description", description);
-      docBody.put("category", category);
-      docBody.put(VECTOR_FIELD, vector);
-
-
-      // Adicionar ao bulk
-      bulkBuilder.operations(op -> op
-          .index(idx -> idx
-              .index(INDEX_NAME)
-              .id("doc_" + docIndex)
-              .document(docBody)));
-    }
-
-    // Executar bulk indexing
-    System.out.println("Indexando " + texts.size() + " documentos via Bulk API...");
-    BulkResponse response = client.bulk(bulkBuilder.build());
-
-    // Verificar erros
-    if (response.errors()) {
-      System.err.println("Erros durante bulk indexing:");
-      for (BulkResponseItem item : response.items()) {
-        if (item.error() != null) {
-          System.err.println("Erro no documento " + item.id() + ": " + item.error().reason());
-        }
+    IngestionPipeline pipeline = new IngestionPipeline(client, model, INDEX_NAME);
+    BulkIndexer.Stats stats;
+    if (snapshot == null) {
+      stats = sync != null ? sync.rebuild(products, null) : pipeline.run(products);
+    } else {
+      VectorCodec.Type encoding = VectorCodec.Type.valueOf(
+          System.getProperty("catalog.snapshot.encoding", "FLOAT16").toUpperCase());
+      VectorCodec codec = encoding == VectorCodec.Type.FLOAT32 ? VectorCodec.float32(model.getDimension())
+          : VectorCodec.float16(model.getDimension());
+      CatalogSnapshot.Writer writer = CatalogSnapshot.writer(snapshot, model.getModelName(), codec, source);
+      try {
+        stats = sync != null ? sync.rebuild(products, writer) : pipeline.run(products, writer);
+      } catch (Exception e) {
+        writer.abort();
+        throw e;
+      }
+      if (stats.failedDocs == 0) {
+        writer.close();
+      } else {
+        writer.abort(); // Snapshot incompleto não seria reaproveitável
       }
+    }
+    finishIndexing(client, stats, startTime);
+    return stats;
+  }
+
+  private static void finishIndexing(OpenSearchClient client, BulkIndexer.Stats stats, long startTime)
+      throws Exception {
+    if (stats.failedDocs == 0) {
+      System.out.println("✓ " + stats.indexedDocs + " documentos indexados com sucesso!");
     } else {
-      System.out.println("✓ " + texts.size() + " documentos indexados com sucesso!");
+      System.err.println("Erros durante bulk indexing: " + stats.failedDocs + " documentos não indexados");
     }
 
     long totalTime = System.currentTimeMillis() - startTime;
-    System.out.println("Tempo total: " + totalTime + "ms (" + (totalTime / texts.size()) + "ms por documento)");
+    long total = stats.indexedDocs + stats.failedDocs;
+    System.out.println("Tempo total: " + totalTime + "ms ("
+        + String.format("%.2f", total == 0 ? 0.0 : (double) totalTime / total) + "ms por documento)");
 
     // Refresh do índice
     System.out.println("Refreshing índice...");
     client.indices().refresh(r -> r.index(INDEX_NAME));
   }
 
+  /**
+   * Documento com TODOS os campos para busca híbrida (sinais de ranking
+   * numéricos, só quando presentes)
+   */
+  static Map<String, Object> toDocument(CachedEmbeddingModel model, CatalogProduct product, float[] vector) {
+    Map<String, Object> docBody = new HashMap<>();
+    docBody.put("title", product.getTitle());
+    docBody.put("description", product.getDescription());
+    docBody.put("category", product.getCategory());
+    docBody.put(VECTOR_FIELD, model.toIndexVector(vector));
+    putIfPresent(docBody, "popularity", product.getPopularity());
+    putIfPresent(docBody, "quality", product.getQuality());
+    putIfPresent(docBody, "ctr", product.getCtr());
+    return docBody;
+  }
+
+  private static void putIfPresent(Map<String, Object> docBody, String field, Number value) {
+    if (value != null) {
+      docBody.put(field, value);
+    }
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,525 @@
+package com.pablords.opensearch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch.core.BulkRequest;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Indexação em massa por streaming: requisições Bulk fatiadas e em paralelo
+ *
+ * - Cada documento é serializado uma vez ao entrar (JSON pronto, enviado
+ *   sem nova serialização) e só fica em memória até ser confirmado
+ * - As requisições são cortadas por número de documentos e por bytes, para
+ *   não estourar o limite de payload HTTP do cluster
+ * - Até {@code maxInFlight} requisições em voo; com a fila cheia,
+ *   {@link #index(String, Object)} bloqueia o produtor (backpressure)
+ * - HTTP 429 (da requisição ou de itens): pausa global de envio com backoff
+ *   exponencial, que cresce enquanto o cluster continuar recusando
+ * - Só os itens que falharam com status transitório (429, 502, 503, 504)
+ *   são reenviados, com backoff exponencial com jitter; erros definitivos
+ *   (ex.: mapeamento) são contados e registrados sem retry
+ * - Progresso com docs/s e MB/s a cada poucos segundos
+ * - Remoções ({@link #delete(String)}) vão nas mesmas requisições; remover
+ *   um documento que não existe não conta como erro
+ *
+ * Uso: try (BulkIndexer indexer = new BulkIndexer(client, índice)) { indexer.index(id, doc); ... }
+ */
+public class BulkIndexer implements AutoCloseable {
+
+  public static final int DEFAULT_MAX_DOCS = 1000;
+  public static final long DEFAULT_MAX_BYTES = 5L * 1024 * 1024; // 5 MB por requisição
+  public static final int DEFAULT_MAX_RETRIES = 5;
+
+  private static final long BASE_BACKOFF_MS = 100;
+  private static final long MAX_BACKOFF_MS = 10_000;
+  private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+  private static final int ACTION_OVERHEAD_BYTES = 48; // {"index":{"_id":...,"_index":...}} + quebras de linha
+  private static final int MAX_LOGGED_ERRORS = 10;
+  private static final ObjectMapper JSON = new ObjectMapper();
+  private static final Chunk END = new Chunk();
+
+  private final OpenSearchClient client;
+  private final String index;
+  private final int maxDocs;
+  private final long maxBytes;
+  private final int maxInFlight;
+  private final int maxRetries;
+
+  private final BlockingQueue<Chunk> queue;
+  private final ExecutorService senders;
+  private final List<Future<?>> workers = new ArrayList<>();
+  private Chunk current = new Chunk();
+  private boolean closed;
+  private volatile boolean reportProgress = true;
+
+  // Backpressure: ninguém envia antes deste instante (após 429)
+  private final AtomicLong pauseUntilNanos = new AtomicLong();
+  private final AtomicInteger throttleStreak = new AtomicInteger();
+
+  private final long startNanos = System.nanoTime();
+  private final AtomicLong lastReportNanos = new AtomicLong(startNanos);
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder indexedDocs = new LongAdder();
+  private final LongAdder deletedDocs = new LongAdder();
+  private final LongAdder indexedBytes = new LongAdder();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder retriedItems = new LongAdder();
+  private final LongAdder throttled = new LongAdder();
+  private final LongAdder failedItems = new LongAdder();
+  private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * Limites das propriedades de sistema: -Dbulk.maxDocs, -Dbulk.maxBytes,
+   * -Dbulk.inFlight (padrão: cores / 2) e -Dbulk.maxRetries
+   */
+  public BulkIndexer(OpenSearchClient client, String index) {
+    this(client, index,
+        Integer.getInteger("bulk.maxDocs", DEFAULT_MAX_DOCS),
+        Long.getLong("bulk.maxBytes", DEFAULT_MAX_BYTES),
+        Integer.getInteger("bulk.inFlight", Math.max(2, Runtime.getRuntime().availableProcessors() / 2)),
+        Integer.getInteger("bulk.maxRetries", DEFAULT_MAX_RETRIES));
+  }
+
+  /**
+   * @param maxDocs     Máximo de documentos por requisição
+   * @param maxBytes    Máximo de bytes (NDJSON) por requisição
+   * @param maxInFlight Requisições enviadas ao mesmo tempo
+   * @param maxRetries  Tentativas extras por item com falha transitória
+   */
+  public BulkIndexer(OpenSearchClient client, String index, int maxDocs, long maxBytes, int maxInFlight,
+      int maxRetries) {
+    if (maxDocs <= 0 || maxBytes <= 0 || maxInFlight <= 0 || maxRetries < 0) {
+      throw new IllegalArgumentException("Configuração inválida: docs=" + maxDocs + ", bytes=" + maxBytes
+          + ", em voo=" + maxInFlight + ", retries=" + maxRetries);
+    }
+    this.client = client;
+    this.index = index;
+    this.maxDocs = maxDocs;
+    this.maxBytes = maxBytes;
+    this.maxInFlight = maxInFlight;
+    this.maxRetries = maxRetries;
+    this.queue = new ArrayBlockingQueue<>(maxInFlight);
+
+    AtomicInteger counter = new AtomicInteger();
+    this.senders = Executors.newFixedThreadPool(maxInFlight, r -> {
+      Thread thread = new Thread(r, "bulk-sender-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (int i = 0; i < maxInFlight; i++) {
+      workers.add(senders.submit(this::sendLoop));
+    }
+  }
+
+  /**
+   * Enfileira a indexação de um documento (bloqueia se há requisições demais pendentes)
+   *
+   * @param id       _id do documento
+   * @param document Objeto serializável pelo Jackson (ex.: Map)
+   */
+  public synchronized void index(String id, Object document) throws InterruptedException {
+    if (closed) {
+      throw new IllegalStateException("BulkIndexer já foi fechado");
+    }
+    String json;
+    try {
+      json = JSON.writeValueAsString(document);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Documento " + id + " não é serializável: " + e.getMessage(), e);
+    }
+    add(new Item(id, json, ACTION_OVERHEAD_BYTES + id.length() + index.length() + utf8Length(json)));
+  }
+
+  /**
+   * Enfileira a remoção de um documento (bloqueia como {@link #index(String, Object)})
+   */
+  public synchronized void delete(String id) throws InterruptedException {
+    if (closed) {
+      throw new IllegalStateException("BulkIndexer já foi fechado");
+    }
+    add(new Item(id, null, ACTION_OVERHEAD_BYTES + id.length() + index.length()));
+  }
+
+  private void add(Item item) throws InterruptedException {
+    if (!current.items.isEmpty()
+        && (current.items.size() >= maxDocs || current.bytes + item.bytes > maxBytes)) {
+      flushCurrent();
+    }
+    current.add(item);
+  }
+
+  private synchronized void flushCurrent() throws InterruptedException {
+    if (!current.items.isEmpty()) {
+      queue.put(current); // Backpressure: espera uma vaga quando todos estão em voo
+      current = new Chunk();
+    }
+  }
+
+  private void sendLoop() {
+    while (true) {
+      Chunk chunk;
+      try {
+        chunk = queue.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (chunk == END) {
+        return;
+      }
+      inFlight.incrementAndGet();
+      try {
+        send(chunk.items);
+      } catch (InterruptedException e) {
+        fail(chunk.items, "interrompido");
+        return;
+      } catch (RuntimeException e) {
+        fail(chunk.items, e.toString());
+      } finally {
+        inFlight.decrementAndGet();
+      }
+      maybeReport();
+    }
+  }
+
+  /**
+   * Envia os itens e reenvia só os que falharam de forma transitória
+   */
+  private void send(List<Item> items) throws InterruptedException {
+    for (int attempt = 0; !items.isEmpty(); attempt++) {
+      awaitCoolDown();
+
+      List<Item> retry;
+      try {
+        BulkResponse response = client.bulk(toRequest(items));
+        requests.increment();
+        retry = collectRetries(items, response);
+      } catch (OpenSearchException e) {
+        if (e.status() != 429) {
+          fail(items, "HTTP " + e.status() + ": " + e.getMessage());
+          return;
+        }
+        onThrottled();
+        retry = items;
+      } catch (IOException e) {
+        retry = items; // Falha de conexão/transporte: a requisição inteira volta
+      }
+
+      if (retry.isEmpty()) {
+        return;
+      }
+      if (attempt >= maxRetries) {
+        fail(retry, "desistindo após " + (maxRetries + 1) + " tentativas");
+        return;
+      }
+      retriedItems.add(retry.size());
+      Thread.sleep(backoffMillis(attempt));
+      items = retry;
+    }
+  }
+
+  private BulkRequest toRequest(List<Item> items) {
+    BulkRequest.Builder request = new BulkRequest.Builder();
+    for (Item item : items) {
+      if (item.json == null) {
+        request.operations(op -> op
+            .delete(del -> del
+                .index(index)
+                .id(item.id)));
+      } else {
+        request.operations(op -> op
+            .index(idx -> idx
+                .index(index)
+                .id(item.id)
+                .document(new RawValue(item.json)))); // JSON já serializado
+      }
+    }
+    return request.build();
+  }
+
+  /**
+   * Contabiliza a resposta item a item; devolve os itens a reenviar
+   */
+  private List<Item> collectRetries(List<Item> items, BulkResponse response) {
+    if (!response.errors()) {
+      throttleStreak.set(0);
+      for (Item item : items) {
+        succeeded(item);
+      }
+      return Collections.emptyList();
+    }
+
+    List<Item> retry = new ArrayList<>();
+    boolean throttledNow = false;
+    List<BulkResponseItem> results = response.items();
+    for (int i = 0; i < items.size(); i++) {
+      Item item = items.get(i);
+      BulkResponseItem result = results.get(i); // Mesma ordem da requisição
+      if (result.error() == null || (item.json == null && result.status() == 404)) {
+        succeeded(item); // Remoção de documento inexistente: já está como queremos
+      } else if (isTransient(result.status())) {
+        throttledNow |= result.status() == 429;
+        retry.add(item);
+      } else {
+        fail(Collections.singletonList(item), result.error().type() + ": " + result.error().reason());
+      }
+    }
+    if (throttledNow) {
+      onThrottled();
+    } else {
+      throttleStreak.set(0);
+    }
+    return retry;
+  }
+
+  private static boolean isTransient(int status) {
+    return status == 429 || status == 502 || status == 503 || status == 504;
+  }
+
+  private void succeeded(Item item) {
+    if (item.json == null) {
+      deletedDocs.increment();
+    } else {
+      indexedDocs.increment();
+    }
+    indexedBytes.add(item.bytes);
+  }
+
+  private void fail(List<Item> items, String reason) {
+    failedItems.add(items.size());
+    if (errors.size() < MAX_LOGGED_ERRORS && !items.isEmpty()) {
+      errors.add(items.get(0).id + (items.size() > 1 ? " (+" + (items.size() - 1) + ")" : "") + ": " + reason);
+    }
+  }
+
+  /**
+   * Cluster sobrecarregado: todos os senders pausam, por mais tempo a cada 429 seguido
+   */
+  private void onThrottled() {
+    throttled.increment();
+    long pause = TimeUnit.MILLISECONDS.toNanos(backoffMillis(throttleStreak.getAndIncrement()));
+    long until = System.nanoTime() + pause;
+    pauseUntilNanos.accumulateAndGet(until, Math::max);
+  }
+
+  private void awaitCoolDown() throws InterruptedException {
+    long remaining;
+    while ((remaining = pauseUntilNanos.get() - System.nanoTime()) > 0) {
+      TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+  }
+
+  /**
+   * Backoff exponencial com jitter: metade fixa + metade aleatória
+   */
+  private static long backoffMillis(int attempt) {
+    long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt, 16));
+    return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+  }
+
+  private void maybeReport() {
+    long now = System.nanoTime();
+    long last = lastReportNanos.get();
+    if (reportProgress && now - last >= REPORT_INTERVAL_NANOS && lastReportNanos.compareAndSet(last, now)) {
+      System.out.println("📦 " + getStats());
+    }
+  }
+
+  /**
+   * Envia o que falta, espera as requisições em voo e imprime o resumo
+   *
+   * Se a thread for interrompida, os senders são cancelados e o que não foi
+   * enviado conta como falha; o flag de interrupção é restaurado.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    try {
+      flushCurrent();
+      awaitSenders();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      abort();
+    }
+    senders.shutdown();
+
+    System.out.println("✓ Bulk concluído: " + getStats());
+    synchronized (errors) {
+      for (String error : errors) {
+        System.err.println("   Erro no documento " + error);
+      }
+    }
+  }
+
+  private void awaitSenders() throws InterruptedException {
+    for (int i = 0; i < maxInFlight; i++) {
+      queue.put(END);
+    }
+    for (Future<?> worker : workers) {
+      try {
+        worker.get();
+      } catch (ExecutionException e) {
+        errors.add("sender: " + e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Fechamento interrompido: requisições em voo falham nos senders, as da
+   * fila e o lote ainda não enfileirado falham aqui
+   */
+  private synchronized void abort() {
+    senders.shutdownNow();
+    List<Chunk> pending = new ArrayList<>();
+    queue.drainTo(pending);
+    pending.add(current);
+    for (Chunk chunk : pending) {
+      if (chunk != END) {
+        fail(chunk.items, "interrompido");
+      }
+    }
+    current = new Chunk();
+  }
+
+  /**
+   * Liga/desliga a linha de progresso periódica (ex.: quando quem usa já reporta)
+   */
+  public void reportProgress(boolean enabled) {
+    this.reportProgress = enabled;
+  }
+
+  /**
+   * Requisições prontas aguardando um sender livre
+   */
+  public int pendingRequests() {
+    return queue.size();
+  }
+
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public Stats getStats() {
+    return new Stats(indexedDocs.sum(), deletedDocs.sum(), indexedBytes.sum(), failedItems.sum(), retriedItems.sum(),
+        throttled.sum(), requests.sum(), inFlight.get(), (System.nanoTime() - startNanos) / 1_000_000);
+  }
+
+  /**
+   * Primeiros erros definitivos (até 10)
+   */
+  public List<String> getErrors() {
+    synchronized (errors) {
+      return new ArrayList<>(errors);
+    }
+  }
+
+  private static int utf8Length(String text) {
+    int bytes = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Estatísticas da indexação até o momento
+   */
+  public static class Stats {
+    public final long indexedDocs;
+    public final long deletedDocs;
+    public final long indexedBytes;
+    public final long failedDocs;
+    public final long retriedItems;
+    public final long throttledResponses;
+    public final long requests;
+    public final int inFlight;
+    public final long elapsedMillis;
+
+    Stats(long indexedDocs, long deletedDocs, long indexedBytes, long failedDocs, long retriedItems,
+        long throttledResponses, long requests, int inFlight, long elapsedMillis) {
+      this.indexedDocs = indexedDocs;
+      this.deletedDocs = deletedDocs;
+      this.indexedBytes = indexedBytes;
+      this.failedDocs = failedDocs;
+      this.retriedItems = retriedItems;
+      this.throttledResponses = throttledResponses;
+      this.requests = requests;
+      this.inFlight = inFlight;
+      this.elapsedMillis = elapsedMillis;
+    }
+
+    public double docsPerSecond() {
+      return elapsedMillis == 0 ? 0.0 : indexedDocs * 1000.0 / elapsedMillis;
+    }
+
+    public double megabytesPerSecond() {
+      return elapsedMillis == 0 ? 0.0 : indexedBytes / (1024.0 * 1024.0) * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Bulk: %d docs%s (%.1f MB) em %dms | %.0f docs/s | %.2f MB/s | %d requisições"
+          + " (%d em voo) | 429=%d | retries=%d | falhas=%d",
+          indexedDocs, deletedDocs > 0 ? " + " + deletedDocs + " remoções" : "", indexedBytes / (1024.0 * 1024.0),
+          elapsedMillis, docsPerSecond(), megabytesPerSecond(), requests, inFlight, throttledResponses,
+          retriedItems, failedDocs);
+    }
+  }
+
+  private static class Item {
+    final String id;
+    final String json; // null = remoção
+    final int bytes;
+
+    Item(String id, String json, int bytes) {
+      this.id = id;
+      this.json = json;
+      this.bytes = bytes;
+    }
+  }
+
+  private static class Chunk {
+    final List<Item> items = new ArrayList<>();
+    long bytes;
+
+    void add(Item item) {
+      items.add(item);
+      bytes += item.bytes;
+    }
+  }
+}
@@ -0,0 +1,475 @@
+package com.pablords.opensearch;
+
+import ai.djl.translate.TranslateException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Infraestrutura comum dos modelos de embedding
+ *
+ * Cache concorrente (admissão W-TinyLFU), store persistente, agrupamento de
+ * chamadas concorrentes, codificação (FLOAT32/FLOAT16/INT8) e lotes por
+ * comprimento. As subclasses só implementam a inferência de um lote
+ * ({@link #predict(String[])}) e a liberação dos seus recursos.
+ */
+public abstract class CachedEmbeddingModel implements EmbeddingModel {
+
+    // Limites do tamanho de lote adaptativo
+    private static final int MIN_BATCH_SIZE = 16;
+    private static final int MAX_BATCH_SIZE = 128;
+
+    private final String modelName;
+    private final int dimension;
+
+    // Cache concorrente com admissão W-TinyLFU (hits sem lock), na codificação atual
+    private volatile EmbeddingCache embeddingCache;
+    private volatile VectorCodec codec;
+    private VectorCodec.Type requestedEncoding = VectorCodec.Type.FLOAT32;
+    private Path pendingStorePath; // Store aguardando a calibração INT8
+    private final int cacheSize;
+    private final int batchSize;
+
+    // Agrupador opcional de chamadas concorrentes de embed()
+    private volatile EmbeddingCoalescer coalescer;
+
+    // Store persistente opcional (sobrevive a reinícios)
+    private volatile EmbeddingStore store;
+
+    /**
+     * @param modelName Identificador do modelo (faz parte da chave do store)
+     * @param dimension Dimensão dos vetores gerados
+     * @param cacheSize Número máximo de embeddings a manter em cache
+     * @param batchSize Máximo de textos por inferência em lote
+     */
+    protected CachedEmbeddingModel(String modelName, int dimension, int cacheSize, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Tamanho de lote deve ser positivo: " + batchSize);
+        }
+        this.modelName = modelName;
+        this.dimension = dimension;
+        this.cacheSize = cacheSize;
+        this.batchSize = batchSize;
+        this.codec = VectorCodec.float32(dimension);
+        this.embeddingCache = new EmbeddingCache(cacheSize, codec);
+    }
+
+    /**
+     * Inferência de um lote (um vetor por texto, na mesma ordem); deve ser thread-safe
+     */
+    protected abstract float[][] predict(String[] texts) throws TranslateException;
+
+    /**
+     * Lotes que podem ir ao modelo ao mesmo tempo (paralelismo do coalescer)
+     */
+    protected int inferenceParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Libera os recursos da inferência (chamado por {@link #close()})
+     */
+    protected abstract void closeEncoder();
+
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Transforma um texto em um vetor de embeddings (com cache)
+     * @param text Texto para gerar embedding
+     * @return Array de floats representando o embedding
+     */
+    @Override
+    public float[] embed(String text) throws TranslateException {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Texto não pode ser nulo ou vazio");
+        }
+        
+        // Normalizar texto para melhor hit no cache
+        String normalizedText = text.trim().toLowerCase(Locale.ROOT);
+        
+        // Verificar cache primeiro
+        float[] cached = embeddingCache.get(normalizedText);
+        if (cached != null) {
+            return cached;
+        }
+        
+        // Store persistente: vetor já calculado em uma execução anterior
+        float[] stored = fromStore(normalizedText);
+        if (stored != null) {
+            return stored;
+        }
+
+        // Com coalescer: chamadas concorrentes viram uma única inferência em lote
+        EmbeddingCoalescer activeCoalescer = coalescer;
+        if (activeCoalescer != null) {
+            return activeCoalescer.embed(text);
+        }
+
+        // Gerar embedding se não estiver em cache
+        float[] embedding = infer(new String[] { text })[0];
+        
+        // Armazenar no cache e no store
+        embeddingCache.put(normalizedText, embedding);
+        toStore(normalizedText, embedding);
+        
+        return embedding;
+    }
+
+    /**
+     * Ativa o agrupamento de chamadas concorrentes de {@link #embed(String)}
+     *
+     * Misses de cache entram em uma fila e são enviados ao modelo em lote
+     * quando o lote enche ou quando o pedido mais antigo espera maxWaitMicros.
+     * Hits de cache continuam sendo respondidos direto, sem fila.
+     *
+     * @param maxBatchSize  Máximo de textos por lote
+     * @param maxWaitMicros Latência máxima adicionada pela espera (ex.: 2000 = 2ms)
+     */
+    public synchronized void enableCoalescing(int maxBatchSize, long maxWaitMicros) {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+        // Dentro do lote o cache é consultado sem contar de novo hit/miss
+        // (cache e store já foram consultados em embed())
+        coalescer = new EmbeddingCoalescer(texts -> embedBatch(texts, key -> embeddingCache.peek(key)),
+                maxBatchSize, maxWaitMicros, inferenceParallelism());
+    }
+
+    /**
+     * Coalescer ativo ou null
+     */
+    public EmbeddingCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Ativa o store persistente de embeddings (consultado antes da inferência)
+     *
+     * Vetores calculados são gravados no arquivo; em um reinício ou
+     * reindexação os textos já vistos não passam pelo modelo.
+     *
+     * @param path Arquivo do store (criado se não existir)
+     */
+    public synchronized void openStore(Path path) throws IOException {
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+        if (needsCalibration()) {
+            // INT8: reaproveitar a escala gravada no store, se houver
+            VectorCodec stored = EmbeddingStore.readCodec(path);
+            if (stored == null || stored.getType() != VectorCodec.Type.INT8 || stored.getDimension() != dimension) {
+                pendingStorePath = path;
+                System.out.println("Embedding store " + path + " será aberto após a calibração INT8");
+                return;
+            }
+            installCodec(stored);
+        }
+        store = EmbeddingStore.open(path, modelName, codec);
+        System.out.println("Embedding store: " + store.size() + " vetores " + codec + " em " + path);
+    }
+
+    /**
+     * Escolhe a codificação dos vetores em cache, no store e no índice
+     *
+     * FLOAT32 e FLOAT16 valem imediatamente. INT8 precisa de calibração
+     * ({@link #calibrate(List)}) ou de um store INT8 existente; até lá os
+     * vetores continuam em FLOAT32. Chamar antes de {@link #openStore(Path)}.
+     */
+    public synchronized void useEncoding(VectorCodec.Type encoding) {
+        requestedEncoding = encoding;
+        if (encoding == VectorCodec.Type.FLOAT16) {
+            installCodec(VectorCodec.float16(dimension));
+        } else if (encoding == VectorCodec.Type.FLOAT32) {
+            installCodec(VectorCodec.float32(dimension));
+        }
+    }
+
+    /**
+     * INT8 foi pedido mas a escala ainda não foi calibrada?
+     */
+    public synchronized boolean needsCalibration() {
+        return requestedEncoding == VectorCodec.Type.INT8 && codec.getType() != VectorCodec.Type.INT8;
+    }
+
+    /**
+     * Calibra a escala INT8 com os embeddings de uma amostra do catálogo
+     *
+     * @param sampleTexts Textos representativos (ex.: alguns produtos)
+     */
+    public synchronized void calibrate(List<String> sampleTexts) throws TranslateException, IOException {
+        List<float[]> sample = new ArrayList<>(sampleTexts.size());
+        for (int start = 0; start < sampleTexts.size(); start += batchSize) {
+            List<String> batch = sampleTexts.subList(start, Math.min(sampleTexts.size(), start + batchSize));
+            sample.addAll(Arrays.asList(infer(batch.toArray(new String[0]))));
+        }
+        installCodec(VectorCodec.calibrateInt8(sample, VectorCodec.DEFAULT_CALIBRATION_QUANTILE));
+        System.out.println("✓ Calibração INT8 com " + sample.size() + " vetores: " + codec);
+
+        if (pendingStorePath != null) {
+            Path path = pendingStorePath;
+            pendingStorePath = null;
+            openStore(path);
+        }
+    }
+
+    /**
+     * Codificação atual dos vetores
+     */
+    public VectorCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Vetor no formato do índice k-NN (INT8: códigos; demais: o próprio vetor)
+     */
+    public float[] toIndexVector(float[] embedding) {
+        return codec.toIndexVector(embedding);
+    }
+
+    /**
+     * Troca a codificação; o cache é recriado porque guarda vetores codificados
+     */
+    private void installCodec(VectorCodec newCodec) {
+        codec = newCodec;
+        embeddingCache = new EmbeddingCache(cacheSize, newCodec);
+    }
+
+    /**
+     * Store ativo ou null
+     */
+    public EmbeddingStore getStore() {
+        return store;
+    }
+
+    /**
+     * Busca no store e promove para o cache em memória
+     */
+    private float[] fromStore(String normalizedText) {
+        EmbeddingStore activeStore = store;
+        if (activeStore == null) {
+            return null;
+        }
+        float[] stored = activeStore.get(normalizedText);
+        if (stored != null) {
+            embeddingCache.put(normalizedText, stored);
+        }
+        return stored;
+    }
+
+    private void toStore(String normalizedText, float[] embedding) {
+        EmbeddingStore activeStore = store;
+        if (activeStore != null) {
+            activeStore.put(normalizedText, embedding);
+        }
+    }
+    
+    /**
+     * Processa múltiplos textos em batch com inferência realmente em lote
+     *
+     * - Textos em cache ou no store não passam pelo modelo; repetidos são
+     *   calculados uma vez
+     * - Os demais são ordenados por comprimento e agrupados em buckets de
+     *   potência de 2, para que cada lote tenha sequências de tamanho parecido
+     *   (menos padding)
+     * - Cada lote tem no máximo {@link #getBatchSize()} textos e vai ao modelo
+     *   em uma única passada (tradutor em lote com padding)
+     *
+     * @param texts Lista de textos para processar
+     * @return Lista de embeddings na mesma ordem dos textos
+     */
+    @Override
+    public List<float[]> embedBatch(List<String> texts) throws TranslateException {
+        return embedBatch(texts, key -> {
+            float[] cached = embeddingCache.get(key);
+            return cached != null ? cached : fromStore(key);
+        });
+    }
+
+    private List<float[]> embedBatch(List<String> texts, Function<String, float[]> cacheLookup)
+            throws TranslateException {
+        float[][] embeddings = new float[texts.size()][];
+
+        // Separar textos em cache (ou no store) dos que precisam ser processados (sem repetição)
+        Map<String, List<Integer>> pendingPositions = new LinkedHashMap<>();
+        List<String> pendingTexts = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            if (text == null || text.trim().isEmpty()) {
+                throw new IllegalArgumentException("Texto na posição " + i + " é nulo ou vazio");
+            }
+
+            String normalizedText = text.trim().toLowerCase(Locale.ROOT);
+            float[] cached = pendingPositions.containsKey(normalizedText) ? null
+                    : cacheLookup.apply(normalizedText);
+            if (cached != null) {
+                embeddings[i] = cached;
+            } else {
+                pendingPositions.computeIfAbsent(normalizedText, k -> {
+                    pendingTexts.add(text);
+                    return new ArrayList<>();
+                }).add(i);
+            }
+        }
+
+        if (!pendingTexts.isEmpty()) {
+            List<String> keys = new ArrayList<>(pendingPositions.keySet());
+            List<List<Integer>> positions = new ArrayList<>(pendingPositions.values());
+
+            // Ordenar por comprimento para formar buckets homogêneos
+            Integer[] order = new Integer[pendingTexts.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt(i -> pendingTexts.get(i).length()));
+
+            int start = 0;
+            while (start < order.length) {
+                int bucket = lengthBucket(pendingTexts.get(order[start]).length());
+                int end = start + 1;
+                while (end < order.length && end - start < batchSize
+                        && lengthBucket(pendingTexts.get(order[end]).length()) == bucket) {
+                    end++;
+                }
+
+                String[] batch = new String[end - start];
+                for (int j = start; j < end; j++) {
+                    batch[j - start] = pendingTexts.get(order[j]);
+                }
+                float[][] batchEmbeddings = infer(batch);
+
+                // Devolver cada embedding às posições originais e ao cache
+                for (int j = start; j < end; j++) {
+                    int pending = order[j];
+                    float[] embedding = batchEmbeddings[j - start];
+                    for (int position : positions.get(pending)) {
+                        embeddings[position] = embedding;
+                    }
+                    embeddingCache.put(keys.get(pending), embedding);
+                    toStore(keys.get(pending), embedding);
+                }
+                start = end;
+            }
+        }
+
+        return Arrays.asList(embeddings);
+    }
+
+    /**
+     * Inferência medida (o tempo entra na média de carga do cache)
+     */
+    private float[][] infer(String[] texts) throws TranslateException {
+        long start = System.nanoTime();
+        try {
+            return predict(texts);
+        } finally {
+            embeddingCache.recordLoad(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Bucket de comprimento: potências de 2 (1-1, 2-3, 4-7, 8-15, ...)
+     */
+    private static int lengthBucket(int length) {
+        return 32 - Integer.numberOfLeadingZeros(length);
+    }
+
+    /**
+     * Tamanho de lote padrão: -Dembedding.batchSize ou proporcional aos cores
+     */
+    protected static int defaultBatchSize() {
+        int configured = Integer.getInteger("embedding.batchSize", 0);
+        if (configured > 0) {
+            return configured;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, cores * 8));
+    }
+
+    @Override
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Limpa o cache de embeddings
+     */
+    public void clearCache() {
+        embeddingCache.clear();
+        System.out.println("Cache de embeddings limpo.");
+    }
+    
+    /**
+     * Retorna estatísticas do cache
+     */
+    public CacheStats getCacheStats() {
+        return new CacheStats(embeddingCache.size(), embeddingCache.maxSize(),
+                embeddingCache.hitCount(), embeddingCache.missCount(),
+                embeddingCache.evictionCount(), embeddingCache.averageLoadMillis());
+    }
+    
+    @Override
+    public void close() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Falha ao fechar o embedding store: " + e.getMessage());
+            }
+        }
+        closeEncoder();
+        this.embeddingCache.clear();
+    }
+
+    /**
+     * Classe para estatísticas do cache
+     */
+    public static class CacheStats {
+        public final int currentSize;
+        public final int maxSize;
+        public final double usagePercentage;
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final double hitRate;
+        public final double averageLoadMillis; // Tempo médio de uma inferência (miss)
+
+        public CacheStats(int currentSize, int maxSize, long hits, long misses, long evictions,
+                double averageLoadMillis) {
+            this.currentSize = currentSize;
+            this.maxSize = maxSize;
+            this.usagePercentage = (double) currentSize / maxSize * 100;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.hitRate = hits + misses == 0 ? 0.0 : (double) hits / (hits + misses) * 100;
+            this.averageLoadMillis = averageLoadMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Cache: %d/%d embeddings (%.1f%% usado) | hits=%d misses=%d (%.1f%% hit rate)"
+                    + " | evictions=%d | inferência média=%.2fms",
+                currentSize, maxSize, usagePercentage, hits, misses, hitRate, evictions, averageLoadMillis);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.pablords.opensearch;
+
+import java.util.Arrays;
+
+/**
+ * Junta os hits das pernas léxica (BM25) e vetorial (k-NN) por docId
+ *
+ * Usa uma tabela hash de endereçamento aberto (docId → slot) e arrays
+ * primitivos paralelos com o score e o rank verdadeiros de cada perna.
+ * Rank 0 indica que o documento não apareceu naquela perna.
+ */
+public class CandidateMerger {
+
+  private String[] table; // docIds da tabela hash
+  private int[] tableSlots; // slot correspondente a cada posição da tabela
+
+  private String[] docIds;
+  private ProductHit[] products;
+  private double[] bm25Scores;
+  private int[] bm25Ranks;
+  private double[] knnScores;
+  private int[] knnRanks;
+  private int size;
+
+  public CandidateMerger(int expectedCandidates) {
+    int capacity = Math.max(4, expectedCandidates);
+    int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+    this.table = new String[tableSize];
+    this.tableSlots = new int[tableSize];
+    this.docIds = new String[capacity];
+    this.products = new ProductHit[capacity];
+    this.bm25Scores = new double[capacity];
+    this.bm25Ranks = new int[capacity];
+    this.knnScores = new double[capacity];
+    this.knnRanks = new int[capacity];
+  }
+
+  /**
+   * Registra um hit da perna léxica
+   *
+   * @param rank Posição do hit na perna (1 = primeiro)
+   */
+  public void addLexical(String docId, ProductHit product, double score, int rank) {
+    int slot = slotFor(docId, product);
+    bm25Scores[slot] = score;
+    bm25Ranks[slot] = rank;
+  }
+
+  /**
+   * Registra um hit da perna vetorial
+   *
+   * @param rank Posição do hit na perna (1 = primeiro)
+   */
+  public void addSemantic(String docId, ProductHit product, double score, int rank) {
+    int slot = slotFor(docId, product);
+    knnScores[slot] = score;
+    knnRanks[slot] = rank;
+  }
+
+  private int slotFor(String docId, ProductHit product) {
+    int mask = table.length - 1;
+    int i = mix(docId.hashCode()) & mask;
+    while (table[i] != null) {
+      if (table[i].equals(docId)) {
+        return tableSlots[i];
+      }
+      i = (i + 1) & mask;
+    }
+
+    if (size == docIds.length) {
+      grow();
+      return slotFor(docId, product);
+    }
+    int slot = size++;
+    table[i] = docId;
+    tableSlots[i] = slot;
+    docIds[slot] = docId;
+    products[slot] = product;
+    return slot;
+  }
+
+  private static int mix(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private void grow() {
+    int capacity = docIds.length * 2;
+    docIds = Arrays.copyOf(docIds, capacity);
+    products = Arrays.copyOf(products, capacity);
+    bm25Scores = Arrays.copyOf(bm25Scores, capacity);
+    bm25Ranks = Arrays.copyOf(bm25Ranks, capacity);
+    knnScores = Arrays.copyOf(knnScores, capacity);
+    knnRanks = Arrays.copyOf(knnRanks, capacity);
+
+    table = new String[table.length * 2];
+    tableSlots = new int[table.length];
+    int mask = table.length - 1;
+    for (int slot = 0; slot < size; slot++) {
+      int i = mix(docIds[slot].hashCode()) & mask;
+      while (table[i] != null) {
+        i = (i + 1) & mask;
+      }
+      table[i] = docIds[slot];
+      tableSlots[i] = slot;
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String docId(int slot) {
+    return docIds[slot];
+  }
+
+  public ProductHit product(int slot) {
+    return products[slot];
+  }
+
+  public double bm25Score(int slot) {
+    return bm25Scores[slot];
+  }
+
+  public int bm25Rank(int slot) {
+    return bm25Ranks[slot];
+  }
+
+  public double knnScore(int slot) {
+    return knnScores[slot];
+  }
+
+  public int knnRank(int slot) {
+    return knnRanks[slot];
+  }
+}
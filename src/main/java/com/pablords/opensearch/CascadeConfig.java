@@ -0,0 +1,87 @@
+package com.pablords.opensearch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuração do re-ranking em cascata
+ *
+ * ESTÁGIO A (barato): todos os candidatos são pontuados apenas com as
+ * features já disponíveis após o retrieval (BM25, k-NN, híbrido,
+ * popularidade, qualidade e CTR). Só os melhores {@code survivors} seguem.
+ *
+ * ESTÁGIO B (caro): extração completa de features + modelo LTR principal
+ * apenas para os sobreviventes.
+ */
+public class CascadeConfig {
+
+  private final boolean enabled;
+  private final int survivors;
+  private final LTRModel firstPassModel;
+
+  private CascadeConfig(boolean enabled, int survivors, LTRModel firstPassModel) {
+    this.enabled = enabled;
+    this.survivors = survivors;
+    this.firstPassModel = firstPassModel;
+  }
+
+  /**
+   * Sem cascata: todos os candidatos passam pelo modelo principal
+   */
+  public static CascadeConfig disabled() {
+    return new CascadeConfig(false, Integer.MAX_VALUE, null);
+  }
+
+  /**
+   * Cascata com o modelo barato padrão
+   *
+   * @param survivors Número de candidatos que seguem para o modelo principal
+   */
+  public static CascadeConfig of(int survivors) {
+    return of(survivors, new LinearLTRModel(getDefaultFirstPassWeights()));
+  }
+
+  /**
+   * Cascata com modelo de primeiro estágio customizado
+   * (deve usar apenas as features baratas; as demais chegam zeradas)
+   */
+  public static CascadeConfig of(int survivors, LTRModel firstPassModel) {
+    if (survivors <= 0) {
+      throw new IllegalArgumentException("Número de sobreviventes deve ser positivo: " + survivors);
+    }
+    return new CascadeConfig(true, survivors, firstPassModel);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getSurvivors() {
+    return survivors;
+  }
+
+  public LTRModel getFirstPassModel() {
+    return firstPassModel;
+  }
+
+  /**
+   * A cascata só compensa quando há mais candidatos que sobreviventes
+   */
+  public boolean appliesTo(int candidates) {
+    return enabled && candidates > survivors;
+  }
+
+  /**
+   * Pesos do modelo barato: relevância do retrieval + sinais de popularidade
+   */
+  private static Map<String, Double> getDefaultFirstPassWeights() {
+    Map<String, Double> weights = new HashMap<>();
+    weights.put("bm25_score", 4.0);
+    weights.put("knn_score", 5.0);
+    weights.put("hybrid_score", 3.0);
+    weights.put("popularity", 2.0);
+    weights.put("quality", 1.5);
+    weights.put("ctr", 2.5);
+    return weights;
+  }
+}
@@ -0,0 +1,196 @@
+package com.pablords.opensearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Manifesto do índice: _id → hash do conteúdo de cada documento indexado
+ *
+ * É o que a {@link CatalogSync} compara com o catálogo para saber o que é
+ * novo, o que mudou e o que saiu. A impressão digital registra modelo,
+ * dimensão, codificação (com a escala INT8) e índice: vetores de outra
+ * configuração não podem ser misturados, e aí o manifesto não vale.
+ *
+ * Arquivo (DataOutputStream):
+ * MAGIC "MANI" | versão | impressão digital | n | n x (_id, hash)
+ *
+ * Em memória: _ids e hashes em arrays, com tabela de endereçamento
+ * aberto (linha + 1; 0 = vazio) para a busca por _id.
+ */
+public class CatalogManifest {
+
+  private static final int MAGIC = 0x4D414E49; // "MANI"
+  private static final int VERSION = 1;
+
+  private String fingerprint;
+  private String[] ids;
+  private long[] hashes;
+  private int size;
+  private int[] table;
+
+  public CatalogManifest() {
+    this(1024);
+  }
+
+  /**
+   * @param expectedSize Número aproximado de documentos (evita realocações)
+   */
+  public CatalogManifest(int expectedSize) {
+    int capacity = Math.max(16, expectedSize);
+    ids = new String[capacity];
+    hashes = new long[capacity];
+    table = new int[tableSize(capacity)];
+  }
+
+  /**
+   * Impressão digital da configuração que gerou os vetores do índice
+   */
+  public static String fingerprint(CachedEmbeddingModel model, String index) {
+    VectorCodec codec = model.getCodec();
+    return model.getModelName() + "|" + model.getDimension() + "|" + codec.getType()
+        + "|" + Integer.toHexString(Float.floatToIntBits(codec.getScale())) + "|" + index;
+  }
+
+  /**
+   * Carrega um manifesto salvo, ou null se o arquivo não existe
+   */
+  public static CatalogManifest load(Path path) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Manifesto inválido ou de outra versão: " + path);
+      }
+      String fingerprint = in.readUTF();
+      int count = in.readInt();
+      CatalogManifest manifest = new CatalogManifest(count);
+      manifest.fingerprint = fingerprint;
+      for (int i = 0; i < count; i++) {
+        String id = in.readUTF();
+        if (!manifest.add(id, in.readLong())) {
+          throw new IOException("Manifesto com _id repetido: " + id);
+        }
+      }
+      return manifest;
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Grava em arquivo temporário e troca de forma atômica: uma queda no
+   * meio deixa o manifesto anterior intacto
+   */
+  public void save(Path path, String fingerprint) throws IOException {
+    Path parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(fingerprint);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+          out.writeUTF(ids[i]);
+          out.writeLong(hashes[i]);
+        }
+      }
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      this.fingerprint = fingerprint;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Registra um documento
+   *
+   * @return false se o _id já estava no manifesto (nada é alterado)
+   */
+  public boolean add(String id, long contentHash) {
+    int slot = slot(id);
+    while (table[slot] != 0) {
+      if (ids[table[slot] - 1].equals(id)) {
+        return false;
+      }
+      slot = (slot + 1) & (table.length - 1);
+    }
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+      hashes = Arrays.copyOf(hashes, size * 2);
+    }
+    ids[size] = id;
+    hashes[size] = contentHash;
+    table[slot] = ++size;
+    if (size * 2 > table.length) {
+      rehash();
+    }
+    return true;
+  }
+
+  /**
+   * Linha do _id, ou -1 se não está no manifesto
+   */
+  public int find(String id) {
+    int slot = slot(id);
+    while (table[slot] != 0) {
+      int row = table[slot] - 1;
+      if (ids[row].equals(id)) {
+        return row;
+      }
+      slot = (slot + 1) & (table.length - 1);
+    }
+    return -1;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String getId(int row) {
+    return ids[row];
+  }
+
+  public long getContentHash(int row) {
+    return hashes[row];
+  }
+
+  /**
+   * Impressão digital com que foi salvo (null se nunca foi)
+   */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  private int slot(String id) {
+    return (id.hashCode() * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(table.length));
+  }
+
+  private void rehash() {
+    table = new int[table.length * 2];
+    for (int row = 0; row < size; row++) {
+      int slot = slot(ids[row]);
+      while (table[slot] != 0) {
+        slot = (slot + 1) & (table.length - 1);
+      }
+      table[slot] = row + 1;
+    }
+  }
+
+  private static int tableSize(int capacity) {
+    return Integer.highestOneBit(capacity * 2 - 1) << 1; // Potência de 2, carga <= 50%
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CatalogManifest[%d documentos, %s]", size, fingerprint);
+  }
+}
@@ -0,0 +1,202 @@
+package com.pablords.opensearch;
+
+import java.util.Map;
+
+/**
+ * Produto do catálogo a indexar, já tipado
+ *
+ * Os campos de texto alimentam o BM25 e o embedding; os sinais de ranking
+ * (popularity, quality, ctr) seguem numéricos até o índice. Campos ausentes
+ * ficam null e não são enviados no documento.
+ *
+ * O _id no índice ({@link #documentId()}) é estável: vem do campo id do
+ * catálogo ou, sem ele, de um hash de título, descrição e categoria.
+ * Inserir ou remover produtos não muda o _id dos demais.
+ * O {@link IngestionPipeline} e a {@link CatalogSync} ignoram (com aviso)
+ * produtos com _id repetido.
+ */
+public final class CatalogProduct {
+
+  private final String id;
+  private final String title;
+  private final String description;
+  private final String category;
+  private final Long popularity;
+  private final Double quality;
+  private final Double ctr;
+
+  public CatalogProduct(String title, String description, String category,
+      Long popularity, Double quality, Double ctr) {
+    this(null, title, description, category, popularity, quality, ctr);
+  }
+
+  /**
+   * @param id Chave do produto no catálogo (opcional)
+   */
+  public CatalogProduct(String id, String title, String description, String category,
+      Long popularity, Double quality, Double ctr) {
+    this.id = id;
+    this.title = title;
+    this.description = description;
+    this.category = category;
+    this.popularity = popularity;
+    this.quality = quality;
+    this.ctr = ctr;
+  }
+
+  /**
+   * Converte o formato antigo (Map campo → texto); números inválidos são ignorados
+   */
+  public static CatalogProduct fromMap(Map<String, String> product) {
+    Double popularity = parseNumber("popularity", product.get("popularity"));
+    return new CatalogProduct(
+        product.get("id"),
+        product.get("title"),
+        product.get("description"),
+        product.get("category"),
+        popularity != null ? Math.round(popularity) : null,
+        parseNumber("quality", product.get("quality")),
+        parseNumber("ctr", product.get("ctr")));
+  }
+
+  /**
+   * Número em texto (catálogos antigos), ou null se ausente ou inválido
+   */
+  static Double parseNumber(String field, String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return null;
+    }
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      System.err.println("Valor numérico inválido para " + field + ": " + value);
+      return null;
+    }
+  }
+
+  /**
+   * Campo de texto pelo nome (title, description, category), ou null
+   */
+  public String field(String name) {
+    switch (name) {
+      case "title":
+        return title;
+      case "description":
+        return description;
+      case "category":
+        return category;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Texto para o embedding: campos presentes concatenados na ordem dada
+   * (vazio usa {@link EmbeddingModel#DEFAULT_EMBED_FIELDS}), como em
+   * {@link EmbeddingModel#productText}
+   */
+  public String text(String... fields) {
+    String[] selected = fields.length > 0 ? fields : EmbeddingModel.DEFAULT_EMBED_FIELDS;
+    StringBuilder text = new StringBuilder();
+    for (String name : selected) {
+      String value = field(name);
+      if (value != null && !value.trim().isEmpty()) {
+        if (text.length() > 0) {
+          text.append(". ");
+        }
+        text.append(value.trim());
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+   * _id do documento: o id do catálogo ou "p_" + hash de título, descrição
+   * e categoria (os sinais numéricos ficam de fora: mudar popularidade não
+   * muda o _id, só o {@link #contentHash()})
+   */
+  public String documentId() {
+    if (id != null && !id.trim().isEmpty()) {
+      return id.trim();
+    }
+    long h = hash(Hashing.FNV_OFFSET, title);
+    h = hash(h, description);
+    h = hash(h, category);
+    return String.format("p_%016x", Hashing.mix(h));
+  }
+
+  /**
+   * Hash de tudo o que vai para o documento (sem o id): muda se e só se
+   * o produto precisa ser reindexado
+   */
+  public long contentHash() {
+    long h = hash(Hashing.FNV_OFFSET, title);
+    h = hash(h, description);
+    h = hash(h, category);
+    h = hash(h, popularity != null ? popularity : Long.MIN_VALUE);
+    h = hash(h, quality != null ? Double.doubleToLongBits(quality) : Long.MIN_VALUE);
+    h = hash(h, ctr != null ? Double.doubleToLongBits(ctr) : Long.MIN_VALUE);
+    return Hashing.mix(h);
+  }
+
+  /**
+   * Hash de 64 bits de um texto (ex.: conjunto de _ids já vistos)
+   */
+  static long hash(String value) {
+    return Hashing.mix(hash(Hashing.FNV_OFFSET, value));
+  }
+
+  /**
+   * FNV-1a sobre os chars, com separador (null e "" dão hashes diferentes)
+   */
+  private static long hash(long h, String value) {
+    if (value != null) {
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        h = Hashing.fnv(h, c & 0xff);
+        h = Hashing.fnv(h, c >>> 8);
+      }
+    }
+    return Hashing.fnv(h, value != null ? 0x1f : 0x1e);
+  }
+
+  private static long hash(long h, long value) {
+    for (int i = 0; i < 8; i++) {
+      h = Hashing.fnv(h, (int) (value >>> (i * 8)) & 0xff);
+    }
+    return h;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public Long getPopularity() {
+    return popularity;
+  }
+
+  public Double getQuality() {
+    return quality;
+  }
+
+  public Double getCtr() {
+    return ctr;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s [%s] (pop=%s, q=%s, ctr=%s)", title, category, popularity, quality, ctr);
+  }
+}
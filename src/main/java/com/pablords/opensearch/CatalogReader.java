@@ -0,0 +1,215 @@
+package com.pablords.opensearch;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Leitor de catálogo em streaming: um {@link CatalogProduct} por vez
+ *
+ * Lê direto dos tokens do {@link JsonParser}, sem montar árvore nem Map:
+ * só o produto corrente fica em memória, qualquer que seja o tamanho do
+ * arquivo.
+ *
+ * Formatos aceitos (detectados pelo conteúdo, não pela extensão):
+ * - Array JSON: [ {...}, {...} ]
+ * - JSON Lines: um objeto por linha
+ * - Qualquer um dos dois compactado com gzip
+ *
+ * O campo id (texto ou número) vira a chave estável do documento.
+ * Campos desconhecidos (e objetos/arrays aninhados) são pulados. Os sinais
+ * de ranking aceitam número ou texto numérico; valores inválidos viram null.
+ *
+ * Uso: try (CatalogReader reader = CatalogReader.open(path)) { while (reader.hasNext()) ... }
+ */
+public class CatalogReader implements Iterator<CatalogProduct>, AutoCloseable {
+
+  private static final JsonFactory JSON = new JsonFactory();
+  private static final int GZIP_MAGIC = 0x8b1f;
+
+  private final String source;
+  private final JsonParser parser;
+  private final boolean array;
+  private CatalogProduct next;
+  private boolean finished;
+  private long count;
+
+  private CatalogReader(String source, JsonParser parser) throws IOException {
+    this.source = source;
+    this.parser = parser;
+
+    JsonToken first = parser.nextToken();
+    if (first == null) {
+      this.array = false;
+      this.finished = true;
+    } else if (first == JsonToken.START_ARRAY) {
+      this.array = true;
+    } else if (first == JsonToken.START_OBJECT) {
+      this.array = false;
+      this.next = readProduct(); // JSON Lines: o primeiro objeto já começou
+    } else {
+      throw new IOException(source + ": esperado array ou objeto JSON, encontrado " + first);
+    }
+  }
+
+  /**
+   * Abre um arquivo de catálogo (array JSON ou JSONL, opcionalmente gzip)
+   */
+  public static CatalogReader open(Path path) throws IOException {
+    return open(Files.newInputStream(path), path.toString());
+  }
+
+  /**
+   * Lê de um stream (fechado junto com o leitor)
+   *
+   * @param source Nome usado nas mensagens de erro
+   */
+  public static CatalogReader open(InputStream input, String source) throws IOException {
+    InputStream data = decompressIfGzip(input);
+    try {
+      return new CatalogReader(source, JSON.createParser(data));
+    } catch (IOException | RuntimeException e) {
+      data.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Stream bufferizado, descompactado se começar com a assinatura do gzip
+   */
+  static InputStream decompressIfGzip(InputStream input) throws IOException {
+    BufferedInputStream buffered = new BufferedInputStream(input, 64 * 1024);
+    buffered.mark(2);
+    int b0 = buffered.read();
+    int b1 = buffered.read();
+    buffered.reset();
+    boolean gzip = b0 >= 0 && b1 >= 0 && ((b1 << 8) | b0) == GZIP_MAGIC;
+    return gzip ? new GZIPInputStream(buffered, 64 * 1024) : buffered;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null && !finished) {
+      try {
+        next = advance();
+      } catch (IOException e) {
+        throw new UncheckedIOException(source + ": erro lendo produto " + (count + 1)
+            + " (" + parser.getCurrentLocation() + ")", e);
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public CatalogProduct next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    CatalogProduct product = next;
+    next = null;
+    count++;
+    return product;
+  }
+
+  /**
+   * Produtos entregues até agora
+   */
+  public long getCount() {
+    return count;
+  }
+
+  private CatalogProduct advance() throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == null || (array && token == JsonToken.END_ARRAY)) {
+      finished = true;
+      return null;
+    }
+    if (token != JsonToken.START_OBJECT) {
+      throw new IOException("esperado objeto de produto, encontrado " + token);
+    }
+    return readProduct();
+  }
+
+  /**
+   * Lê os campos do objeto corrente (parser posicionado no START_OBJECT)
+   */
+  private CatalogProduct readProduct() throws IOException {
+    String id = null;
+    String title = null;
+    String description = null;
+    String category = null;
+    Long popularity = null;
+    Double quality = null;
+    Double ctr = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      switch (name) {
+        case "id":
+          id = readText(value);
+          break;
+        case "title":
+          title = readText(value);
+          break;
+        case "description":
+          description = readText(value);
+          break;
+        case "category":
+          category = readText(value);
+          break;
+        case "popularity":
+          if (value == JsonToken.VALUE_NUMBER_INT) {
+            popularity = parser.getLongValue();
+          } else {
+            Double number = readNumber(name, value);
+            popularity = number != null ? Math.round(number) : null;
+          }
+          break;
+        case "quality":
+          quality = readNumber(name, value);
+          break;
+        case "ctr":
+          ctr = readNumber(name, value);
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return new CatalogProduct(id, title, description, category, popularity, quality, ctr);
+  }
+
+  private String readText(JsonToken value) throws IOException {
+    if (value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+      return parser.getValueAsString();
+    }
+    parser.skipChildren();
+    return null;
+  }
+
+  private Double readNumber(String field, JsonToken value) throws IOException {
+    if (value.isNumeric()) {
+      return parser.getDoubleValue();
+    }
+    if (value == JsonToken.VALUE_STRING) {
+      return CatalogProduct.parseNumber(field, parser.getText());
+    }
+    parser.skipChildren();
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+}
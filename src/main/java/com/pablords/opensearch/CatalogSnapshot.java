@@ -0,0 +1,497 @@
+package com.pablords.opensearch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Snapshot binário e colunar do catálogo já processado, com os embeddings
+ *
+ * Reconstruir o índice a partir do snapshot não lê JSON nem roda o modelo:
+ * os campos e os vetores saem direto do arquivo mapeado em memória, então
+ * o custo fica limitado por I/O (e pelo Bulk).
+ *
+ * FORMATO (little-endian, seções alinhadas em 8 bytes):
+ * - Cabeçalho de 104 bytes: magic, versão, número de produtos, dimensão,
+ *   codificação e escala dos vetores, tamanho do nome do modelo, o offset
+ *   de cada seção e o tamanho da origem
+ * - Nome do modelo e origem (caminho, tamanho e SHA-256 do catálogo; ver
+ *   {@link #source(Path)}), em UTF-8
+ * - Colunas de texto (id, title, description, category): offsets de fim
+ *   (int, count + 1, bit de sinal = null) seguidos dos bytes UTF-8
+ * - Colunas numéricas: popularity (long, Long.MIN_VALUE = ausente),
+ *   quality e ctr (double, NaN = ausente)
+ * - Bloco contíguo de vetores codificados pelo {@link VectorCodec}
+ *   (FLOAT32 ou FLOAT16; INT8 também é aceito)
+ *
+ * O {@link Writer} grava cada coluna em um arquivo temporário (memória
+ * constante) e monta o snapshot no close, trocando o arquivo final de
+ * forma atômica. Limite: cada seção é mapeada em um único buffer (até 2 GB).
+ */
+public class CatalogSnapshot implements AutoCloseable {
+
+  private static final int MAGIC = 0x50414E53; // "SNAP"
+  private static final int VERSION = 3; // 2: _ids estáveis (CatalogProduct.documentId); 3: origem do catálogo
+  private static final int HEADER_BYTES = 104;
+  private static final int SECTIONS_OFFSET = 32;
+  private static final int SOURCE_OFFSET = 96;
+  private static final int ALIGNMENT = 8;
+  private static final long MISSING_LONG = Long.MIN_VALUE;
+  private static final int NULL_BIT = 0x80000000;
+
+  // Seções, na ordem do arquivo
+  private static final int ID = 0;
+  private static final int TITLE = 1;
+  private static final int DESCRIPTION = 2;
+  private static final int CATEGORY = 3;
+  private static final int POPULARITY = 4;
+  private static final int QUALITY = 5;
+  private static final int CTR = 6;
+  private static final int VECTORS = 7;
+  private static final int SECTIONS = 8;
+  private static final int TEXT_COLUMNS = 4;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final int count;
+  private final String modelName;
+  private final String source;
+  private final VectorCodec codec;
+  private final MappedByteBuffer[] sections = new MappedByteBuffer[SECTIONS];
+
+  private CatalogSnapshot(Path path, FileChannel channel) throws IOException {
+    this.path = path;
+    this.channel = channel;
+
+    long fileSize = channel.size();
+    if (fileSize < HEADER_BYTES) {
+      throw new IOException("Arquivo não é um snapshot de catálogo: " + path);
+    }
+    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+    header.order(ByteOrder.LITTLE_ENDIAN);
+    if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+      throw new IOException("Arquivo não é um snapshot de catálogo válido: " + path);
+    }
+    long storedCount = header.getLong(8);
+    if (storedCount < 0 || storedCount > Integer.MAX_VALUE) {
+      throw new IOException("Snapshot " + path + " com número de produtos inválido: " + storedCount);
+    }
+    this.count = (int) storedCount;
+    int dimension = header.getInt(16);
+    VectorCodec.Type type = VectorCodec.Type.values()[header.getInt(20)];
+    this.codec = type == VectorCodec.Type.INT8 ? VectorCodec.int8(dimension, header.getFloat(24))
+        : type == VectorCodec.Type.FLOAT16 ? VectorCodec.float16(dimension) : VectorCodec.float32(dimension);
+
+    int nameBytes = header.getInt(28);
+    int sourceBytes = header.getInt(SOURCE_OFFSET);
+    if (nameBytes < 0 || sourceBytes < 0 || HEADER_BYTES + (long) nameBytes + sourceBytes > fileSize) {
+      throw new IOException("Snapshot " + path + " corrompido (cabeçalho)");
+    }
+    byte[] name = new byte[nameBytes];
+    byte[] origin = new byte[sourceBytes];
+    MappedByteBuffer strings = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, nameBytes + sourceBytes);
+    strings.get(name).get(origin);
+    this.modelName = new String(name, StandardCharsets.UTF_8);
+    this.source = new String(origin, StandardCharsets.UTF_8);
+
+    for (int section = 0; section < SECTIONS; section++) {
+      long start = header.getLong(SECTIONS_OFFSET + section * Long.BYTES);
+      long end = section + 1 < SECTIONS ? header.getLong(SECTIONS_OFFSET + (section + 1) * Long.BYTES) : fileSize;
+      if (start < HEADER_BYTES || end < start || end > fileSize) {
+        throw new IOException("Snapshot " + path + " corrompido (seção " + section + ")");
+      }
+      if (end - start > Integer.MAX_VALUE) {
+        throw new IOException("Seção " + section + " do snapshot " + path + " passa de 2 GB");
+      }
+      sections[section] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      sections[section].order(ByteOrder.LITTLE_ENDIAN);
+    }
+    if (sections[VECTORS].capacity() < (long) count * codec.bytesPerVector()) {
+      throw new IOException("Snapshot " + path + " truncado: faltam vetores");
+    }
+  }
+
+  /**
+   * Abre um snapshot para leitura (somente leitura, mapeado em memória)
+   */
+  public static CatalogSnapshot open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new CatalogSnapshot(path, channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Cria um snapshot (gravado de fato só no close do writer)
+   *
+   * @param codec  Codificação do bloco de vetores (ex.: FLOAT16, metade do FLOAT32)
+   * @param source Origem dos produtos ({@link #source(Path)}; null = desconhecida)
+   */
+  public static Writer writer(Path path, String modelName, VectorCodec codec, String source) throws IOException {
+    return new Writer(path, modelName, codec, source);
+  }
+
+  /**
+   * Identidade do conteúdo de um catálogo: caminho absoluto, tamanho e
+   * SHA-256 dos bytes (lê o arquivo inteiro). Dois snapshots só valem para
+   * o mesmo catálogo se a origem for igual
+   */
+  public static String source(Path catalog) throws IOException {
+    MessageDigest sha256;
+    try {
+      sha256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 indisponível", e);
+    }
+    long size = 0;
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = new DigestInputStream(Files.newInputStream(catalog), sha256)) {
+      for (int read; (read = in.read(buffer)) > 0;) {
+        size += read;
+      }
+    }
+    return catalog.toAbsolutePath().normalize() + "|" + size + "|" + HexFormat.of().formatHex(sha256.digest());
+  }
+
+  public int size() {
+    return count;
+  }
+
+  public String getModelName() {
+    return modelName;
+  }
+
+  /**
+   * Origem gravada pelo writer ({@link #source(Path)}; vazia = desconhecida)
+   */
+  public String getSource() {
+    return source;
+  }
+
+  public int getDimension() {
+    return codec.getDimension();
+  }
+
+  public VectorCodec getCodec() {
+    return codec;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * _id do documento do produto
+   */
+  public String getId(int row) {
+    return text(ID, row);
+  }
+
+  /**
+   * Campos do produto (leitura absoluta: pode ser chamado de várias threads)
+   */
+  public CatalogProduct getProduct(int row) {
+    checkRow(row);
+    long popularity = sections[POPULARITY].getLong(row * Long.BYTES);
+    double quality = sections[QUALITY].getDouble(row * Double.BYTES);
+    double ctr = sections[CTR].getDouble(row * Double.BYTES);
+    return new CatalogProduct(
+        text(ID, row),
+        text(TITLE, row),
+        text(DESCRIPTION, row),
+        text(CATEGORY, row),
+        popularity == MISSING_LONG ? null : popularity,
+        Double.isNaN(quality) ? null : quality,
+        Double.isNaN(ctr) ? null : ctr);
+  }
+
+  /**
+   * Embedding do produto, decodificado direto do bloco mapeado
+   */
+  public float[] getVector(int row) {
+    checkRow(row);
+    return codec.decode(sections[VECTORS], row * codec.bytesPerVector());
+  }
+
+  private String text(int section, int row) {
+    checkRow(row);
+    MappedByteBuffer column = sections[section];
+    int start = column.getInt(row * Integer.BYTES) & ~NULL_BIT;
+    int end = column.getInt((row + 1) * Integer.BYTES);
+    if ((end & NULL_BIT) != 0) {
+      return null;
+    }
+    byte[] utf8 = new byte[end - start];
+    column.get((count + 1) * Integer.BYTES + start, utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= count) {
+      throw new IndexOutOfBoundsException("Produto " + row + " de " + count);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Snapshot %s: %d produtos, %s, %s", path.getFileName(), count, modelName, codec);
+  }
+
+  /**
+   * Gravação em streaming: uma linha por produto, colunas em arquivos
+   * temporários concatenados no close
+   */
+  public static final class Writer implements AutoCloseable {
+    private final Path path;
+    private final byte[] modelName;
+    private final byte[] source;
+    private final VectorCodec codec;
+    private final Spool[] offsets = new Spool[TEXT_COLUMNS];
+    private final Spool[] texts = new Spool[TEXT_COLUMNS];
+    private final Spool[] numbers = new Spool[3];
+    private Spool vectors;
+    private final int[] textBytes = new int[TEXT_COLUMNS];
+    private long count;
+    private boolean closed;
+
+    private Writer(Path path, String modelName, VectorCodec codec, String source) throws IOException {
+      this.path = path.toAbsolutePath();
+      this.modelName = modelName.getBytes(StandardCharsets.UTF_8);
+      this.source = (source != null ? source : "").getBytes(StandardCharsets.UTF_8);
+      this.codec = codec;
+      Files.createDirectories(this.path.getParent());
+      try {
+        for (int i = 0; i < TEXT_COLUMNS; i++) {
+          offsets[i] = new Spool(this.path, codec);
+          offsets[i].putInt(0);
+          texts[i] = new Spool(this.path, codec);
+        }
+        for (int i = 0; i < numbers.length; i++) {
+          numbers[i] = new Spool(this.path, codec);
+        }
+        vectors = new Spool(this.path, codec);
+      } catch (IOException e) {
+        deleteSpools();
+        throw e;
+      }
+    }
+
+    /**
+     * Adiciona um produto com o seu embedding (ainda não codificado)
+     */
+    public void add(String id, CatalogProduct product, float[] vector) throws IOException {
+      if (closed) {
+        throw new IllegalStateException("Writer do snapshot já foi fechado");
+      }
+      putText(ID, id);
+      putText(TITLE, product.getTitle());
+      putText(DESCRIPTION, product.getDescription());
+      putText(CATEGORY, product.getCategory());
+      numbers[0].putLong(product.getPopularity() != null ? product.getPopularity() : MISSING_LONG);
+      numbers[1].putDouble(product.getQuality() != null ? product.getQuality() : Double.NaN);
+      numbers[2].putDouble(product.getCtr() != null ? product.getCtr() : Double.NaN);
+      vectors.putVector(vector);
+      count++;
+    }
+
+    private void putText(int column, String value) throws IOException {
+      if (value != null) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if ((long) textBytes[column] + utf8.length > Integer.MAX_VALUE) {
+          throw new IOException("Coluna de texto " + column + " do snapshot passa de 2 GB");
+        }
+        texts[column].put(utf8);
+        textBytes[column] += utf8.length;
+      }
+      offsets[column].putInt(value != null ? textBytes[column] : textBytes[column] | NULL_BIT);
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Monta o snapshot (cabeçalho + nome + origem + seções) e o publica atomicamente
+     */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+      try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(8, count);
+        header.putInt(16, codec.getDimension());
+        header.putInt(20, codec.getType().ordinal());
+        header.putFloat(24, codec.getScale());
+        header.putInt(28, modelName.length);
+        header.putInt(SOURCE_OFFSET, source.length);
+
+        long position = HEADER_BYTES;
+        out.write(ByteBuffer.wrap(modelName), position);
+        position += modelName.length;
+        out.write(ByteBuffer.wrap(source), position);
+        position += source.length;
+
+        Spool[][] sections = {
+            { offsets[ID], texts[ID] }, { offsets[TITLE], texts[TITLE] },
+            { offsets[DESCRIPTION], texts[DESCRIPTION] }, { offsets[CATEGORY], texts[CATEGORY] },
+            { numbers[0] }, { numbers[1] }, { numbers[2] }, { vectors } };
+        for (int section = 0; section < SECTIONS; section++) {
+          position = (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+          header.putLong(SECTIONS_OFFSET + section * Long.BYTES, position);
+          for (Spool spool : sections[section]) {
+            position = spool.copyTo(out, position);
+          }
+        }
+        out.write(header, 0);
+        out.force(true);
+      } catch (IOException | RuntimeException e) {
+        Files.deleteIfExists(temp);
+        throw e;
+      } finally {
+        deleteSpools();
+      }
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      System.out.println("✓ Snapshot do catálogo gravado: " + path + " (" + count + " produtos, "
+          + String.format("%.1f MB", Files.size(path) / (1024.0 * 1024.0)) + ")");
+    }
+
+    /**
+     * Descarta o que foi gravado (o snapshot anterior, se houver, fica intacto)
+     */
+    public void abort() {
+      closed = true;
+      deleteSpools();
+    }
+
+    private void deleteSpools() {
+      for (Spool[] group : new Spool[][] { offsets, texts, numbers, { vectors } }) {
+        for (Spool spool : group) {
+          if (spool != null) {
+            spool.delete();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Coluna em arquivo temporário, com buffer de escrita little-endian
+   */
+  private static final class Spool implements Closeable {
+    private final Path file;
+    private final FileChannel channel;
+    private final VectorCodec codec;
+    private final ByteBuffer buffer;
+
+    Spool(Path snapshot, VectorCodec codec) throws IOException {
+      this.file = Files.createTempFile(snapshot.getParent(), snapshot.getFileName() + ".", ".col");
+      this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      this.codec = codec;
+      this.buffer = ByteBuffer.allocate(Math.max(64 * 1024, 2 * codec.bytesPerVector()))
+          .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    void putInt(int value) throws IOException {
+      ensure(Integer.BYTES);
+      buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+      ensure(Long.BYTES);
+      buffer.putLong(value);
+    }
+
+    void putDouble(double value) throws IOException {
+      ensure(Double.BYTES);
+      buffer.putDouble(value);
+    }
+
+    void put(byte[] bytes) throws IOException {
+      if (bytes.length > buffer.capacity()) {
+        flush();
+        ByteBuffer direct = ByteBuffer.wrap(bytes);
+        while (direct.hasRemaining()) {
+          channel.write(direct);
+        }
+        return;
+      }
+      ensure(bytes.length);
+      buffer.put(bytes);
+    }
+
+    void putVector(float[] vector) throws IOException {
+      int bytes = codec.bytesPerVector();
+      ensure(bytes);
+      codec.encode(vector, buffer, buffer.position());
+      buffer.position(buffer.position() + bytes);
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    /**
+     * Copia a coluna para out a partir de position; devolve a posição final
+     */
+    long copyTo(FileChannel out, long position) throws IOException {
+      flush();
+      long size = channel.size();
+      for (long copied = 0; copied < size;) {
+        copied += channel.transferTo(copied, size - copied, out.position(position + copied));
+      }
+      return position + size;
+    }
+
+    void delete() {
+      try {
+        close();
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        System.err.println("Não foi possível remover " + file + ": " + e.getMessage());
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
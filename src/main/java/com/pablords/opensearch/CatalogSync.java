@@ -0,0 +1,214 @@
+package com.pablords.opensearch;
+
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Sincronização incremental (delta) do índice com o catálogo
+ *
+ * Cada documento tem _id estável ({@link CatalogProduct#documentId()}) e o
+ * {@link CatalogManifest} guarda o hash do conteúdo indexado. A cada
+ * execução o catálogo é lido inteiro (só parsing e hash), mas:
+ * - novos ou alterados: embedding + index no Bulk (mesmo _id = upsert)
+ * - iguais ao manifesto: nem embedding nem Bulk
+ * - ausentes do catálogo: delete no Bulk
+ *
+ * O custo de um refresh do catálogo fica proporcional ao que mudou, não
+ * ao tamanho do catálogo.
+ *
+ * O manifesto só é regravado se todas as operações deram certo; senão o
+ * anterior continua valendo e a próxima execução repete o delta.
+ *
+ * Uso: CatalogSync sync = new CatalogSync(client, model, índice, manifesto);
+ *      if (sync.canSync()) sync.sync(produtos); else { recria o índice; sync.rebuild(produtos, null); }
+ */
+public class CatalogSync {
+
+  private final OpenSearchClient client;
+  private final CachedEmbeddingModel model;
+  private final String index;
+  private final Path manifestPath;
+  private CatalogManifest previous;
+
+  // Contadores da última execução
+  private long added;
+  private long changed;
+  private long unchanged;
+  private long duplicates;
+  private long removed;
+
+  public CatalogSync(OpenSearchClient client, CachedEmbeddingModel model, String index, Path manifestPath) {
+    this.client = client;
+    this.model = model;
+    this.index = index;
+    this.manifestPath = manifestPath;
+  }
+
+  /**
+   * O índice existente pode ser atualizado por delta? Exige um manifesto
+   * da mesma configuração e a codificação já calibrada (uma escala INT8
+   * nova não casaria com os vetores que ficam no índice)
+   */
+  public boolean canSync() {
+    if (model.needsCalibration()) {
+      System.out.println("Delta indisponível: codificação INT8 sem escala calibrada");
+      return false;
+    }
+    try {
+      previous = CatalogManifest.load(manifestPath);
+    } catch (IOException e) {
+      System.err.println("Manifesto " + manifestPath + " ignorado: " + e.getMessage());
+      previous = null;
+      return false;
+    }
+    if (previous == null) {
+      System.out.println("Delta indisponível: manifesto " + manifestPath + " não existe");
+      return false;
+    }
+    if (!CatalogManifest.fingerprint(model, index).equals(previous.getFingerprint())) {
+      System.out.println("Delta indisponível: manifesto de outra configuração (" + previous.getFingerprint() + ")");
+      previous = null;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Atualiza o índice existente só com a diferença para o manifesto
+   */
+  public BulkIndexer.Stats sync(Iterator<CatalogProduct> products) throws Exception {
+    if (previous == null && !canSync()) {
+      throw new IllegalStateException("Sem manifesto válido para sincronização incremental: " + manifestPath);
+    }
+    System.out.println("Sincronizando delta com " + previous);
+    return run(products, null);
+  }
+
+  /**
+   * Indexa tudo num índice recém-criado e grava o manifesto para os
+   * próximos deltas
+   *
+   * @param snapshot Snapshot gravado junto (null = nenhum)
+   */
+  public BulkIndexer.Stats rebuild(Iterator<CatalogProduct> products, CatalogSnapshot.Writer snapshot)
+      throws Exception {
+    Files.deleteIfExists(manifestPath); // O índice foi recriado: o manifesto antigo não vale mais
+    previous = null;
+    return run(products, snapshot);
+  }
+
+  private BulkIndexer.Stats run(Iterator<CatalogProduct> products, CatalogSnapshot.Writer snapshot)
+      throws Exception {
+    long start = System.nanoTime();
+    added = changed = unchanged = duplicates = removed = 0;
+    CatalogManifest current = new CatalogManifest(previous != null ? previous.size() : 1024);
+
+    BulkIndexer.Stats stats = new IngestionPipeline(client, model, index).run(new Delta(products, current), snapshot);
+
+    long failedDeletes = 0;
+    if (previous != null) {
+      List<String> gone = new ArrayList<>();
+      for (int row = 0; row < previous.size(); row++) {
+        if (current.find(previous.getId(row)) < 0) {
+          gone.add(previous.getId(row));
+        }
+      }
+      removed = gone.size();
+      if (!gone.isEmpty()) {
+        BulkIndexer deleter = new BulkIndexer(client, index);
+        try (BulkIndexer bulk = deleter) {
+          for (String id : gone) {
+            bulk.delete(id);
+          }
+        }
+        failedDeletes = deleter.getStats().failedDocs;
+      }
+    }
+
+    System.out.printf("🔄 Delta: %d novos, %d alterados, %d iguais, %d removidos, %d duplicados (%dms)%n",
+        added, changed, unchanged, removed, duplicates, (System.nanoTime() - start) / 1_000_000);
+    if (stats.failedDocs == 0 && failedDeletes == 0) {
+      current.save(manifestPath, CatalogManifest.fingerprint(model, index)); // Calibração INT8 já feita aqui
+      previous = current;
+    } else {
+      System.err.println("Manifesto " + manifestPath + " não atualizado (" + (stats.failedDocs + failedDeletes)
+          + " falhas): a próxima sincronização repete o delta");
+    }
+    return stats;
+  }
+
+  public long getAdded() {
+    return added;
+  }
+
+  public long getChanged() {
+    return changed;
+  }
+
+  public long getUnchanged() {
+    return unchanged;
+  }
+
+  public long getRemoved() {
+    return removed;
+  }
+
+  /**
+   * Filtro sobre o catálogo: registra cada produto no novo manifesto e só
+   * deixa passar para o pipeline os novos e alterados (roda na thread de
+   * leitura do pipeline)
+   */
+  private final class Delta implements Iterator<CatalogProduct> {
+    private final Iterator<CatalogProduct> products;
+    private final CatalogManifest current;
+    private CatalogProduct next;
+
+    Delta(Iterator<CatalogProduct> products, CatalogManifest current) {
+      this.products = products;
+      this.current = current;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && products.hasNext()) {
+        CatalogProduct product = products.next();
+        String id = product.documentId();
+        long hash = product.contentHash();
+        if (!current.add(id, hash)) {
+          if (duplicates++ < 10) {
+            System.err.println("Produto com _id repetido ignorado: " + id + " (" + product + ")");
+          }
+          continue;
+        }
+        int row = previous != null ? previous.find(id) : -1;
+        if (row < 0) {
+          added++;
+        } else if (previous.getContentHash(row) != hash) {
+          changed++;
+        } else {
+          unchanged++;
+          continue;
+        }
+        next = product;
+      }
+      return next != null;
+    }
+
+    @Override
+    public CatalogProduct next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      CatalogProduct product = next;
+      next = null;
+      return product;
+    }
+  }
+}
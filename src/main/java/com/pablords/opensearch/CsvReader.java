@@ -0,0 +1,398 @@
+package com.pablords.opensearch;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Leitor de CSV (RFC 4180) em streaming, por máquina de estados
+ *
+ * - Uma única passada sobre um buffer de chars, sem regex nem split
+ * - Campos entre aspas com vírgulas, aspas duplicadas ("") e quebras de linha
+ * - Os campos do registro corrente são views (CharSequence) sobre o buffer:
+ *   nenhuma String é criada por coluna, só para as que o chamador pedir
+ *   com toString(); as views valem até o próximo {@link #next()}
+ * - Aceita LF, CRLF e CR; linhas vazias são ignoradas; BOM UTF-8 é pulado
+ *
+ * Tolerante como as planilhas: aspas no meio de um campo sem aspas são
+ * literais, e texto após a aspa de fechamento continua o campo.
+ *
+ * Uso: try (CsvReader csv = CsvReader.open(path)) { while (csv.next()) { csv.field(1) ... } }
+ */
+public class CsvReader implements AutoCloseable {
+
+  private static final int INITIAL_BUFFER = 64 * 1024;
+
+  // Estados da máquina
+  private static final int FIELD_START = 0;
+  private static final int UNQUOTED = 1;
+  private static final int QUOTED = 2;
+  private static final int QUOTE_IN_QUOTED = 3; // Aspa dentro de campo com aspas: fim ou escape?
+
+  private final Reader reader;
+  private final char delimiter;
+  private char[] buffer = new char[INITIAL_BUFFER];
+  private int position; // Próximo char a ler
+  private int limit; // Fim dos chars válidos
+  private boolean eof;
+  private boolean skipLineFeed; // Registro anterior terminou em CR: ignora o LF seguinte
+  private boolean started;
+
+  // Registro corrente: campo i = buffer[starts[i], ends[i])
+  private int recordStart;
+  private int[] starts = new int[16];
+  private int[] ends = new int[16];
+  private int fieldCount;
+  private long recordNumber;
+  private Field[] views = new Field[0];
+
+  public CsvReader(Reader reader) {
+    this(reader, ',');
+  }
+
+  public CsvReader(Reader reader, char delimiter) {
+    if (delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+      throw new IllegalArgumentException("Delimitador inválido: " + delimiter);
+    }
+    this.reader = reader;
+    this.delimiter = delimiter;
+  }
+
+  /**
+   * Abre um CSV em UTF-8 (opcionalmente gzip)
+   */
+  public static CsvReader open(Path path) throws IOException {
+    return new CsvReader(new InputStreamReader(
+        CatalogReader.decompressIfGzip(Files.newInputStream(path)), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Avança para o próximo registro
+   *
+   * @return false no fim do arquivo
+   */
+  public boolean next() throws IOException {
+    if (!started) {
+      started = true;
+      if (ensureData() && buffer[position] == '\uFEFF') {
+        position++; // BOM
+      }
+    }
+
+    while (true) {
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if (ensureData() && buffer[position] == '\n') {
+          position++;
+        }
+      }
+      recordStart = position;
+      fieldCount = 0;
+      if (!readRecord()) {
+        return false;
+      }
+      if (fieldCount > 1 || ends[0] > starts[0]) {
+        recordNumber++;
+        return true;
+      }
+      // Linha vazia: próximo registro
+    }
+  }
+
+  /**
+   * Lê um registro a partir de position; campos com aspas são compactados
+   * no próprio buffer (write <= position), sem cópia para outro lugar
+   */
+  private boolean readRecord() throws IOException {
+    int write = position;
+    int fieldStart = write;
+    int state = FIELD_START;
+    boolean any = false;
+
+    while (true) {
+      if (position == limit) {
+        int before = recordStart;
+        boolean more = fill();
+        write -= before - recordStart; // fill() pode mover o registro para o início do buffer
+        fieldStart -= before - recordStart;
+        if (!more) {
+          if (!any) {
+            return false;
+          }
+          if (state == QUOTED) {
+            throw new IOException("Aspas não fechadas no registro " + (recordNumber + 1));
+          }
+          endField(fieldStart, write);
+          return true;
+        }
+      }
+
+      char c = buffer[position++];
+      any = true;
+      switch (state) {
+        case FIELD_START:
+          if (c == '"') {
+            state = QUOTED;
+          } else {
+            state = UNQUOTED;
+            position--; // Campo sem aspas: o mesmo char é tratado de novo no estado UNQUOTED
+          }
+          break;
+        case UNQUOTED:
+          if (c == delimiter) {
+            endField(fieldStart, write);
+            fieldStart = write;
+            state = FIELD_START;
+          } else if (c == '\n' || c == '\r') {
+            endField(fieldStart, write);
+            skipLineFeed = c == '\r';
+            return true;
+          } else {
+            buffer[write++] = c;
+          }
+          break;
+        case QUOTED:
+          if (c == '"') {
+            state = QUOTE_IN_QUOTED;
+          } else {
+            buffer[write++] = c; // Inclusive delimitador e quebra de linha
+          }
+          break;
+        default: // QUOTE_IN_QUOTED
+          if (c == '"') {
+            buffer[write++] = '"'; // "" → "
+            state = QUOTED;
+          } else if (c == delimiter) {
+            endField(fieldStart, write);
+            fieldStart = write;
+            state = FIELD_START;
+          } else if (c == '\n' || c == '\r') {
+            endField(fieldStart, write);
+            skipLineFeed = c == '\r';
+            return true;
+          } else {
+            buffer[write++] = c; // Texto após a aspa de fechamento
+            state = UNQUOTED;
+          }
+      }
+    }
+  }
+
+  private void endField(int start, int end) {
+    if (fieldCount == starts.length) {
+      starts = Arrays.copyOf(starts, fieldCount * 2);
+      ends = Arrays.copyOf(ends, fieldCount * 2);
+    }
+    starts[fieldCount] = start;
+    ends[fieldCount] = end;
+    fieldCount++;
+  }
+
+  private boolean ensureData() throws IOException {
+    return position < limit || fill();
+  }
+
+  /**
+   * Lê mais chars; o registro em andamento é movido para o início do buffer
+   * (que dobra de tamanho se um único registro não couber)
+   */
+  private boolean fill() throws IOException {
+    if (eof) {
+      return false;
+    }
+    int kept = limit - recordStart;
+    if (recordStart > 0) {
+      System.arraycopy(buffer, recordStart, buffer, 0, kept);
+      for (int i = 0; i < fieldCount; i++) {
+        starts[i] -= recordStart;
+        ends[i] -= recordStart;
+      }
+      position -= recordStart;
+      limit = kept;
+      recordStart = 0;
+    }
+    if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int read = reader.read(buffer, limit, buffer.length - limit);
+    if (read <= 0) {
+      eof = true;
+      return false;
+    }
+    limit += read;
+    return true;
+  }
+
+  /**
+   * Número de campos do registro corrente
+   */
+  public int fieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Campo do registro corrente como view sobre o buffer (válida até o próximo next())
+   */
+  public CharSequence field(int column) {
+    if (column < 0 || column >= fieldCount) {
+      throw new IndexOutOfBoundsException("Coluna " + column + " de " + fieldCount);
+    }
+    if (column >= views.length) {
+      int previous = views.length;
+      views = Arrays.copyOf(views, Math.max(column + 1, previous * 2));
+      for (int i = previous; i < views.length; i++) {
+        views[i] = new Field(i);
+      }
+    }
+    return views[column];
+  }
+
+  /**
+   * Registros lidos até agora (sem contar linhas vazias)
+   */
+  public long getRecordNumber() {
+    return recordNumber;
+  }
+
+  /**
+   * Vazio ou só espaços, sem criar String
+   */
+  public static boolean isBlank(CharSequence text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Catálogo em CSV como stream de produtos, para o {@link IngestionPipeline}
+   *
+   * A primeira linha é o cabeçalho; as colunas são achadas pelo nome
+   * (id, title, description, category, popularity, quality, ctr, sem
+   * diferenciar maiúsculas). Só title é obrigatória; as demais ausentes
+   * ficam null.
+   */
+  public Iterator<CatalogProduct> products() throws IOException {
+    if (!next()) {
+      return Collections.emptyIterator();
+    }
+    int id = -1, title = -1, description = -1, category = -1, popularity = -1, quality = -1, ctr = -1;
+    for (int i = 0; i < fieldCount; i++) {
+      switch (field(i).toString().trim().toLowerCase(Locale.ROOT)) {
+        case "id":
+          id = i;
+          break;
+        case "title":
+          title = i;
+          break;
+        case "description":
+          description = i;
+          break;
+        case "category":
+          category = i;
+          break;
+        case "popularity":
+          popularity = i;
+          break;
+        case "quality":
+          quality = i;
+          break;
+        case "ctr":
+          ctr = i;
+          break;
+        default:
+      }
+    }
+    if (title < 0) {
+      throw new IOException("Cabeçalho do CSV sem coluna 'title'");
+    }
+    int[] columns = { id, title, description, category, popularity, quality, ctr };
+
+    return new Iterator<CatalogProduct>() {
+      private CatalogProduct next;
+
+      @Override
+      public boolean hasNext() {
+        try {
+          if (next == null && CsvReader.this.next()) {
+            Double pop = CatalogProduct.parseNumber("popularity", text(columns[4]));
+            next = new CatalogProduct(text(columns[0]), text(columns[1]), text(columns[2]), text(columns[3]),
+                pop != null ? Math.round(pop) : null,
+                CatalogProduct.parseNumber("quality", text(columns[5])),
+                CatalogProduct.parseNumber("ctr", text(columns[6])));
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException("Erro no registro " + (recordNumber + 1) + " do CSV", e);
+        }
+        return next != null;
+      }
+
+      @Override
+      public CatalogProduct next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        CatalogProduct product = next;
+        next = null;
+        return product;
+      }
+    };
+  }
+
+  /**
+   * Coluna como String (null se ausente no cabeçalho ou no registro)
+   */
+  private String text(int column) {
+    return column >= 0 && column < fieldCount ? field(column).toString() : null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  /**
+   * View de um campo do registro corrente
+   */
+  private final class Field implements CharSequence {
+    private final int column;
+
+    Field(int column) {
+      this.column = column;
+    }
+
+    @Override
+    public int length() {
+      return ends[column] - starts[column];
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length()) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      return buffer[starts[column] + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return new String(buffer, starts[column], length());
+    }
+  }
+}
@@ -1,12 +1,33 @@
 package com.pablords.opensearch;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -15,111 +36,602 @@ import java.util.zip.GZIPInputStream;
  */
 public class DatasetLoader {
 
-  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final JsonFactory JSON = new JsonFactory();
+  private static final int CHUNK_BYTES = 4 * 1024 * 1024; // Fatia do arquivo por tarefa
+  private static final int MIN_CHUNK_BYTES = 64 * 1024; // Primeira fatia com limite pequeno
+  private static final int ASSUMED_LINE_BYTES = 512; // Estimativa até a primeira fatia terminar
+  private static final int MAX_LOGGED_ERRORS = 10;
 
   /**
    * Carrega produtos de arquivo JSON Lines (formato Amazon)
    * 
    * @param filePath Caminho do arquivo (.json ou .json.gz)
    * @param limit    Limite de produtos a carregar (0 = todos)
-   * @return Lista de descrições de produtos
+   * @return Lista de descrições de produtos, na ordem do arquivo
    */
   public static List<String> loadFromJsonLines(String filePath, int limit) throws IOException {
-    List<String> products = new ArrayList<>();
+    return loadFromJsonLinesParallel(filePath, limit, true, Runtime.getRuntime().availableProcessors());
+  }
 
-    InputStream inputStream = new FileInputStream(filePath);
+  /**
+   * Carrega JSON Lines em paralelo
+   *
+   * - Arquivo descompactado: mapeado em memória (mmap) e dividido em fatias
+   *   de ~4 MB cortadas em quebras de linha; cada fatia é processada por uma
+   *   tarefa de um ForkJoinPool
+   * - .gz: uma thread descompacta e corta as fatias enquanto as anteriores
+   *   já estão sendo processadas (o gzip não permite acesso aleatório)
+   *
+   * Cada linha é lida por um parser de streaming que só extrai os campos
+   * usados na descrição, sem montar a árvore JSON. Há no máximo 2 fatias
+   * por thread em memória ao mesmo tempo.
+   *
+   * Com limite, a leitura é proporcional a ele: as fatias começam pequenas
+   * (~1 KB por produto pedido) e dobram até 4 MB, novas fatias só são
+   * submetidas enquanto as linhas estimadas das fatias em voo não cobrem o
+   * limite, e as que sobram são canceladas ao atingi-lo.
+   *
+   * @param filePath    Caminho do arquivo (.json, .jsonl ou .gz)
+   * @param limit       Limite de produtos a carregar (0 = todos)
+   * @param ordered     Preservar a ordem do arquivo (senão, ordem de conclusão das fatias)
+   * @param parallelism Threads de parsing
+   * @return Lista de descrições de produtos
+   */
+  public static List<String> loadFromJsonLinesParallel(String filePath, int limit, boolean ordered,
+      int parallelism) throws IOException {
+    long start = System.nanoTime();
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+    LoadState state = new LoadState();
+    int firstChunkBytes = limit > 0
+        ? (int) Math.min(CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, limit * 1024L))
+        : CHUNK_BYTES;
+    List<String> products;
+    long bytes;
 
-    // Se for .gz, descompactar
-    if (filePath.endsWith(".gz")) {
-      inputStream = new GZIPInputStream(inputStream);
+    try {
+      if (filePath.endsWith(".gz")) {
+        // Com limite, a descompressão só adianta 2 fatias
+        int capacity = limit > 0 ? 2 : 2 * pool.getParallelism();
+        try (GzipChunks chunks = new GzipChunks(filePath, capacity, firstChunkBytes, state)) {
+          products = parseChunks(chunks, pool, state, limit, ordered);
+          bytes = chunks.bytesRead;
+        }
+      } else {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+          MappedChunks chunks = new MappedChunks(channel, firstChunkBytes, state);
+          products = parseChunks(chunks, pool, state, limit, ordered);
+          bytes = chunks.position;
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+      try {
+        // Tarefas canceladas param na próxima linha: nenhuma continua após o retorno
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
     }
 
-    try (BufferedReader reader = new BufferedReader(
-        new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+    if (state.errors.get() > 0) {
+      System.err.println("Linhas ignoradas por erro: " + state.errors.get());
+    }
+    long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+    System.out.println("✓ Carregados " + products.size() + " produtos de " + filePath
+        + String.format(" (%.1f MB em %dms, %.1f MB/s, %d threads)", bytes / (1024.0 * 1024.0), elapsedMs,
+            bytes / (1024.0 * 1024.0) * 1000.0 / elapsedMs, pool.getParallelism()));
+    return products;
+  }
 
-      String line;
-      int count = 0;
+  /**
+   * Processa as fatias no pool com no máximo 2 por thread em voo
+   *
+   * Ordenado: junta os resultados na ordem de submissão (espera a fatia
+   * mais antiga). Sem ordem: junta conforme as fatias terminam. Com limite,
+   * só submete enquanto as linhas já juntadas mais as estimadas das fatias
+   * em voo (pela média de bytes por linha observada) não chegam a ele.
+   */
+  private static List<String> parseChunks(Iterator<Chunk> chunks, ForkJoinPool pool, LoadState state,
+      int limit, boolean ordered) throws IOException {
+    int maxInFlight = 2 * pool.getParallelism();
+    List<String> products = new ArrayList<>();
+    Map<Future<List<String>>, Integer> inFlight = new HashMap<>(); // Fatia → bytes
+    Deque<Future<List<String>>> submitted = new ArrayDeque<>(); // Ordem de submissão
+    ExecutorCompletionService<List<String>> completed = new ExecutorCompletionService<>(pool);
+    long inFlightBytes = 0;
+    long joinedBytes = 0;
 
-      while ((line = reader.readLine()) != null) {
-        if (limit > 0 && count >= limit) {
+    try {
+      while (limit <= 0 || products.size() < limit) {
+        boolean full = inFlight.size() >= maxInFlight
+            || (limit > 0 && !inFlight.isEmpty()
+                && products.size() + estimateLines(inFlightBytes, joinedBytes, products.size()) >= limit);
+        if (!full && chunks.hasNext()) {
+          Chunk chunk = chunks.next();
+          Future<List<String>> future = ordered ? pool.submit(chunk) : completed.submit(chunk);
+          inFlight.put(future, chunk.length);
+          submitted.add(future);
+          inFlightBytes += chunk.length;
+          continue;
+        }
+        if (inFlight.isEmpty()) {
           break;
         }
+        Future<List<String>> done = ordered ? submitted.poll() : completed.take();
+        if (!ordered) {
+          submitted.remove(done);
+        }
+        int length = inFlight.remove(done);
+        inFlightBytes -= length;
+        joinedBytes += length;
+        products.addAll(done.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Carga interrompida", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      state.cancelled = true; // Fatias ainda em voo param na próxima linha
+      for (Future<List<String>> future : inFlight.keySet()) {
+        future.cancel(true);
+      }
+    }
 
-        try {
-          JsonNode json = objectMapper.readTree(line);
-          String product = extractProductDescription(json);
+    return limit > 0 && products.size() > limit ? new ArrayList<>(products.subList(0, limit)) : products;
+  }
+
+  /**
+   * Linhas esperadas em bytes ainda não processados
+   */
+  private static long estimateLines(long bytes, long joinedBytes, long joinedLines) {
+    return joinedBytes > 0 ? bytes * joinedLines / joinedBytes : bytes / ASSUMED_LINE_BYTES;
+  }
+
+  /**
+   * Descrições das linhas de uma fatia
+   */
+  private static List<String> parseLines(JsonLineParser parser, byte[] data, int from, int to) {
+    List<String> products = new ArrayList<>();
+    int lineStart = from;
+    while (lineStart < to && !parser.state.cancelled) {
+      int lineEnd = lineStart;
+      while (lineEnd < to && data[lineEnd] != '\n') {
+        lineEnd++;
+      }
+      String product = parser.parse(data, lineStart, lineEnd - lineStart);
+      if (product != null && !product.isEmpty()) {
+        products.add(product);
+      }
+      lineStart = lineEnd + 1;
+    }
+    return products;
+  }
 
-          if (product != null && !product.trim().isEmpty()) {
-            products.add(product);
-            count++;
+  /**
+   * Extrai a descrição de um produto da Amazon direto dos tokens JSON
+   *
+   * Composição: título. descrição. até 3 features (última categoria)
+   * Popularidade/Qualidade/CTR quando presentes. Campos fora dessa lista
+   * (imagens, "also_buy", etc.) são pulados sem materializar nada.
+   *
+   * Os valores viram texto como o JsonNode.asText() do carregador antigo:
+   * null vira "null", números saem na forma canônica (4.20 → 4.2) e
+   * objetos/arrays viram "". A descrição só é usada se for texto (ou o
+   * primeiro elemento de um array).
+   */
+  private static final class JsonLineParser {
+    // Um por thread do pool: buffers e StringBuilder reaproveitados entre fatias
+    private static final ThreadLocal<JsonLineParser> PER_THREAD = ThreadLocal.withInitial(JsonLineParser::new);
+
+    private final StringBuilder description = new StringBuilder(512);
+    private final List<String> features = new ArrayList<>(3);
+    private byte[] buffer = new byte[0]; // Cópia da fatia mapeada (reaproveitada)
+    private LoadState state;
+    private String title;
+    private String text;
+    private String category;
+    private String popularity;
+    private String quality;
+    private String ctr;
+
+    static JsonLineParser forCurrentThread(LoadState state) {
+      JsonLineParser parser = PER_THREAD.get();
+      parser.state = state;
+      return parser;
+    }
+
+    byte[] buffer(int size) {
+      if (buffer.length < size) {
+        buffer = new byte[size];
+      }
+      return buffer;
+    }
+
+    /**
+     * @return Descrição, ou null se a linha está vazia, não é um objeto ou é inválida
+     */
+    String parse(byte[] data, int offset, int length) {
+      title = text = category = popularity = quality = ctr = null;
+      features.clear();
+
+      // Parser novo por linha (isola linhas inválidas); os buffers internos
+      // e a tabela de nomes de campos são reciclados pelo JsonFactory
+      try (JsonParser parser = JSON.createParser(data, offset, length)) {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+          return null;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          JsonToken value = parser.nextToken();
+          switch (name) {
+            case "title":
+              title = asText(parser, value);
+              break;
+            case "description":
+              text = value == JsonToken.START_ARRAY ? firstElement(parser)
+                  : value == JsonToken.VALUE_STRING ? parser.getText() : skip(parser);
+              break;
+            case "feature":
+              readFeatures(parser, value);
+              break;
+            case "category":
+              category = value == JsonToken.START_ARRAY ? lastElement(parser) : skip(parser);
+              break;
+            case "popularity":
+              popularity = asText(parser, value);
+              break;
+            case "quality":
+              quality = asText(parser, value);
+              break;
+            case "ctr":
+              ctr = asText(parser, value);
+              break;
+            default:
+              parser.skipChildren();
           }
-        } catch (Exception e) {
-          // Ignorar linhas com erro
-          System.err.println("Erro ao processar linha: " + e.getMessage());
         }
+      } catch (IOException e) {
+        state.error(e);
+        return null;
       }
+      return build();
     }
 
-    System.out.println("✓ Carregados " + products.size() + " produtos de " + filePath);
-    return products;
+    private String build() {
+      description.setLength(0);
+      if (title != null) {
+        description.append(title);
+      }
+      if (text != null) {
+        description.append(". ").append(text);
+      }
+      for (String feature : features) {
+        description.append(". ").append(feature);
+      }
+      if (category != null) {
+        description.append(" (").append(category).append(")");
+      }
+      if (popularity != null) {
+        description.append(" Popularidade: ").append(popularity);
+      }
+      if (quality != null) {
+        description.append(" Qualidade: ").append(quality);
+      }
+      if (ctr != null) {
+        description.append(" CTR: ").append(ctr);
+      }
+      return description.toString().trim();
+    }
+
+    /**
+     * Valor corrente como JsonNode.asText()
+     */
+    private static String asText(JsonParser parser, JsonToken value) throws IOException {
+      switch (value) {
+        case VALUE_NUMBER_INT:
+          return parser.getNumberValue().toString();
+        case VALUE_NUMBER_FLOAT:
+          return Double.toString(parser.getDoubleValue()); // Como o DoubleNode
+        case VALUE_NULL:
+          return "null";
+        case START_OBJECT:
+        case START_ARRAY:
+          parser.skipChildren();
+          return "";
+        default:
+          return parser.getText();
+      }
+    }
+
+    private static String skip(JsonParser parser) throws IOException {
+      parser.skipChildren();
+      return null;
+    }
+
+    private static String firstElement(JsonParser parser) throws IOException {
+      String first = null;
+      boolean empty = true;
+      JsonToken token;
+      while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+        if (empty) {
+          first = asText(parser, token);
+          empty = false;
+        } else {
+          parser.skipChildren();
+        }
+      }
+      return first;
+    }
+
+    private static String lastElement(JsonParser parser) throws IOException {
+      String last = null;
+      JsonToken token;
+      while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+        last = asText(parser, token);
+      }
+      return last;
+    }
+
+    private void readFeatures(JsonParser parser, JsonToken value) throws IOException {
+      features.clear(); // Campo repetido: vale o último, como no readTree
+      if (value != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        return;
+      }
+      JsonToken token;
+      while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+        if (features.size() < 3) {
+          features.add(asText(parser, token));
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
   }
 
   /**
-   * Extrai descrição do produto de um JSON da Amazon
+   * Fatias de um arquivo descompactado: cortes a cada ~4 MB (começando em
+   * firstChunkBytes e dobrando) ajustados para a próxima quebra de linha;
+   * cada tarefa mapeia e processa a sua fatia
    */
-  private static String extractProductDescription(JsonNode json) {
-    StringBuilder description = new StringBuilder();
+  private static final class MappedChunks implements Iterator<Chunk> {
+    private final FileChannel channel;
+    private final LoadState state;
+    private final long size;
+    private final ByteBuffer probe = ByteBuffer.allocate(8192);
+    private int chunkBytes;
+    private long position;
+
+    MappedChunks(FileChannel channel, int firstChunkBytes, LoadState state) throws IOException {
+      this.channel = channel;
+      this.chunkBytes = firstChunkBytes;
+      this.state = state;
+      this.size = channel.size();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < size;
+    }
+
+    @Override
+    public Chunk next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      long from = position;
+      long to;
+      try {
+        to = nextLineBoundary(Math.min(size, from + chunkBytes));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      position = to;
+      chunkBytes = Math.min(CHUNK_BYTES, chunkBytes * 2);
+      return new Chunk((int) (to - from), () -> parseRegion(from, (int) (to - from)));
+    }
 
-    // Título (obrigatório)
-    if (json.has("title")) {
-      description.append(json.get("title").asText());
+    /**
+     * Posição logo após o primeiro '\n' a partir de offset (ou o fim do arquivo)
+     */
+    private long nextLineBoundary(long offset) throws IOException {
+      while (offset < size) {
+        probe.clear();
+        int read = channel.read(probe, offset);
+        if (read <= 0) {
+          break;
+        }
+        for (int i = 0; i < read; i++) {
+          if (probe.get(i) == '\n') {
+            return offset + i + 1;
+          }
+        }
+        offset += read;
+      }
+      return size;
+    }
+
+    private List<String> parseRegion(long from, int length) throws IOException {
+      MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+      // O Jackson lê de byte[]: a cópia sai do page cache, sem syscall de leitura
+      JsonLineParser parser = JsonLineParser.forCurrentThread(state);
+      byte[] data = parser.buffer(length);
+      region.get(data, 0, length);
+      return parseLines(parser, data, 0, length);
+    }
+  }
+
+  /**
+   * Fatias de um .gz: uma thread descompacta e corta nas quebras de linha,
+   * entregando por uma fila limitada enquanto as fatias anteriores são processadas
+   */
+  private static final class GzipChunks implements Iterator<Chunk>, AutoCloseable {
+    private static final Segment END = new Segment(new byte[0], 0);
+
+    private final BlockingQueue<Segment> queue;
+    private final InputStream input;
+    private final Thread decompressor;
+    private final LoadState state;
+    private final int firstChunkBytes;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private volatile long bytesRead;
+    private Segment next;
+
+    GzipChunks(String filePath, int capacity, int firstChunkBytes, LoadState state) throws IOException {
+      this.state = state;
+      this.firstChunkBytes = firstChunkBytes;
+      this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+      this.input = new GZIPInputStream(new FileInputStream(filePath), 64 * 1024);
+      this.decompressor = new Thread(this::decompress, "jsonl-gunzip");
+      this.decompressor.setDaemon(true);
+      this.decompressor.start();
+    }
+
+    private void decompress() {
+      try {
+        int chunkBytes = firstChunkBytes;
+        byte[] buffer = new byte[chunkBytes];
+        int filled = 0;
+        while (!closed) {
+          int read = input.readNBytes(buffer, filled, buffer.length - filled);
+          bytesRead += read;
+          filled += read;
+          if (filled < buffer.length) { // Fim do arquivo: o resto é a última fatia
+            if (filled > 0) {
+              queue.put(new Segment(buffer, filled));
+            }
+            break;
+          }
+
+          int cut = lastNewline(buffer, filled) + 1;
+          if (cut == 0) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2); // Linha maior que a fatia
+            continue;
+          }
+          queue.put(new Segment(buffer, cut));
+          // A linha incompleta do fim vai para o início da próxima fatia
+          chunkBytes = Math.min(CHUNK_BYTES, chunkBytes * 2);
+          byte[] rest = new byte[Math.max(chunkBytes, 2 * (filled - cut))];
+          System.arraycopy(buffer, cut, rest, 0, filled - cut);
+          filled -= cut;
+          buffer = rest;
+        }
+      } catch (IOException e) {
+        failure = e;
+      } catch (InterruptedException e) {
+        return;
+      }
+      try {
+        queue.put(END);
+      } catch (InterruptedException e) {
+        // Encerrado pelo close
+      }
     }
 
-    // Descrição adicional
-    if (json.has("description")) {
-      JsonNode desc = json.get("description");
-      if (desc.isArray() && desc.size() > 0) {
-        description.append(". ").append(desc.get(0).asText());
-      } else if (desc.isTextual()) {
-        description.append(". ").append(desc.asText());
+    private static int lastNewline(byte[] buffer, int length) {
+      for (int i = length - 1; i >= 0; i--) {
+        if (buffer[i] == '\n') {
+          return i;
+        }
       }
+      return -1;
     }
 
-    // Features/características
-    if (json.has("feature")) {
-      JsonNode features = json.get("feature");
-      if (features.isArray()) {
-        for (int i = 0; i < Math.min(3, features.size()); i++) {
-          description.append(". ").append(features.get(i).asText());
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        try {
+          next = queue.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new UncheckedIOException(new IOException("Descompressão interrompida", e));
         }
       }
+      if (next == END) {
+        queue.offer(END); // Mantém o fim visível para chamadas seguintes
+        if (failure != null) {
+          throw new UncheckedIOException(failure);
+        }
+        return false;
+      }
+      return true;
     }
 
-    // Categoria
-    if (json.has("category")) {
-      JsonNode category = json.get("category");
-      if (category.isArray() && category.size() > 0) {
-        description.append(" (").append(category.get(category.size() - 1).asText()).append(")");
+    @Override
+    public Chunk next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
       }
+      Segment segment = next;
+      next = null;
+      return new Chunk(segment.length,
+          () -> parseLines(JsonLineParser.forCurrentThread(state), segment.data, 0, segment.length));
     }
 
-    if (json.has("popularity")) {
-      description.append(" Popularidade: ").append(json.get("popularity").asText());
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      decompressor.interrupt();
+      queue.clear();
+      input.close();
     }
-    if (json.has("quality")) {
-      description.append(" Qualidade: ").append(json.get("quality").asText());
+  }
+
+  /**
+   * Estado compartilhado de uma carga: linhas inválidas (só as primeiras
+   * são impressas) e cancelamento das fatias que sobraram
+   */
+  private static final class LoadState {
+    final AtomicLong errors = new AtomicLong();
+    volatile boolean cancelled;
+
+    void error(Exception e) {
+      if (errors.incrementAndGet() <= MAX_LOGGED_ERRORS) {
+        System.err.println("Erro ao processar linha: " + e.getMessage());
+      }
     }
-    if (json.has("ctr")) {
-      description.append(" CTR: ").append(json.get("ctr").asText());
+  }
+
+  /**
+   * Tarefa de uma fatia, com o tamanho em bytes (para a estimativa do limite)
+   */
+  private static final class Chunk implements Callable<List<String>> {
+    final int length;
+    private final Callable<List<String>> task;
+
+    Chunk(int length, Callable<List<String>> task) {
+      this.length = length;
+      this.task = task;
+    }
+
+    @Override
+    public List<String> call() throws Exception {
+      return task.call();
     }
+  }
 
-    return description.toString().trim();
+  private static final class Segment {
+    final byte[] data;
+    final int length;
+
+    Segment(byte[] data, int length) {
+      this.data = data;
+      this.length = length;
+    }
   }
 
   /**
    * Carrega produtos de arquivo CSV simples
+   *
+   * Lido com {@link CsvReader} (RFC 4180: aspas, "" e campos multilinha);
+   * só a coluna de descrição vira String.
    * 
-   * @param filePath          Caminho do arquivo CSV
+   * @param filePath          Caminho do arquivo CSV (opcionalmente .gz)
    * @param descriptionColumn Índice da coluna com descrição (0-based)
    * @param hasHeader         Se o arquivo tem cabeçalho
    * @param limit             Limite de produtos (0 = todos)
@@ -128,33 +640,16 @@ public class DatasetLoader {
       boolean hasHeader, int limit) throws IOException {
     List<String> products = new ArrayList<>();
 
-    try (BufferedReader reader = new BufferedReader(
-        new FileReader(filePath, StandardCharsets.UTF_8))) {
-
-      String line;
-      int count = 0;
-      boolean firstLine = true;
-
-      while ((line = reader.readLine()) != null) {
-        if (firstLine && hasHeader) {
-          firstLine = false;
-          continue;
-        }
-
-        if (limit > 0 && count >= limit) {
-          break;
-        }
-
-        String[] columns = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)"); // Split CSV respeitando aspas
-
-        if (columns.length > descriptionColumn) {
-          String description = columns[descriptionColumn]
-              .replaceAll("^\"|\"$", "") // Remove aspas
-              .trim();
+    try (CsvReader csv = CsvReader.open(Path.of(filePath))) {
+      if (hasHeader) {
+        csv.next();
+      }
 
-          if (!description.isEmpty()) {
-            products.add(description);
-            count++;
+      while ((limit <= 0 || products.size() < limit) && csv.next()) {
+        if (csv.fieldCount() > descriptionColumn) {
+          CharSequence description = csv.field(descriptionColumn);
+          if (!CsvReader.isBlank(description)) {
+            products.add(description.toString().trim());
           }
         }
       }
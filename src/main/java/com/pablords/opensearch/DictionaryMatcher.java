@@ -0,0 +1,336 @@
+package com.pablords.opensearch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matcher multi-padrão Aho-Corasick
+ *
+ * Encontra todas as ocorrências de um dicionário (marcas, termos da query)
+ * em uma única passada linear pelo texto, independente do tamanho do
+ * dicionário. As transições ficam em uma tabela hash de chaves primitivas
+ * (estado, caractere), sem objetos por nó.
+ *
+ * Os padrões são normalizados com o {@link TextAnalyzer}, então o texto
+ * varrido deve estar na mesma forma canônica.
+ */
+public class DictionaryMatcher {
+
+  private final String[] patterns;
+  private final int[] patternLengths;
+  private final boolean wholeWords;
+
+  // Autômato: transições (estado, char) → estado, links de falha e saídas
+  private final TransitionTable transitions;
+  private final int[] failure;
+  private final int[] output; // padrão que termina no estado (-1 se nenhum)
+  private final int[] outputLink; // próximo estado com saída na cadeia de falhas
+
+  private DictionaryMatcher(List<String> patterns, boolean wholeWords) {
+    this.patterns = patterns.toArray(new String[0]);
+    this.patternLengths = new int[this.patterns.length];
+    this.wholeWords = wholeWords;
+
+    // 1. Construir a trie
+    TransitionTable table = new TransitionTable(Math.max(16, patterns.size() * 8));
+    List<Integer> terminal = new ArrayList<>();
+    terminal.add(-1);
+    int states = 1;
+    for (int id = 0; id < this.patterns.length; id++) {
+      String pattern = this.patterns[id];
+      patternLengths[id] = pattern.length();
+      int state = 0;
+      for (int i = 0; i < pattern.length(); i++) {
+        int next = table.get(state, pattern.charAt(i));
+        if (next < 0) {
+          next = states++;
+          table.put(state, pattern.charAt(i), next);
+          terminal.add(-1);
+        }
+        state = next;
+      }
+      terminal.set(state, id);
+    }
+
+    this.transitions = table;
+    this.output = new int[states];
+    for (int s = 0; s < states; s++) {
+      output[s] = terminal.get(s);
+    }
+
+    // 2. Links de falha em BFS (estados mais rasos primeiro)
+    this.failure = new int[states];
+    this.outputLink = new int[states];
+    Arrays.fill(outputLink, -1);
+    List<List<long[]>> children = table.childrenByState(states);
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    for (long[] edge : children.get(0)) {
+      int child = (int) edge[1];
+      failure[child] = 0;
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      for (long[] edge : children.get(state)) {
+        char c = (char) edge[0];
+        int child = (int) edge[1];
+        int f = failure[state];
+        int next;
+        while ((next = table.get(f, c)) < 0 && f != 0) {
+          f = failure[f];
+        }
+        failure[child] = next >= 0 ? next : 0;
+        int fallback = failure[child];
+        outputLink[child] = output[fallback] >= 0 ? fallback : outputLink[fallback];
+        queue.add(child);
+      }
+    }
+  }
+
+  /**
+   * Carrega um dicionário de arquivo texto (uma entrada por linha, '#' para comentários)
+   *
+   * @param path       Caminho do arquivo
+   * @param wholeWords Se true, só conta ocorrências delimitadas por fronteiras de palavra
+   */
+  public static DictionaryMatcher fromFile(Path path, boolean wholeWords) throws IOException {
+    Builder builder = builder().wholeWords(wholeWords);
+    for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+      String entry = line.trim();
+      if (!entry.isEmpty() && !entry.startsWith("#")) {
+        builder.add(entry);
+      }
+    }
+    return builder.build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int size() {
+    return patterns.length;
+  }
+
+  public String pattern(int id) {
+    return patterns[id];
+  }
+
+  /**
+   * Varre o texto uma única vez acumulando as ocorrências de cada padrão
+   *
+   * @param text Texto já normalizado pelo {@link TextAnalyzer}
+   * @param hits Contadores de destino (acumulativos; use {@link Hits#clear()} para reutilizar)
+   */
+  public void scan(CharSequence text, Hits hits) {
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      int next;
+      while ((next = transitions.get(state, c)) < 0 && state != 0) {
+        state = failure[state];
+      }
+      state = next >= 0 ? next : 0;
+
+      int match = output[state] >= 0 ? state : outputLink[state];
+      while (match >= 0) {
+        int id = output[match];
+        if (!wholeWords || isWholeWord(text, i - patternLengths[id] + 1, i + 1)) {
+          hits.increment(id);
+        }
+        match = outputLink[match];
+      }
+    }
+  }
+
+  /**
+   * Verifica se algum padrão ocorre no texto
+   */
+  public boolean containsAny(CharSequence text) {
+    Hits hits = newHits();
+    scan(text, hits);
+    return hits.distinctCount() > 0;
+  }
+
+  public Hits newHits() {
+    return new Hits(patterns.length);
+  }
+
+  private static boolean isWholeWord(CharSequence text, int start, int end) {
+    return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+        && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+  }
+
+  /**
+   * Contadores de ocorrências por padrão para um campo
+   * Reutilizável: clear() só zera os padrões efetivamente encontrados
+   */
+  public static class Hits {
+    private final int[] counts;
+    private final int[] touched;
+    private int distinct;
+    private int total;
+
+    private Hits(int size) {
+      this.counts = new int[size];
+      this.touched = new int[size];
+    }
+
+    private void increment(int id) {
+      if (counts[id]++ == 0) {
+        touched[distinct++] = id;
+      }
+      total++;
+    }
+
+    public int count(int id) {
+      return counts[id];
+    }
+
+    public boolean contains(int id) {
+      return counts[id] > 0;
+    }
+
+    /**
+     * Número de padrões distintos encontrados
+     */
+    public int distinctCount() {
+      return distinct;
+    }
+
+    /**
+     * Número total de ocorrências encontradas
+     */
+    public int totalCount() {
+      return total;
+    }
+
+    public void clear() {
+      for (int i = 0; i < distinct; i++) {
+        counts[touched[i]] = 0;
+      }
+      distinct = 0;
+      total = 0;
+    }
+  }
+
+  public static class Builder {
+    private final List<String> patterns = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private boolean wholeWords;
+
+    public Builder wholeWords(boolean wholeWords) {
+      this.wholeWords = wholeWords;
+      return this;
+    }
+
+    /**
+     * Adiciona um padrão (normalizado) e retorna seu id
+     * Padrões repetidos retornam o id já existente
+     */
+    public int add(String pattern) {
+      String normalized = TextAnalyzer.analyze(pattern);
+      if (normalized.isEmpty()) {
+        throw new IllegalArgumentException("Padrão vazio após normalização: '" + pattern + "'");
+      }
+      return ids.computeIfAbsent(normalized, p -> {
+        patterns.add(p);
+        return patterns.size() - 1;
+      });
+    }
+
+    public DictionaryMatcher build() {
+      return new DictionaryMatcher(patterns, wholeWords);
+    }
+  }
+
+  /**
+   * Tabela hash de endereçamento aberto (estado, char) → estado
+   */
+  private static final class TransitionTable {
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    TransitionTable(int expected) {
+      int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+      keys = new long[capacity];
+      values = new int[capacity];
+      Arrays.fill(keys, -1L);
+    }
+
+    private static long key(int state, char c) {
+      return ((long) state << 16) | c;
+    }
+
+    int get(int state, char c) {
+      long key = key(state, c);
+      int mask = keys.length - 1;
+      for (int i = Hashing.fold(key) & mask;; i = (i + 1) & mask) {
+        long k = keys[i];
+        if (k == key) {
+          return values[i];
+        }
+        if (k == -1L) {
+          return -1;
+        }
+      }
+    }
+
+    void put(int state, char c, int value) {
+      if ((size + 1) * 2 > keys.length) {
+        resize();
+      }
+      long key = key(state, c);
+      int mask = keys.length - 1;
+      int i = Hashing.fold(key) & mask;
+      while (keys[i] != -1L && keys[i] != key) {
+        i = (i + 1) & mask;
+      }
+      if (keys[i] == -1L) {
+        size++;
+      }
+      keys[i] = key;
+      values[i] = value;
+    }
+
+    private void resize() {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new int[oldValues.length * 2];
+      Arrays.fill(keys, -1L);
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != -1L) {
+          put((int) (oldKeys[i] >>> 16), (char) oldKeys[i], oldValues[i]);
+        }
+      }
+    }
+
+    /**
+     * Arestas (char, filho) agrupadas por estado de origem, usado só na construção
+     */
+    List<List<long[]>> childrenByState(int states) {
+      List<List<long[]>> children = new ArrayList<>(states);
+      for (int s = 0; s < states; s++) {
+        children.add(new ArrayList<>());
+      }
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != -1L) {
+          int from = (int) (keys[i] >>> 16);
+          children.get(from).add(new long[] { keys[i] & 0xFFFF, values[i] });
+        }
+      }
+      return children;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.pablords.opensearch;
+
+import ai.djl.Application;
+import ai.djl.MalformedModelException;
+import ai.djl.inference.Predictor;
+import ai.djl.repository.zoo.Criteria;
+import ai.djl.repository.zoo.ModelNotFoundException;
+import ai.djl.repository.zoo.ZooModel;
+import ai.djl.training.util.ProgressBar;
+import ai.djl.translate.TranslateException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Modelo de embedding sentence-transformers carregado com DJL (PyTorch).
+ * Otimizado para produção com pool de predictors thread-safe e inferência
+ * realmente em lote; cache, store e coalescer vêm de {@link CachedEmbeddingModel}.
+ */
+public class DjlEmbeddingModel extends CachedEmbeddingModel {
+
+    // Configuração do modelo
+    // OPÇÃO 1: MiniLM - Rápido, 384 dimensões (atual)
+    public static final String MODEL_NAME = "sentence-transformers/all-MiniLM-L6-v2";
+    public static final int VECTOR_DIMENSION = 384;
+
+    // OPÇÃO 2: Multilingual - Melhor para português, 768 dimensões
+    // public static final String MODEL_NAME = "sentence-transformers/paraphrase-multilingual-mpnet-base-v2";
+    // public static final int VECTOR_DIMENSION = 768;
+
+    // OPÇÃO 3: MPNet - Melhor qualidade inglês, 768 dimensões
+    // public static final String MODEL_NAME = "sentence-transformers/all-mpnet-base-v2";
+    // public static final int VECTOR_DIMENSION = 768;
+
+    // Tradutor em lote (String[] → float[][]): o tokenizer faz padding até a
+    // maior sequência do lote e o pooling usa a attention mask
+    private final ZooModel<String[], float[][]> model;
+
+    // Pool de predictors: o Predictor do DJL não é thread-safe, então cada
+    // inferência pega um emprestado (um por core por padrão)
+    private final List<Predictor<String[], float[][]>> predictors;
+    private final BlockingQueue<Predictor<String[], float[][]>> availablePredictors;
+
+    /**
+     * Construtor com cache padrão de 1000 embeddings
+     */
+    public DjlEmbeddingModel() throws MalformedModelException, ModelNotFoundException, IOException {
+        this(1000);
+    }
+
+    /**
+     * Construtor com tamanho de cache customizado
+     * @param cacheSize Número máximo de embeddings a manter em cache
+     */
+    public DjlEmbeddingModel(int cacheSize) throws MalformedModelException, ModelNotFoundException, IOException {
+        this(cacheSize, defaultBatchSize());
+    }
+
+    /**
+     * Construtor com cache e tamanho de lote customizados
+     * @param cacheSize Número máximo de embeddings a manter em cache
+     * @param batchSize Máximo de textos por inferência em lote
+     */
+    public DjlEmbeddingModel(int cacheSize, int batchSize)
+            throws MalformedModelException, ModelNotFoundException, IOException {
+        super(MODEL_NAME, VECTOR_DIMENSION, cacheSize, batchSize);
+        System.out.println("Carregando modelo de embedding: " + MODEL_NAME);
+
+        Criteria<String[], float[][]> criteria = Criteria.builder()
+                .setTypes(String[].class, float[][].class)
+                .optApplication(Application.NLP.TEXT_EMBEDDING)
+                .optModelUrls("djl://ai.djl.huggingface.pytorch/" + MODEL_NAME)
+                .optEngine("PyTorch")
+                .optArgument("padding", "true")
+                .optProgress(new ProgressBar())
+                .build();
+
+        this.model = criteria.loadModel();
+
+        int poolSize = Integer.getInteger("embedding.predictors", Runtime.getRuntime().availableProcessors());
+        this.predictors = new ArrayList<>(poolSize);
+        this.availablePredictors = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        for (int i = 0; i < Math.max(1, poolSize); i++) {
+            Predictor<String[], float[][]> predictor = model.newPredictor();
+            predictors.add(predictor);
+            availablePredictors.add(predictor);
+        }
+
+        System.out.println("Modelo carregado com cache de " + cacheSize + " embeddings (lotes de até "
+                + batchSize + ", " + predictors.size() + " predictors).");
+    }
+
+    /**
+     * Inferência com um predictor emprestado do pool (bloqueia se todos estão em uso)
+     */
+    @Override
+    protected float[][] predict(String[] texts) throws TranslateException {
+        Predictor<String[], float[][]> predictor;
+        try {
+            predictor = availablePredictors.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranslateException("Interrompido aguardando um predictor livre", e);
+        }
+
+        try {
+            return predictor.predict(texts);
+        } finally {
+            availablePredictors.offer(predictor);
+        }
+    }
+
+    @Override
+    protected int inferenceParallelism() {
+        return predictors.size();
+    }
+
+    @Override
+    protected void closeEncoder() {
+        for (Predictor<String[], float[][]> predictor : predictors) {
+            predictor.close();
+        }
+        this.model.close();
+    }
+}
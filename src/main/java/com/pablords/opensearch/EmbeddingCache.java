@@ -0,0 +1,387 @@
+package com.pablords.opensearch;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache concorrente de embeddings com admissão por frequência
+ *
+ * - SEGMENTOS: as chaves são distribuídas por hash em segmentos
+ *   independentes; cada um tem seu próprio mapa e seu próprio lock de escrita
+ * - LEITURA: um hit é um get em ConcurrentHashMap + marcação do bit de
+ *   referência da entrada, sem lock nenhum
+ * - EVICÇÃO (CLOCK): cada segmento mantém anéis de entradas; o ponteiro
+ *   limpa bits de referência até achar uma entrada não usada recentemente
+ * - ADMISSÃO (W-TinyLFU): toda chave nova entra numa janela pequena (~1%
+ *   do segmento); quem sai da janela só passa para a região principal no
+ *   lugar da vítima se for mais frequente que ela, segundo um sketch
+ *   Count-Min de 4 bits. A janela dá a uma query nova tempo de acumular
+ *   frequência, e uma rajada de queries únicas não expulsa as populares.
+ * - FREQUÊNCIA: todo acesso (hit ou miss) conta no sketch; contadores já
+ *   saturados não são escritos, então os hits de uma chave quente custam
+ *   só leituras até o próximo envelhecimento
+ * - COMPACTO: os vetores ficam codificados pelo {@link VectorCodec}
+ *   (FLOAT32, FLOAT16 ou INT8) e são decodificados a cada hit
+ */
+public class EmbeddingCache {
+
+  private static final int SEGMENTS = 16;
+
+  // Fração da capacidade de cada segmento reservada à janela de admissão
+  private static final int WINDOW_PERCENT = 1;
+
+  private final Segment[] segments;
+  private final FrequencySketch sketch;
+  private final VectorCodec codec;
+  private final int maxSize;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder loadTimeNanos = new LongAdder();
+
+  /**
+   * @param maxSize Número máximo de embeddings em cache
+   * @param codec   Codificação dos vetores em memória
+   */
+  public EmbeddingCache(int maxSize, VectorCodec codec) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Tamanho do cache deve ser positivo: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.codec = codec;
+    int segmentCount = Math.min(SEGMENTS, Integer.highestOneBit(maxSize));
+    this.segments = new Segment[segmentCount];
+    int perSegment = (maxSize + segmentCount - 1) / segmentCount;
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(perSegment);
+    }
+    this.sketch = new FrequencySketch(maxSize);
+  }
+
+  /**
+   * Busca sem lock; registra hit ou miss e a frequência da chave
+   *
+   * @return Embedding em cache ou null
+   */
+  public float[] get(String key) {
+    int hash = spread(key.hashCode());
+    sketch.increment(hash);
+    Entry entry = segmentFor(hash).map.get(key);
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    entry.referenced = true;
+    hits.increment();
+    return codec.decode(entry.value);
+  }
+
+  /**
+   * Busca sem registrar estatísticas nem frequência (re-checagem interna)
+   */
+  public float[] peek(String key) {
+    Entry entry = segmentFor(spread(key.hashCode())).map.get(key);
+    return entry != null ? codec.decode(entry.value) : null;
+  }
+
+  /**
+   * Insere na janela de admissão; com a janela cheia, a entrada que sai
+   * dela disputa com a vítima da região principal
+   */
+  public void put(String key, float[] value) {
+    int hash = spread(key.hashCode());
+    segmentFor(hash).put(key, hash, codec.encode(value));
+  }
+
+  /**
+   * Registra o tempo de cálculo de um embedding que não estava em cache
+   */
+  public void recordLoad(long nanos) {
+    loads.increment();
+    loadTimeNanos.add(nanos);
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.map.size();
+    }
+    return size;
+  }
+
+  public VectorCodec codec() {
+    return codec;
+  }
+
+  public int maxSize() {
+    return maxSize;
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Chaves que saíram da janela recusadas pela admissão (menos frequentes
+   * que a vítima da região principal)
+   */
+  public long rejectionCount() {
+    return rejections.sum();
+  }
+
+  /**
+   * Latência média de cálculo de um embedding ausente do cache
+   */
+  public double averageLoadMillis() {
+    long count = loads.sum();
+    return count == 0 ? 0.0 : loadTimeNanos.sum() / 1_000_000.0 / count;
+  }
+
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments[(hash >>> 16) & (segments.length - 1)];
+  }
+
+  private static int spread(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static class Entry {
+    final String key;
+    final int hash;
+    final byte[] value; // Vetor codificado
+    volatile boolean referenced; // Bit do CLOCK: escrito sem lock nos hits
+
+    Entry(String key, int hash, byte[] value) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Segmento: mapa para leitura sem lock + anéis do CLOCK (janela e região
+   * principal) protegidos por lock
+   */
+  private class Segment {
+    final ConcurrentHashMap<String, Entry> map;
+    final Ring window;
+    final Ring main;
+    final ReentrantLock lock = new ReentrantLock();
+
+    Segment(int capacity) {
+      int windowCapacity = Math.max(1, capacity * WINDOW_PERCENT / 100);
+      this.map = new ConcurrentHashMap<>(capacity * 2);
+      this.window = new Ring(windowCapacity);
+      this.main = new Ring(capacity - windowCapacity);
+    }
+
+    void put(String key, int hash, byte[] value) {
+      lock.lock();
+      try {
+        if (map.containsKey(key)) {
+          return; // Outra thread já calculou
+        }
+        Entry entry = new Entry(key, hash, value);
+        map.put(key, entry);
+        Entry candidate = window.add(entry);
+        if (candidate == null) {
+          return;
+        }
+
+        // Quem saiu da janela entra na região principal se houver espaço
+        if (main.hasRoom()) {
+          main.add(candidate);
+          return;
+        }
+        if (main.capacity() == 0) {
+          map.remove(candidate.key); // Segmento só com janela
+          evictions.increment();
+          return;
+        }
+        int victimSlot = main.sweep();
+        Entry victim = main.get(victimSlot);
+        if (sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+          map.remove(candidate.key);
+          rejections.increment();
+          return;
+        }
+        map.remove(victim.key);
+        main.set(victimSlot, candidate);
+        evictions.increment();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void clear() {
+      lock.lock();
+      try {
+        map.clear();
+        window.clear();
+        main.clear();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Anel do CLOCK (acesso sempre sob o lock do segmento)
+   */
+  private static class Ring {
+    final Entry[] entries;
+    int count;
+    int hand;
+
+    Ring(int capacity) {
+      this.entries = new Entry[capacity];
+    }
+
+    boolean hasRoom() {
+      return count < entries.length;
+    }
+
+    int capacity() {
+      return entries.length;
+    }
+
+    Entry get(int slot) {
+      return entries[slot];
+    }
+
+    void set(int slot, Entry entry) {
+      entries[slot] = entry;
+    }
+
+    /**
+     * Adiciona; com o anel cheio, troca pela vítima do CLOCK
+     *
+     * @return Entrada que saiu do anel, ou null se havia espaço
+     */
+    Entry add(Entry entry) {
+      if (hasRoom()) {
+        entries[count++] = entry;
+        return null;
+      }
+      int slot = sweep();
+      Entry evicted = entries[slot];
+      entries[slot] = entry;
+      return evicted;
+    }
+
+    /**
+     * Avança o ponteiro do CLOCK até uma entrada sem bit de referência
+     */
+    int sweep() {
+      while (true) {
+        Entry candidate = entries[hand];
+        int slot = hand;
+        hand = (hand + 1) % entries.length;
+        if (!candidate.referenced) {
+          return slot;
+        }
+        candidate.referenced = false; // Segunda chance
+      }
+    }
+
+    void clear() {
+      Arrays.fill(entries, null);
+      count = 0;
+      hand = 0;
+    }
+  }
+
+  /**
+   * Count-Min sketch com contadores saturando em 15 (4 bits, como no TinyLFU)
+   *
+   * Os contadores são atômicos, então incrementos concorrentes não se
+   * perdem. A cada ~10 × capacidade incrementos todos os contadores são
+   * divididos por 2, para que a frequência reflita o passado recente. Essa
+   * contagem é um int comum, sem sincronização: incrementos perdidos entre
+   * threads só atrasam um pouco o envelhecimento, e o caminho quente não
+   * paga um LongAdder.sum().
+   */
+  private static class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97CB3127, 0xB3C5E7A1, 0xC2B2AE3D, 0x27D4EB2F };
+
+    private final AtomicIntegerArray counters;
+    private final int mask;
+    private final int sampleSize;
+    private final ReentrantLock resetLock = new ReentrantLock();
+    private int additions; // Aproximada (veja acima)
+
+    FrequencySketch(int capacity) {
+      int width = Integer.highestOneBit(Math.max(16, capacity) * 2 - 1) << 1;
+      this.counters = new AtomicIntegerArray(width * DEPTH);
+      this.mask = width - 1;
+      this.sampleSize = 10 * Math.max(16, capacity);
+    }
+
+    /**
+     * Soma 1 à frequência (saturando em MAX_COUNT, sem escrita se já saturado)
+     */
+    void increment(int hash) {
+      boolean added = false;
+      for (int row = 0; row < DEPTH; row++) {
+        int index = indexOf(hash, row);
+        if (counters.get(index) < MAX_COUNT) {
+          counters.accumulateAndGet(index, 1, (count, one) -> Math.min(MAX_COUNT, count + one));
+          added = true;
+        }
+      }
+      if (added && ++additions >= sampleSize && resetLock.tryLock()) {
+        try {
+          if (additions >= sampleSize) {
+            halve();
+          }
+        } finally {
+          resetLock.unlock();
+        }
+      }
+    }
+
+    int frequency(int hash) {
+      int min = MAX_COUNT;
+      for (int row = 0; row < DEPTH; row++) {
+        min = Math.min(min, counters.get(indexOf(hash, row)));
+      }
+      return min;
+    }
+
+    private int indexOf(int hash, int row) {
+      int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+      h ^= h >>> 15;
+      return row * (mask + 1) + (h & mask);
+    }
+
+    private void halve() {
+      for (int i = 0; i < counters.length(); i++) {
+        counters.set(i, counters.get(i) >>> 1);
+      }
+      additions = 0;
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package com.pablords.opensearch;
+
+import ai.djl.translate.TranslateException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agrupador de chamadas concorrentes de embed() em inferências em lote
+ *
+ * Cada chamada entra em uma fila; um despachante forma lotes e os envia ao
+ * modelo quando o lote atinge {@code maxBatchSize} ou quando o pedido mais
+ * antigo esperou {@code maxWait}. Cada chamador recebe a sua linha do lote.
+ *
+ * Textos idênticos em voo (mesmo texto normalizado) compartilham o mesmo
+ * future: só a primeira chamada entra na fila.
+ *
+ * A latência adicionada por chamada é limitada por {@code maxWait} (mais o
+ * tempo de uma passada do modelo), em troca de muito mais vazão sob carga.
+ */
+public class EmbeddingCoalescer {
+
+  /**
+   * Inferência em lote usada para cada grupo (ex.: EmbeddingModel.embedBatch)
+   */
+  public interface BatchEmbedder {
+    List<float[]> embedBatch(List<String> texts) throws TranslateException;
+  }
+
+  private final BatchEmbedder embedder;
+  private final int maxBatchSize;
+  private final long maxWaitNanos;
+
+  private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+  private final ConcurrentHashMap<String, CompletableFuture<float[]>> inFlight = new ConcurrentHashMap<>();
+  private final Thread dispatcher;
+  private final ExecutorService batchExecutor;
+  private volatile boolean running = true;
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder deduplicated = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder batchedTexts = new LongAdder();
+
+  /**
+   * @param embedder       Inferência em lote
+   * @param maxBatchSize   Máximo de textos por lote
+   * @param maxWaitMicros  Espera máxima do pedido mais antigo antes do envio
+   * @param parallelism    Lotes processados ao mesmo tempo
+   */
+  public EmbeddingCoalescer(BatchEmbedder embedder, int maxBatchSize, long maxWaitMicros, int parallelism) {
+    if (maxBatchSize <= 0 || maxWaitMicros < 0 || parallelism <= 0) {
+      throw new IllegalArgumentException("Configuração inválida: lote=" + maxBatchSize
+          + ", espera=" + maxWaitMicros + "µs, paralelismo=" + parallelism);
+    }
+    this.embedder = embedder;
+    this.maxBatchSize = maxBatchSize;
+    this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+
+    AtomicInteger counter = new AtomicInteger();
+    this.batchExecutor = Executors.newFixedThreadPool(parallelism, r -> {
+      Thread thread = new Thread(r, "embedding-batch-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.dispatcher = new Thread(this::dispatchLoop, "embedding-coalescer");
+    this.dispatcher.setDaemon(true);
+    this.dispatcher.start();
+  }
+
+  /**
+   * Enfileira o texto (ou reaproveita o pedido idêntico em voo)
+   */
+  public CompletableFuture<float[]> submit(String text) {
+    if (!running) {
+      return CompletableFuture.failedFuture(new IllegalStateException("Coalescer encerrado"));
+    }
+    requests.increment();
+    String key = text.trim().toLowerCase(Locale.ROOT);
+
+    CompletableFuture<float[]> created = new CompletableFuture<>();
+    CompletableFuture<float[]> existing = inFlight.putIfAbsent(key, created);
+    if (existing != null) {
+      deduplicated.increment();
+      return existing;
+    }
+    Request request = new Request(key, text, created, System.nanoTime());
+    queue.add(request);
+    if (!running && queue.remove(request)) {
+      // close() esvaziou a fila antes deste add: ninguém mais despacharia o pedido
+      fail(List.of(request), new IllegalStateException("Coalescer encerrado"));
+    }
+    return created;
+  }
+
+  /**
+   * Versão bloqueante de {@link #submit(String)}
+   */
+  public float[] embed(String text) throws TranslateException {
+    try {
+      return submit(text).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof TranslateException) {
+        throw (TranslateException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private void dispatchLoop() {
+    while (running) {
+      Request first;
+      try {
+        first = queue.take();
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      // Acumular até encher o lote ou estourar a espera do pedido mais antigo
+      List<Request> batch = new ArrayList<>(maxBatchSize);
+      batch.add(first);
+      long deadline = first.enqueuedNanos + maxWaitNanos;
+      try {
+        while (batch.size() < maxBatchSize) {
+          long remaining = deadline - System.nanoTime();
+          Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        running = false;
+      }
+
+      try {
+        batchExecutor.execute(() -> process(batch));
+      } catch (RejectedExecutionException e) {
+        fail(batch, new IllegalStateException("Coalescer encerrado"));
+      }
+    }
+  }
+
+  private void process(List<Request> batch) {
+    batches.increment();
+    batchedTexts.add(batch.size());
+
+    List<String> texts = new ArrayList<>(batch.size());
+    for (Request request : batch) {
+      texts.add(request.text);
+    }
+    try {
+      List<float[]> embeddings = embedder.embedBatch(texts);
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).future.complete(embeddings.get(i));
+      }
+    } catch (Exception e) {
+      fail(batch, e);
+    } finally {
+      for (Request request : batch) {
+        inFlight.remove(request.key, request.future);
+      }
+    }
+  }
+
+  private void fail(List<Request> batch, Exception cause) {
+    for (Request request : batch) {
+      request.future.completeExceptionally(cause);
+      inFlight.remove(request.key, request.future);
+    }
+  }
+
+  /**
+   * Tamanho médio dos lotes enviados ao modelo
+   */
+  public double averageBatchSize() {
+    long count = batches.sum();
+    return count == 0 ? 0.0 : (double) batchedTexts.sum() / count;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Coalescer: %d pedidos | %d deduplicados | %d lotes (média %.1f textos)"
+        + " | lote máx=%d, espera máx=%dµs",
+        requests.sum(), deduplicated.sum(), batches.sum(), averageBatchSize(),
+        maxBatchSize, TimeUnit.NANOSECONDS.toMicros(maxWaitNanos));
+  }
+
+  /**
+   * Para o despachante; pedidos ainda na fila falham
+   */
+  public void close() {
+    running = false;
+    dispatcher.interrupt();
+    batchExecutor.shutdown();
+    List<Request> pending = new ArrayList<>();
+    queue.drainTo(pending);
+    fail(pending, new IllegalStateException("Coalescer encerrado"));
+  }
+
+  private static class Request {
+    final String key;
+    final String text;
+    final CompletableFuture<float[]> future;
+    final long enqueuedNanos;
+
+    Request(String key, String text, CompletableFuture<float[]> future, long enqueuedNanos) {
+      this.key = key;
+      this.text = text;
+      this.future = future;
+      this.enqueuedNanos = enqueuedNanos;
+    }
+  }
+}
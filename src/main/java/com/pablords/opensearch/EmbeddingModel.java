@@ -1,197 +1,117 @@
 package com.pablords.opensearch;
 
-import ai.djl.Application;
-import ai.djl.MalformedModelException;
-import ai.djl.inference.Predictor;
-import ai.djl.repository.zoo.Criteria;
-import ai.djl.repository.zoo.ModelNotFoundException;
-import ai.djl.repository.zoo.ZooModel;
-import ai.djl.training.util.ProgressBar;
 import ai.djl.translate.TranslateException;
 
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Classe Helper para carregar um modelo de embedding e gerar vetores.
- * Otimizado para produção com cache LRU e processamento em batch.
+ * Modelo de embedding: transforma textos em vetores para o k-NN
+ *
+ * Implementações:
+ * - {@link DjlEmbeddingModel}: sentence-transformers via DJL/PyTorch (padrão)
+ * - {@link HashingEmbeddingModel}: hashing de n-gramas + projeção aleatória,
+ *   determinístico e sem código nativo (testes de carga offline)
+ *
+ * A interface cobre só a inferência. Cache, store persistente, coalescer e
+ * codificação dos vetores (com a calibração INT8) ficam em
+ * {@link CachedEmbeddingModel}, de quem as duas herdam.
  */
-public class EmbeddingModel {
+public interface EmbeddingModel extends AutoCloseable {
 
-    // Configuração do modelo
-    // OPÇÃO 1: MiniLM - Rápido, 384 dimensões (atual)
-    public static final String MODEL_NAME = "sentence-transformers/all-MiniLM-L6-v2";
-    public static final int VECTOR_DIMENSION = 384;
-    
-    // OPÇÃO 2: Multilingual - Melhor para português, 768 dimensões
-    // public static final String MODEL_NAME = "sentence-transformers/paraphrase-multilingual-mpnet-base-v2";
-    // public static final int VECTOR_DIMENSION = 768;
-    
-    // OPÇÃO 3: MPNet - Melhor qualidade inglês, 768 dimensões
-    // public static final String MODEL_NAME = "sentence-transformers/all-mpnet-base-v2";
-    // public static final int VECTOR_DIMENSION = 768;
-
-    private final ZooModel<String, float[]> model;
-    private final Predictor<String, float[]> predictor;
-    
-    // Cache LRU para embeddings frequentes
-    private final Map<String, float[]> embeddingCache;
-    private final int cacheSize;
+    // Campos de produto usados por padrão no embedding
+    String[] DEFAULT_EMBED_FIELDS = { "title" };
 
     /**
-     * Construtor com cache padrão de 1000 embeddings
+     * Identificador do modelo (faz parte da chave do store persistente)
      */
-    public EmbeddingModel() throws MalformedModelException, ModelNotFoundException, IOException {
-        this(1000);
-    }
-    
+    String getModelName();
+
     /**
-     * Construtor com tamanho de cache customizado
-     * @param cacheSize Número máximo de embeddings a manter em cache
+     * Dimensão dos vetores gerados (dimensão do campo k-NN do índice)
      */
-    public EmbeddingModel(int cacheSize) throws MalformedModelException, ModelNotFoundException, IOException {
-        System.out.println("Carregando modelo de embedding: " + MODEL_NAME);
-        this.cacheSize = cacheSize;
-        
-        // Inicializar cache LRU
-        this.embeddingCache = new LinkedHashMap<String, float[]>(cacheSize + 1, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
-                return size() > cacheSize;
-            }
-        };
-
-        Criteria<String, float[]> criteria = Criteria.builder()
-                .setTypes(String.class, float[].class)
-                .optApplication(Application.NLP.TEXT_EMBEDDING)
-                .optModelUrls("djl://ai.djl.huggingface.pytorch/" + MODEL_NAME)
-                .optEngine("PyTorch")
-                .optProgress(new ProgressBar())
-                .build();
-
-        this.model = criteria.loadModel();
-        this.predictor = model.newPredictor();
-
-        System.out.println("Modelo carregado com cache de " + cacheSize + " embeddings.");
-    }
+    int getDimension();
 
     /**
      * Transforma um texto em um vetor de embeddings (com cache)
      * @param text Texto para gerar embedding
      * @return Array de floats representando o embedding
      */
-    public float[] embed(String text) throws TranslateException {
-        if (text == null || text.trim().isEmpty()) {
-            throw new IllegalArgumentException("Texto não pode ser nulo ou vazio");
-        }
-        
-        // Normalizar texto para melhor hit no cache
-        String normalizedText = text.trim().toLowerCase();
-        
-        // Verificar cache primeiro
-        float[] cached = embeddingCache.get(normalizedText);
-        if (cached != null) {
-            return cached;
-        }
-        
-        // Gerar embedding se não estiver em cache
-        float[] embedding = predictor.predict(text);
-        
-        // Armazenar no cache
-        embeddingCache.put(normalizedText, embedding);
-        
-        return embedding;
-    }
-    
+    float[] embed(String text) throws TranslateException;
+
     /**
-     * Processa múltiplos textos em batch (mais eficiente)
+     * Processa múltiplos textos em lote
      * @param texts Lista de textos para processar
-     * @return Lista de embeddings correspondentes
+     * @return Lista de embeddings na mesma ordem dos textos
      */
-    public List<float[]> embedBatch(List<Map<String, String>> texts) throws TranslateException {
-        List<float[]> embeddings = new ArrayList<>(texts.size());
-        List<String> textsToProcess = new ArrayList<>();
-        List<Integer> indicesToProcess = new ArrayList<>();
-        
-        // Separar textos que já estão em cache dos que precisam ser processados
-        for (int i = 0; i < texts.size(); i++) {
-            Map<String, String> textMap = texts.get(i);
-            String text = textMap.get("title");
-            if (text == null || text.trim().isEmpty()) {
-                throw new IllegalArgumentException("Texto na posição " + i + " é nulo ou vazio");
-            }
-            
-            String normalizedText = text.trim().toLowerCase();
-            float[] cached = embeddingCache.get(normalizedText);
-            
-            if (cached != null) {
-                embeddings.add(cached);
-            } else {
-                embeddings.add(null); // Placeholder
-                textsToProcess.add(text);
-                indicesToProcess.add(i);
-            }
-        }
-        
-        // Processar textos não cacheados
-        // TODO: Implementar batch prediction real quando disponível no DJL
-        // Por enquanto, processa um por um
-        for (int i = 0; i < textsToProcess.size(); i++) {
-            String text = textsToProcess.get(i);
-            int originalIndex = indicesToProcess.get(i);
-            
-            float[] embedding = predictor.predict(text);
-            embeddings.set(originalIndex, embedding);
-            
-            // Adicionar ao cache
-            embeddingCache.put(text.trim().toLowerCase(), embedding);
+    List<float[]> embedBatch(List<String> texts) throws TranslateException;
+
+    /**
+     * Gera embeddings de produtos a partir dos campos escolhidos
+     *
+     * Os campos presentes são concatenados na ordem dada (ex.: "title",
+     * "description"); campos ausentes ou vazios são ignorados.
+     *
+     * @param products Lista de produtos (Map campo → valor)
+     * @param fields   Campos a embutir; vazio usa {@link #DEFAULT_EMBED_FIELDS}
+     * @return Lista de embeddings na mesma ordem dos produtos
+     */
+    default List<float[]> embedProducts(List<Map<String, String>> products, String... fields)
+            throws TranslateException {
+        List<String> texts = new ArrayList<>(products.size());
+        for (Map<String, String> product : products) {
+            texts.add(productText(product, fields));
         }
-        
-        return embeddings;
+        return embedBatch(texts);
     }
-    
+
     /**
-     * Limpa o cache de embeddings
+     * Texto de um produto a partir dos campos escolhidos (vazio usa
+     * {@link #DEFAULT_EMBED_FIELDS}), como usado por {@link #embedProducts}
      */
-    public void clearCache() {
-        embeddingCache.clear();
-        System.out.println("Cache de embeddings limpo.");
+    static String productText(Map<String, String> product, String... fields) {
+        String[] selected = fields.length > 0 ? fields : DEFAULT_EMBED_FIELDS;
+        StringBuilder text = new StringBuilder();
+        for (String field : selected) {
+            String value = product.get(field);
+            if (value != null && !value.trim().isEmpty()) {
+                if (text.length() > 0) {
+                    text.append(". ");
+                }
+                text.append(value.trim());
+            }
+        }
+        return text.toString();
     }
-    
+
     /**
-     * Retorna estatísticas do cache
+     * Máximo de textos por inferência em lote
      */
-    public CacheStats getCacheStats() {
-        return new CacheStats(embeddingCache.size(), cacheSize);
-    }
-    
+    int getBatchSize();
+
+    @Override
+    void close();
+
     /**
-     * Classe para estatísticas do cache
+     * Cria o modelo configurado nas propriedades de sistema
+     *
+     * - -Dembedding.model=djl (padrão) ou hashing
+     * - -Dembedding.dimension: dimensão do modelo hashing (padrão 384)
+     *
+     * @param cacheSize Número máximo de embeddings a manter em cache
      */
-    public static class CacheStats {
-        public final int currentSize;
-        public final int maxSize;
-        public final double usagePercentage;
-        
-        public CacheStats(int currentSize, int maxSize) {
-            this.currentSize = currentSize;
-            this.maxSize = maxSize;
-            this.usagePercentage = (double) currentSize / maxSize * 100;
+    static CachedEmbeddingModel fromSystemProperties(int cacheSize) throws Exception {
+        String type = System.getProperty("embedding.model", "djl");
+        switch (type) {
+            case "djl":
+                return new DjlEmbeddingModel(cacheSize);
+            case "hashing":
+                return new HashingEmbeddingModel(cacheSize,
+                        Integer.getInteger("embedding.dimension", DjlEmbeddingModel.VECTOR_DIMENSION));
+            default:
+                throw new IllegalArgumentException("Modelo de embedding desconhecido: " + type
+                        + " (use djl ou hashing)");
         }
-        
-        @Override
-        public String toString() {
-            return String.format("Cache: %d/%d embeddings (%.1f%% usado)", 
-                currentSize, maxSize, usagePercentage);
-        }
-    }
-
-    public void close() {
-        this.predictor.close();
-        this.model.close();
-        this.embeddingCache.clear();
     }
-}
\ No newline at end of file
+}
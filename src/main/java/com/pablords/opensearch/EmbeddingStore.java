@@ -0,0 +1,407 @@
+package com.pablords.opensearch;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Armazenamento persistente de embeddings em arquivo mapeado em memória
+ *
+ * Sobrevive a reinícios e reindexações: um produto cujo texto não mudou
+ * nunca passa pelo modelo de novo.
+ *
+ * FORMATO (little-endian, somente append):
+ * - Cabeçalho de 64 bytes: magic, versão, dimensão, bytes por linha,
+ *   número de linhas gravadas, codificação e escala INT8
+ * - Linhas de largura fixa: chave (long) + verificação (long) + vetor
+ *   codificado pelo {@link VectorCodec} (FLOAT32, FLOAT16 ou INT8)
+ *
+ * A chave é um hash de 64 bits de (nome do modelo, texto normalizado), então
+ * trocar de modelo nunca reaproveita vetores antigos. A verificação é um
+ * segundo hash, independente, do texto (String.hashCode + comprimento): se
+ * duas chaves colidem, a linha não bate e a consulta vira miss em vez de
+ * devolver o vetor de outro texto. O índice chave → linha é uma tabela de
+ * endereçamento aberto em memória, reconstruída na abertura a partir da
+ * coluna de chaves.
+ *
+ * Durabilidade: o contador de linhas no cabeçalho só avança depois de as
+ * linhas serem forçadas ao disco (a cada {@value #PUBLISH_ROWS} linhas e no
+ * flush/close). Numa queda, as linhas ainda não publicadas são perdidas,
+ * nunca lidas pela metade.
+ *
+ * O store é um cache: se o arquivo existente não bate com a configuração
+ * (outra versão do formato, dimensão ou codificação), ele é renomeado para
+ * .incompatible e um store vazio é criado no lugar, sem abortar a carga.
+ *
+ * Limite: o arquivo é mapeado em um único buffer (até 2 GB, ~1,3 milhão de
+ * vetores FLOAT32 de 384 dimensões, ~5,4 milhões em INT8).
+ */
+public class EmbeddingStore implements AutoCloseable {
+
+  private static final int MAGIC = 0x53424D45; // "EMBS"
+  private static final int VERSION = 3;
+  private static final int HEADER_BYTES = 64;
+  private static final int COUNT_OFFSET = 16;
+  private static final int CODEC_OFFSET = 24;
+  private static final int SCALE_OFFSET = 28;
+  private static final int INITIAL_ROWS = 1024;
+  private static final int KEY_BYTES = 2 * Long.BYTES; // Chave + verificação
+  private static final int PUBLISH_ROWS = 1024; // Linhas entre forces do contador
+
+  private final Path path;
+  private final String modelName;
+  private final int dimension;
+  private final VectorCodec codec;
+  private final int rowBytes;
+  private final FileChannel channel;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private MappedByteBuffer buffer;
+  private int capacity; // Linhas que cabem no mapeamento atual
+  private int count;
+  private int published; // Linhas já contadas no cabeçalho (e forçadas ao disco)
+
+  // Índice: chave → linha (chave 0 = posição vazia)
+  private long[] indexKeys;
+  private int[] indexRows;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder collisions = new LongAdder();
+
+  private EmbeddingStore(Path path, String modelName, VectorCodec codec, FileChannel channel) {
+    this.path = path;
+    this.modelName = modelName;
+    this.dimension = codec.getDimension();
+    this.codec = codec;
+    this.rowBytes = KEY_BYTES + codec.bytesPerVector();
+    this.channel = channel;
+  }
+
+  /**
+   * Abre (ou cria) o store
+   *
+   * @param path      Arquivo do store
+   * @param modelName Modelo que gerou os vetores (faz parte da chave)
+   * @param codec     Codificação das linhas (um arquivo existente com outra
+   *                  codificação ou dimensão é descartado e recriado)
+   */
+  public static EmbeddingStore open(Path path, String modelName, VectorCodec codec) throws IOException {
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    String incompatible = incompatibility(path, codec);
+    if (incompatible != null) {
+      Path old = path.resolveSibling(path.getFileName() + ".incompatible");
+      System.err.println("⚠️  Embedding store " + path + " " + incompatible + ": movido para " + old
+          + " e recriado vazio");
+      Files.move(path, old, StandardCopyOption.REPLACE_EXISTING);
+    }
+    FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    EmbeddingStore store = new EmbeddingStore(path, modelName, codec, channel);
+    try {
+      store.load();
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    return store;
+  }
+
+  private void load() throws IOException {
+    boolean fresh = channel.size() < HEADER_BYTES;
+    int storedCount = 0;
+    if (!fresh) {
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      storedCount = (int) header.getLong(COUNT_OFFSET); // Compatibilidade já verificada em open()
+    }
+
+    remap(Math.max(INITIAL_ROWS, Integer.highestOneBit(Math.max(1, storedCount)) << 1));
+    if (fresh) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, VERSION);
+      buffer.putInt(8, dimension);
+      buffer.putInt(12, rowBytes);
+      buffer.putLong(COUNT_OFFSET, 0L);
+      buffer.putInt(CODEC_OFFSET, codec.getType().ordinal());
+      buffer.putFloat(SCALE_OFFSET, codec.getScale());
+    }
+
+    // Reconstruir o índice a partir da coluna de chaves
+    this.count = storedCount;
+    this.published = storedCount;
+    initIndex(Math.max(INITIAL_ROWS, storedCount));
+    for (int row = 0; row < storedCount; row++) {
+      indexInsert(buffer.getLong(rowOffset(row)), row);
+    }
+  }
+
+  /**
+   * Motivo pelo qual o arquivo existente não serve para a codificação pedida,
+   * ou null se serve (ou se ainda não existe)
+   */
+  private static String incompatibility(Path path, VectorCodec codec) throws IOException {
+    if (!Files.exists(path) || Files.size(path) < HEADER_BYTES) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      if (header.getInt(0) != MAGIC) {
+        return "não é um embedding store";
+      }
+      if (header.getInt(4) != VERSION) {
+        return "é da versão " + header.getInt(4) + " do formato (atual: " + VERSION + ")";
+      }
+      if (header.getInt(8) != codec.getDimension()) {
+        return "tem dimensão " + header.getInt(8) + ", esperado " + codec.getDimension();
+      }
+      int type = header.getInt(CODEC_OFFSET);
+      if (type < 0 || type >= VectorCodec.Type.values().length) {
+        return "tem codificação desconhecida (" + type + ")";
+      }
+      VectorCodec stored = codecOf(header);
+      if (stored.getType() != codec.getType() || stored.getScale() != codec.getScale()
+          || header.getInt(12) != KEY_BYTES + codec.bytesPerVector()) {
+        return "foi gravado com " + stored + ", esperado " + codec;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Vetor armazenado para o texto (já normalizado) ou null
+   */
+  public float[] get(String normalizedText) {
+    long key = keyOf(modelName, normalizedText);
+    lock.readLock().lock();
+    try {
+      int row = indexFind(key);
+      if (row < 0) {
+        misses.increment();
+        return null;
+      }
+      if (buffer.getLong(rowOffset(row) + Long.BYTES) != checkOf(normalizedText)) {
+        collisions.increment(); // Mesma chave, outro texto
+        misses.increment();
+        return null;
+      }
+      hits.increment();
+      return codec.decode(buffer, rowOffset(row) + KEY_BYTES);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Acrescenta o vetor do texto (já normalizado); ignorado se já existir
+   */
+  public void put(String normalizedText, float[] vector) {
+    if (vector.length != dimension) {
+      throw new IllegalArgumentException("Vetor com dimensão " + vector.length + ", esperado " + dimension);
+    }
+    long key = keyOf(modelName, normalizedText);
+    lock.writeLock().lock();
+    try {
+      if (indexFind(key) >= 0) {
+        return;
+      }
+      if (count == capacity) {
+        remap(capacity * 2);
+      }
+
+      int offset = rowOffset(count);
+      buffer.putLong(offset, key);
+      buffer.putLong(offset + Long.BYTES, checkOf(normalizedText));
+      codec.encode(vector, buffer, offset + KEY_BYTES);
+      indexInsert(key, count);
+      count++;
+      if (count - published >= PUBLISH_ROWS) {
+        publish();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Falha ao expandir o embedding store " + path, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    return count;
+  }
+
+  public VectorCodec codec() {
+    return codec;
+  }
+
+  /**
+   * Codificação gravada em um store existente (null se o arquivo não existe
+   * ou não é um store), para reaproveitar a calibração INT8 entre execuções
+   */
+  public static VectorCodec readCodec(Path path) throws IOException {
+    if (!Files.exists(path) || Files.size(path) < HEADER_BYTES) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      int type = header.getInt(CODEC_OFFSET);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+          || type < 0 || type >= VectorCodec.Type.values().length) {
+        return null;
+      }
+      return codecOf(header);
+    }
+  }
+
+  private static VectorCodec codecOf(MappedByteBuffer header) {
+    int dimension = header.getInt(8);
+    VectorCodec.Type type = VectorCodec.Type.values()[header.getInt(CODEC_OFFSET)];
+    switch (type) {
+      case FLOAT16:
+        return VectorCodec.float16(dimension);
+      case INT8:
+        return VectorCodec.int8(dimension, header.getFloat(SCALE_OFFSET));
+      default:
+        return VectorCodec.float32(dimension);
+    }
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Chaves repetidas com texto diferente (consultas que viraram miss)
+   */
+  public long collisionCount() {
+    return collisions.sum();
+  }
+
+  /**
+   * Força as linhas no disco e publica o contador no cabeçalho
+   */
+  public void flush() {
+    lock.writeLock().lock();
+    try {
+      publish();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Linhas primeiro, contador depois: o cabeçalho nunca conta uma linha que
+   * não chegou ao disco (chamado com o lock de escrita)
+   */
+  private void publish() {
+    if (count == published) {
+      return;
+    }
+    buffer.force();
+    buffer.putLong(COUNT_OFFSET, count);
+    buffer.force();
+    published = count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+    channel.close();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Embedding store: %d vetores %s em %s | hits=%d misses=%d",
+        count, codec, path, hits.sum(), misses.sum());
+  }
+
+  private int rowOffset(int row) {
+    return HEADER_BYTES + row * rowBytes;
+  }
+
+  private void remap(int rows) throws IOException {
+    long bytes = HEADER_BYTES + (long) rows * rowBytes;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IOException("Embedding store atingiu o limite de 2 GB: " + path);
+    }
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    capacity = rows;
+  }
+
+  private void initIndex(int expectedRows) {
+    int size = Integer.highestOneBit(Math.max(16, expectedRows) * 2 - 1) << 1;
+    indexKeys = new long[size];
+    indexRows = new int[size];
+  }
+
+  private int indexFind(long key) {
+    int mask = indexKeys.length - 1;
+    int i = (int) key & mask;
+    while (indexKeys[i] != 0) {
+      if (indexKeys[i] == key) {
+        return indexRows[i];
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void indexInsert(long key, int row) {
+    if ((count + 1) * 2 > indexKeys.length) {
+      long[] oldKeys = indexKeys;
+      int[] oldRows = indexRows;
+      indexKeys = new long[oldKeys.length * 2];
+      indexRows = new int[oldRows.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != 0) {
+          indexPut(oldKeys[i], oldRows[i]);
+        }
+      }
+    }
+    indexPut(key, row);
+  }
+
+  private void indexPut(long key, int row) {
+    int mask = indexKeys.length - 1;
+    int i = (int) key & mask;
+    while (indexKeys[i] != 0 && indexKeys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    indexKeys[i] = key;
+    indexRows[i] = row;
+  }
+
+  /**
+   * Verificação independente da chave: hash do String + comprimento
+   */
+  private static long checkOf(String normalizedText) {
+    return ((long) normalizedText.length() << 32) | (normalizedText.hashCode() & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Hash de 64 bits (FNV-1a sobre UTF-8 + finalizador do SplitMix64)
+   * de nome do modelo e texto; nunca retorna 0 (marca de posição vazia)
+   */
+  static long keyOf(String modelName, String normalizedText) {
+    long h = Hashing.fnv(Hashing.FNV_OFFSET, modelName.getBytes(StandardCharsets.UTF_8));
+    h = Hashing.fnv(h, 0xFF); // Separador entre modelo e texto
+    h = Hashing.mix(Hashing.fnv(h, normalizedText.getBytes(StandardCharsets.UTF_8)));
+    return h == 0 ? 1 : h;
+  }
+}
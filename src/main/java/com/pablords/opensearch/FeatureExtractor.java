@@ -1,7 +1,10 @@
 package com.pablords.opensearch;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.function.ToDoubleFunction;
 
 /**
  * Extrator de Features para Learning to Rank (LTR)
@@ -9,8 +12,121 @@ import java.util.function.ToDoubleFunction;
  */
 public class FeatureExtractor {
 
+  public static final String DEFAULT_BRANDS_FILE = "data/brands.txt";
+
+  // Marcas usadas quando o dicionário não está disponível em disco
+  private static final String[] FALLBACK_BRANDS = {
+      "samsung", "apple", "sony", "lg", "dell", "hp", "lenovo", "asus",
+      "nike", "adidas", "puma", "reebok", "levi", "calvin", "tommy",
+      "microsoft", "google", "amazon", "netflix", "spotify"
+  };
+
+  // Dicionário de marcas conhecidas (Aho-Corasick, carregado uma vez)
+  private final DictionaryMatcher brandMatcher;
+
+  /**
+   * Construtor padrão: carrega o dicionário de marcas de data/brands.txt
+   */
+  public FeatureExtractor() {
+    this(loadBrands(Paths.get(DEFAULT_BRANDS_FILE)));
+  }
+
+  /**
+   * Construtor com dicionário de marcas customizado
+   */
+  public FeatureExtractor(DictionaryMatcher brandMatcher) {
+    this.brandMatcher = brandMatcher;
+  }
+
+  private static DictionaryMatcher loadBrands(Path path) {
+    if (Files.exists(path)) {
+      try {
+        DictionaryMatcher matcher = DictionaryMatcher.fromFile(path, true);
+        System.out.println("✓ Dicionário de marcas carregado: " + matcher.size() + " entradas");
+        return matcher;
+      } catch (IOException e) {
+        System.err.println("⚠️  Erro ao carregar marcas de " + path + ": " + e.getMessage());
+      }
+    }
+    DictionaryMatcher.Builder builder = DictionaryMatcher.builder().wholeWords(true);
+    for (String brand : FALLBACK_BRANDS) {
+      builder.add(brand);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Analisa a query uma única vez (termos, flags e marca conhecida)
+   */
+  public QueryContext analyzeQuery(String query) {
+    return QueryContext.of(query, brandMatcher);
+  }
+
+  /**
+   * Extrai as features de todos os candidatos de uma query (caminho principal)
+   * 
+   * As estatísticas relativas (min/max de scores, popularidade e CTR) são
+   * calculadas uma única vez por query, mantendo a extração linear no número
+   * de candidatos.
+   * 
+   * @param candidates Candidatos retornados pelo retrieval
+   * @param query      Query já analisada (uma vez por busca)
+   * @return Matriz de features (uma linha por candidato, na mesma ordem)
+   */
+  public FeatureMatrix extractFeatures(List<SearchResult> candidates, QueryContext query) {
+    CandidateStats stats = CandidateStats.of(candidates);
+    FeatureMatrix matrix = new FeatureMatrix(FeatureSchema.DEFAULT, candidates.size());
+    FieldHits hits = new FieldHits(query);
+    for (int i = 0; i < candidates.size(); i++) {
+      extractInto(candidates.get(i), i, query, stats, hits, matrix.row(i));
+    }
+    return matrix;
+  }
+
+  /**
+   * Extrai as features completas de um subconjunto dos candidatos
+   * (ex.: sobreviventes do primeiro estágio da cascata)
+   * 
+   * @param candidates Todos os candidatos (mesma ordem das estatísticas)
+   * @param rows       Posições dos candidatos a extrair
+   * @param query      Query já analisada
+   * @param stats      Estatísticas de todos os candidatos
+   * @return Matriz com uma linha por posição em rows
+   */
+  public FeatureMatrix extractFeatures(List<SearchResult> candidates, int[] rows, QueryContext query,
+      CandidateStats stats) {
+    FeatureMatrix matrix = new FeatureMatrix(FeatureSchema.DEFAULT, rows.length);
+    FieldHits hits = new FieldHits(query);
+    for (int i = 0; i < rows.length; i++) {
+      extractInto(candidates.get(rows[i]), rows[i], query, stats, hits, matrix.row(i));
+    }
+    return matrix;
+  }
+
   /**
-   * Extrai todas as features de um documento candidato
+   * Extrai apenas as features baratas de todos os candidatos
+   * (relevância do retrieval + popularidade); as demais ficam zeradas
+   */
+  public FeatureMatrix extractCheapFeatures(List<SearchResult> candidates, CandidateStats stats) {
+    FeatureMatrix matrix = new FeatureMatrix(FeatureSchema.DEFAULT, candidates.size());
+    for (int i = 0; i < candidates.size(); i++) {
+      extractCheapInto(candidates.get(i), i, stats, matrix.row(i));
+    }
+    return matrix;
+  }
+
+  /**
+   * Extrai as features de todos os candidatos a partir do texto da query
+   */
+  public FeatureMatrix extractFeatures(List<SearchResult> candidates, String query) {
+    return extractFeatures(candidates, analyzeQuery(query));
+  }
+
+  /**
+   * Extrai todas as features de um documento candidato isolado
+   * 
+   * Recalcula as estatísticas do conjunto a cada chamada; para muitos
+   * candidatos use {@link #extractFeatures(List, QueryContext)}.
    * 
    * @param result     Resultado da busca híbrida
    * @param query      Texto da query do usuário
@@ -18,114 +134,129 @@ public class FeatureExtractor {
    * @return Vetor de features
    */
   public FeatureVector extractFeatures(SearchResult result, String query, List<SearchResult> allResults) {
-    String title = result.getTitle().toLowerCase();
-    String description = result.getDescription().toLowerCase();
-    String category = result.getCategory().toLowerCase();
-    String queryLower = query.toLowerCase();
+    int index = allResults.indexOf(result);
+    if (index < 0) {
+      allResults = new ArrayList<>(allResults);
+      allResults.add(result);
+      index = allResults.size() - 1;
+    }
+    return extractFeatures(result, index, analyzeQuery(query), CandidateStats.of(allResults));
+  }
 
-    FeatureVector.Builder builder = FeatureVector.builder();
+  /**
+   * Extrai as features de um candidato usando as estatísticas pré-calculadas
+   * 
+   * @param result Resultado da busca híbrida
+   * @param index  Posição do candidato nas estatísticas
+   * @param query  Query já analisada
+   * @param stats  Estatísticas do conjunto de candidatos
+   * @return Vetor de features
+   */
+  public FeatureVector extractFeatures(SearchResult result, int index, QueryContext query, CandidateStats stats) {
+    FeatureVector features = new FeatureVector(FeatureSchema.DEFAULT);
+    extractInto(result, index, query, stats, new FieldHits(query), features);
+    return features;
+  }
 
-    // ============================================================
-    // GRUPO 1: FEATURES DE RELEVÂNCIA (BM25 + Semântica)
-    // ============================================================
+  /**
+   * Escreve as features do candidato diretamente no vetor de destino
+   * (tipicamente uma linha da matriz de features da query)
+   */
+  private void extractInto(SearchResult result, int index, QueryContext query, CandidateStats stats,
+      FieldHits hits, FeatureVector features) {
+    String title = result.getTitle();
+    String description = result.getDescription();
 
-    // Feature 1-2: Scores originais normalizados
-    builder.add("bm25_score", normalizeScore(result.getBm25Score(), allResults, SearchResult::getBm25Score));
-    builder.add("knn_score", normalizeScore(result.getKnnScore(), allResults, SearchResult::getKnnScore));
+    // Uma única varredura por campo para todos os termos e a frase da query;
+    // o campo só é normalizado (num buffer reutilizado) para esse match
+    query.scan(TextAnalyzer.analyzeInto(title, hits.buffer), hits.title);
+    query.scan(TextAnalyzer.analyzeInto(description, hits.buffer), hits.description);
+    query.scan(TextAnalyzer.analyzeInto(result.getCategory(), hits.buffer), hits.category);
 
-    // Feature 3: Score híbrido (média ponderada)
-    builder.add("hybrid_score", result.getBm25Score() * 0.4 + result.getKnnScore() * 0.6);
+    // Grupos 1 e 5: features baratas (retrieval + popularidade)
+    extractCheapInto(result, index, stats, features);
 
     // ============================================================
     // GRUPO 2: FEATURES DE MATCH TEXTUAL
     // ============================================================
 
     // Feature 4: Exact match no título
-    builder.add("exact_match_title", title.contains(queryLower));
+    features.set(FeatureSchema.EXACT_MATCH_TITLE, flag(query.phraseMatched(hits.title)));
 
     // Feature 5: Exact match na descrição
-    builder.add("exact_match_description", description.contains(queryLower));
+    features.set(FeatureSchema.EXACT_MATCH_DESCRIPTION, flag(query.phraseMatched(hits.description)));
 
     // Feature 6: Exact match na categoria
-    builder.add("exact_match_category", category.contains(queryLower));
+    features.set(FeatureSchema.EXACT_MATCH_CATEGORY, flag(query.phraseMatched(hits.category)));
 
     // Feature 7: Term coverage (% de termos da query que aparecem no documento)
-    builder.add("term_coverage", calculateTermCoverage(queryLower, title + " " + description));
+    features.set(FeatureSchema.TERM_COVERAGE, calculateTermCoverage(query, hits));
 
     // Feature 8: Query length (queries curtas vs longas)
-    builder.add("query_length", queryLower.split("\\s+").length);
+    features.set(FeatureSchema.QUERY_LENGTH, query.getTermCount());
 
     // ============================================================
     // GRUPO 3: FEATURES DE QUALIDADE DO TEXTO
     // ============================================================
 
     // Feature 9: Title length (títulos muito curtos ou longos são suspeitos)
-    builder.add("title_length", title.length());
+    features.set(FeatureSchema.TITLE_LENGTH, title.length());
 
     // Feature 10: Description length
-    builder.add("description_length", description.length());
+    features.set(FeatureSchema.DESCRIPTION_LENGTH, description.length());
 
     // Feature 11: Ratio query/title length
-    double titleLenRatio = queryLower.length() / Math.max(1.0, title.length());
-    builder.add("query_title_ratio", Math.min(2.0, titleLenRatio)); // Cap at 2.0
+    double titleLenRatio = query.getRawQuery().length() / Math.max(1.0, title.length());
+    features.set(FeatureSchema.QUERY_TITLE_RATIO, Math.min(2.0, titleLenRatio)); // Cap at 2.0
 
     // ============================================================
     // GRUPO 4: FEATURES DE POSIÇÃO/CONTEXTO
     // ============================================================
 
     // Feature 12: First word match (primeira palavra da query aparece no título?)
-    String firstWord = queryLower.split("\\s+")[0];
-    builder.add("first_word_match", title.contains(firstWord));
+    features.set(FeatureSchema.FIRST_WORD_MATCH,
+        flag(query.getTermCount() > 0 && query.termMatched(hits.title, 0)));
 
     // Feature 13: Has numbers (queries com números geralmente querem match exato)
-    builder.add("query_has_numbers", queryLower.matches(".*\\d+.*"));
-    builder.add("title_has_numbers", title.matches(".*\\d+.*"));
+    features.set(FeatureSchema.QUERY_HAS_NUMBERS, flag(query.hasNumbers()));
+    features.set(FeatureSchema.TITLE_HAS_NUMBERS, flag(TextAnalyzer.containsDigit(title)));
 
     // Feature 14: Brand detection (marca conhecida na query?)
-    builder.add("has_known_brand", detectKnownBrand(queryLower));
+    features.set(FeatureSchema.HAS_KNOWN_BRAND, flag(query.hasKnownBrand()));
+  }
+
+  /**
+   * Features baratas: dependem apenas dos scores de retrieval e dos sinais
+   * numéricos do documento, sem análise de texto
+   */
+  private void extractCheapInto(SearchResult result, int index, CandidateStats stats, FeatureVector features) {
+    // ============================================================
+    // GRUPO 1: FEATURES DE RELEVÂNCIA (BM25 + Semântica)
+    // ============================================================
+
+    // Feature 1-2: Scores originais normalizados
+    features.set(FeatureSchema.BM25_SCORE, stats.normalizeBm25(result.getBm25Score()));
+    features.set(FeatureSchema.KNN_SCORE, stats.normalizeKnn(result.getKnnScore()));
+
+    // Feature 3: Score híbrido (fusão das pernas BM25 e k-NN)
+    features.set(FeatureSchema.HYBRID_SCORE, stats.normalizeFused(result.getFusedScore()));
 
     // ============================================================
     // GRUPO 5: FEATURES DE POPULARIDADE (REAIS DO DATASET)
     // ============================================================
     
     // Feature 15: Popularidade (clicks reais do produto) - NORMALIZADA
-    double popularity = getDoubleFromSource(result.getSource(), "popularity", 1000.0);
-    double normalizedPopularity = normalizePopularity(popularity, allResults);
-    builder.add("popularity", normalizedPopularity);
+    features.set(FeatureSchema.POPULARITY, stats.normalizedPopularity(index));
 
     // Feature 16: Qualidade (rating real do produto) - NORMALIZADA para 0-1
-    double quality = getDoubleFromSource(result.getSource(), "quality", 4.0);
-    double normalizedQuality = normalizeQuality(quality);
-    builder.add("quality", normalizedQuality);
+    features.set(FeatureSchema.QUALITY, normalizeQuality(stats.quality(index)));
 
     // Feature 17: Click-through rate real - NORMALIZADA
-    double ctr = getDoubleFromSource(result.getSource(), "ctr", 0.05);
-    double normalizedCtr = normalizeCtr(ctr, allResults);
-    builder.add("ctr", normalizedCtr);
-
-    return builder.build();
+    features.set(FeatureSchema.CTR, stats.normalizedCtr(index));
   }
 
-  /**
-   * Normaliza popularidade baseada no conjunto de resultados
-   */
-  private double normalizePopularity(double popularity, List<SearchResult> allResults) {
-    if (allResults.isEmpty()) return 0.5;
-    
-    // Extrair popularidades de todos os resultados
-    double maxPop = allResults.stream()
-        .mapToDouble(r -> getDoubleFromSource(r.getSource(), "popularity", 1000.0))
-        .max()
-        .orElse(10000.0);
-    
-    double minPop = allResults.stream()
-        .mapToDouble(r -> getDoubleFromSource(r.getSource(), "popularity", 1000.0))
-        .min()
-        .orElse(100.0);
-    
-    if (maxPop - minPop < 1.0) return 0.5;
-    
-    return (popularity - minPop) / (maxPop - minPop);
+  private static double flag(boolean value) {
+    return value ? 1.0 : 0.0;
   }
 
   /**
@@ -137,104 +268,40 @@ public class FeatureExtractor {
     return Math.max(0.0, Math.min(1.0, (quality - 3.0) / 2.0));
   }
 
-  /**
-   * Normaliza CTR baseada no conjunto de resultados
-   */
-  private double normalizeCtr(double ctr, List<SearchResult> allResults) {
-    if (allResults.isEmpty()) return 0.5;
-    
-    // Extrair CTRs de todos os resultados
-    double maxCtr = allResults.stream()
-        .mapToDouble(r -> getDoubleFromSource(r.getSource(), "ctr", 0.05))
-        .max()
-        .orElse(0.20);
-    
-    double minCtr = allResults.stream()
-        .mapToDouble(r -> getDoubleFromSource(r.getSource(), "ctr", 0.05))
-        .min()
-        .orElse(0.01);
-    
-    if (maxCtr - minCtr < 0.001) return 0.5;
-    
-    return (ctr - minCtr) / (maxCtr - minCtr);
-  }
-
-  /**
-   * Extrai um valor numérico do source do documento OpenSearch
-   */
-  private double getDoubleFromSource(Map<String, Object> source, String field, double defaultValue) {
-    if (source == null || !source.containsKey(field)) {
-      return defaultValue;
-    }
-    
-    Object value = source.get(field);
-    if (value instanceof Number) {
-      return ((Number) value).doubleValue();
-    }
-    
-    // Tentar converter string para número
-    if (value instanceof String) {
-      try {
-        return Double.parseDouble((String) value);
-      } catch (NumberFormatException e) {
-        return defaultValue;
-      }
-    }
-    
-    return defaultValue;
-  }
-
-  /**
-   * Normaliza um score entre 0 e 1 baseado nos valores do conjunto
-   */
-  private double normalizeScore(double score, List<SearchResult> allResults,
-      ToDoubleFunction<SearchResult> scoreExtractor) {
-    if (allResults.isEmpty())
-      return 0.0;
-
-    double max = allResults.stream()
-        .mapToDouble(scoreExtractor)
-        .max()
-        .orElse(1.0);
-
-    double min = allResults.stream()
-        .mapToDouble(scoreExtractor)
-        .min()
-        .orElse(0.0);
-
-    if (max - min < 0.001)
-      return 0.5; // Evitar divisão por zero
-
-    return (score - min) / (max - min);
-  }
-
   /**
    * Calcula percentual de termos da query que aparecem no documento
+   * (título ou descrição), a partir dos hits já contados por campo
    */
-  private double calculateTermCoverage(String query, String document) {
-    String[] queryTerms = query.split("\\s+");
-    if (queryTerms.length == 0)
+  private double calculateTermCoverage(QueryContext query, FieldHits hits) {
+    int termCount = query.getTermCount();
+    if (termCount == 0)
       return 0.0;
 
-    long matchingTerms = Arrays.stream(queryTerms)
-        .filter(term -> document.contains(term))
-        .count();
+    int matchingTerms = 0;
+    for (int term = 0; term < termCount; term++) {
+      if (query.termMatched(hits.title, term) || query.termMatched(hits.description, term)) {
+        matchingTerms++;
+      }
+    }
 
-    return (double) matchingTerms / queryTerms.length;
+    return (double) matchingTerms / termCount;
   }
 
   /**
-   * Detecta se a query contém uma marca conhecida
+   * Contadores de hits por campo e buffer de normalização, reutilizados
+   * entre os candidatos da query
    */
-  private boolean detectKnownBrand(String query) {
-    String[] knownBrands = {
-        "samsung", "apple", "sony", "lg", "dell", "hp", "lenovo", "asus",
-        "nike", "adidas", "puma", "reebok", "levi", "calvin", "tommy",
-        "microsoft", "google", "amazon", "netflix", "spotify"
-    };
-
-    return Arrays.stream(knownBrands)
-        .anyMatch(query::contains);
+  private static class FieldHits {
+    final DictionaryMatcher.Hits title;
+    final DictionaryMatcher.Hits description;
+    final DictionaryMatcher.Hits category;
+    final StringBuilder buffer = new StringBuilder(256);
+
+    FieldHits(QueryContext query) {
+      this.title = query.newHits();
+      this.description = query.newHits();
+      this.category = query.newHits();
+    }
   }
 
   /**
@@ -244,35 +311,162 @@ public class FeatureExtractor {
     System.out.println("\n📊 Features Extraídas:");
     System.out.println("──────────────────────────────────────────────");
 
-    Map<String, Double> allFeatures = features.getAll();
-
     // Agrupar por tipo
     System.out.println("🎯 Relevância:");
-    printFeatureGroup(allFeatures, "bm25_score", "knn_score", "hybrid_score");
+    printFeatureGroup(features, "bm25_score", "knn_score", "hybrid_score");
 
     System.out.println("\n📝 Match Textual:");
-    printFeatureGroup(allFeatures, "exact_match_title", "exact_match_description",
+    printFeatureGroup(features, "exact_match_title", "exact_match_description",
         "exact_match_category", "term_coverage", "query_length");
 
     System.out.println("\n📏 Qualidade do Texto:");
-    printFeatureGroup(allFeatures, "title_length", "description_length", "query_title_ratio");
+    printFeatureGroup(features, "title_length", "description_length", "query_title_ratio");
 
     System.out.println("\n🔍 Contexto:");
-    printFeatureGroup(allFeatures, "first_word_match", "query_has_numbers",
+    printFeatureGroup(features, "first_word_match", "query_has_numbers",
         "title_has_numbers", "has_known_brand");
 
     System.out.println("\n⭐ Popularidade (Dataset Real):");
-    printFeatureGroup(allFeatures, "popularity", "quality", "ctr");
+    printFeatureGroup(features, "popularity", "quality", "ctr");
 
     System.out.println("──────────────────────────────────────────────");
   }
 
-  private void printFeatureGroup(Map<String, Double> features, String... featureNames) {
+  private void printFeatureGroup(FeatureVector features, String... featureNames) {
     for (String name : featureNames) {
-      Double value = features.get(name);
-      if (value != null) {
-        System.out.printf("   %-25s : %.3f\n", name, value);
+      int slot = features.getSchema().slotOf(name);
+      if (slot >= 0) {
+        System.out.printf("   %-25s : %.3f\n", name, features.get(slot));
+      }
+    }
+  }
+
+  /**
+   * Estatísticas de um conjunto de candidatos, calculadas uma vez por query
+   * 
+   * Guarda min/max dos scores de retrieval (BM25, k-NN e fusão) e os sinais de popularidade,
+   * qualidade e CTR já extraídos do _source de cada candidato.
+   */
+  public static class CandidateStats {
+    private final int size;
+    private final double[] popularity;
+    private final double[] quality;
+    private final double[] ctr;
+    private final double minBm25, maxBm25;
+    private final double minKnn, maxKnn;
+    private final double minFused, maxFused;
+    private final double minPop, maxPop;
+    private final double minCtr, maxCtr;
+
+    private CandidateStats(int size, double[] bm25, double[] knn, double[] fused,
+        double[] popularity, double[] quality, double[] ctr) {
+      this.size = size;
+      this.popularity = popularity;
+      this.quality = quality;
+      this.ctr = ctr;
+
+      double minB = Double.POSITIVE_INFINITY, maxB = Double.NEGATIVE_INFINITY;
+      double minK = Double.POSITIVE_INFINITY, maxK = Double.NEGATIVE_INFINITY;
+      double minF = Double.POSITIVE_INFINITY, maxF = Double.NEGATIVE_INFINITY;
+      double minP = Double.POSITIVE_INFINITY, maxP = Double.NEGATIVE_INFINITY;
+      double minC = Double.POSITIVE_INFINITY, maxC = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < size; i++) {
+        minB = Math.min(minB, bm25[i]);
+        maxB = Math.max(maxB, bm25[i]);
+        minK = Math.min(minK, knn[i]);
+        maxK = Math.max(maxK, knn[i]);
+        minF = Math.min(minF, fused[i]);
+        maxF = Math.max(maxF, fused[i]);
+        minP = Math.min(minP, popularity[i]);
+        maxP = Math.max(maxP, popularity[i]);
+        minC = Math.min(minC, ctr[i]);
+        maxC = Math.max(maxC, ctr[i]);
+      }
+      this.minBm25 = minB;
+      this.maxBm25 = maxB;
+      this.minKnn = minK;
+      this.maxKnn = maxK;
+      this.minFused = minF;
+      this.maxFused = maxF;
+      this.minPop = minP;
+      this.maxPop = maxP;
+      this.minCtr = minC;
+      this.maxCtr = maxC;
+    }
+
+    /**
+     * Calcula as estatísticas em uma única passada pelos candidatos
+     */
+    public static CandidateStats of(List<SearchResult> candidates) {
+      int n = candidates.size();
+      double[] bm25 = new double[n];
+      double[] knn = new double[n];
+      double[] fused = new double[n];
+      double[] popularity = new double[n];
+      double[] quality = new double[n];
+      double[] ctr = new double[n];
+
+      for (int i = 0; i < n; i++) {
+        SearchResult r = candidates.get(i);
+        ProductHit product = r.getProduct();
+        bm25[i] = r.getBm25Score();
+        knn[i] = r.getKnnScore();
+        fused[i] = r.getFusedScore();
+        popularity[i] = product.getPopularity();
+        quality[i] = product.getQuality();
+        ctr[i] = product.getCtr();
       }
+
+      return new CandidateStats(n, bm25, knn, fused, popularity, quality, ctr);
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public double quality(int index) {
+      return quality[index];
+    }
+
+    /**
+     * Normaliza o score BM25 entre 0 e 1 baseado no conjunto
+     */
+    public double normalizeBm25(double score) {
+      return normalize(score, minBm25, maxBm25, 0.001);
+    }
+
+    /**
+     * Normaliza o score k-NN entre 0 e 1 baseado no conjunto
+     */
+    public double normalizeKnn(double score) {
+      return normalize(score, minKnn, maxKnn, 0.001);
+    }
+
+    /**
+     * Normaliza o score híbrido (fusão) entre 0 e 1 baseado no conjunto
+     */
+    public double normalizeFused(double score) {
+      return normalize(score, minFused, maxFused, 1e-9);
+    }
+
+    /**
+     * Popularidade do candidato normalizada pelo conjunto de resultados
+     */
+    public double normalizedPopularity(int index) {
+      return normalize(popularity[index], minPop, maxPop, 1.0);
+    }
+
+    /**
+     * CTR do candidato normalizada pelo conjunto de resultados
+     */
+    public double normalizedCtr(int index) {
+      return normalize(ctr[index], minCtr, maxCtr, 0.001);
+    }
+
+    private static double normalize(double value, double min, double max, double minRange) {
+      if (max - min < minRange)
+        return 0.5; // Evitar divisão por zero
+      return (value - min) / (max - min);
     }
   }
 }
@@ -0,0 +1,57 @@
+package com.pablords.opensearch;
+
+/**
+ * Matriz de features de uma query: candidatos × features
+ *
+ * Armazenada em column-major (todos os valores de uma feature são contíguos),
+ * o que favorece o scoring em lote por coluna. Cada linha pode ser exposta
+ * como um {@link FeatureVector} que aponta para o mesmo array.
+ */
+public class FeatureMatrix {
+  private final FeatureSchema schema;
+  private final int rows;
+  private final double[] data;
+
+  public FeatureMatrix(FeatureSchema schema, int rows) {
+    this.schema = schema;
+    this.rows = rows;
+    this.data = new double[rows * schema.size()];
+  }
+
+  public FeatureSchema getSchema() {
+    return schema;
+  }
+
+  public int rows() {
+    return rows;
+  }
+
+  public int columns() {
+    return schema.size();
+  }
+
+  /**
+   * Array column-major: o valor (linha, slot) está em data[slot * rows + linha]
+   */
+  public double[] data() {
+    return data;
+  }
+
+  public double get(int row, int slot) {
+    return data[slot * rows + row];
+  }
+
+  public void set(int row, int slot, double value) {
+    data[slot * rows + row] = value;
+  }
+
+  /**
+   * Visão da linha como FeatureVector (sem cópia)
+   */
+  public FeatureVector row(int row) {
+    if (row < 0 || row >= rows) {
+      throw new IndexOutOfBoundsException("Linha " + row + " fora da matriz de " + rows + " linhas");
+    }
+    return new FeatureVector(schema, data, row, rows);
+  }
+}
@@ -0,0 +1,95 @@
+package com.pablords.opensearch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de features do LTR: associa cada nome de feature a um slot fixo
+ *
+ * Os vetores de features e os pesos do modelo são arrays densos indexados
+ * por esses slots, então a busca por nome acontece apenas na montagem
+ * (extração ou binding do modelo), nunca no scoring.
+ */
+public final class FeatureSchema {
+
+  // ============================================================
+  // Slots do schema padrão (18 features)
+  // ============================================================
+  public static final int BM25_SCORE = 0;
+  public static final int KNN_SCORE = 1;
+  public static final int HYBRID_SCORE = 2;
+  public static final int EXACT_MATCH_TITLE = 3;
+  public static final int EXACT_MATCH_DESCRIPTION = 4;
+  public static final int EXACT_MATCH_CATEGORY = 5;
+  public static final int TERM_COVERAGE = 6;
+  public static final int QUERY_LENGTH = 7;
+  public static final int TITLE_LENGTH = 8;
+  public static final int DESCRIPTION_LENGTH = 9;
+  public static final int QUERY_TITLE_RATIO = 10;
+  public static final int FIRST_WORD_MATCH = 11;
+  public static final int QUERY_HAS_NUMBERS = 12;
+  public static final int TITLE_HAS_NUMBERS = 13;
+  public static final int HAS_KNOWN_BRAND = 14;
+  public static final int POPULARITY = 15;
+  public static final int QUALITY = 16;
+  public static final int CTR = 17;
+
+  /**
+   * Schema usado pelo FeatureExtractor e pelo modelo LTR padrão
+   */
+  public static final FeatureSchema DEFAULT = new FeatureSchema(
+      "bm25_score", "knn_score", "hybrid_score",
+      "exact_match_title", "exact_match_description", "exact_match_category",
+      "term_coverage", "query_length",
+      "title_length", "description_length", "query_title_ratio",
+      "first_word_match", "query_has_numbers", "title_has_numbers", "has_known_brand",
+      "popularity", "quality", "ctr");
+
+  private final String[] names;
+  private final Map<String, Integer> slots;
+
+  public FeatureSchema(String... names) {
+    this.names = names.clone();
+    this.slots = new HashMap<>(names.length * 2);
+    for (int i = 0; i < names.length; i++) {
+      if (slots.put(names[i], i) != null) {
+        throw new IllegalArgumentException("Feature duplicada no schema: " + names[i]);
+      }
+    }
+  }
+
+  /**
+   * Slot da feature, ou -1 se ela não faz parte do schema
+   */
+  public int slotOf(String name) {
+    Integer slot = slots.get(name);
+    return slot != null ? slot : -1;
+  }
+
+  public String name(int slot) {
+    return names[slot];
+  }
+
+  public int size() {
+    return names.length;
+  }
+
+  public List<String> names() {
+    return Collections.unmodifiableList(Arrays.asList(names));
+  }
+
+  /**
+   * Converte pesos nomeados em um array denso alinhado aos slots
+   * Pesos de features fora do schema são ignorados
+   */
+  public double[] bind(Map<String, Double> weights) {
+    double[] bound = new double[names.length];
+    for (int i = 0; i < names.length; i++) {
+      bound[i] = weights.getOrDefault(names[i], 0.0);
+    }
+    return bound;
+  }
+}
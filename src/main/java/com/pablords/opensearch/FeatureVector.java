@@ -1,40 +1,91 @@
 package com.pablords.opensearch;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Representa um vetor de features para LTR (Learning to Rank)
  * Cada documento candidato tem seu vetor de features extraído
+ *
+ * Os valores ficam em um double[] indexado pelos slots do {@link FeatureSchema}.
+ * O vetor pode ser dono do seu array ou ser uma linha de uma
+ * {@link FeatureMatrix} (column-major), sem cópia.
  */
 public class FeatureVector {
-  private final Map<String, Double> features;
+  private final FeatureSchema schema;
+  private final double[] values;
+  private final int offset;
+  private final int stride;
 
-  private FeatureVector(Map<String, Double> features) {
-    this.features = features;
+  FeatureVector(FeatureSchema schema, double[] values, int offset, int stride) {
+    this.schema = schema;
+    this.values = values;
+    this.offset = offset;
+    this.stride = stride;
+  }
+
+  public FeatureVector(FeatureSchema schema) {
+    this(schema, new double[schema.size()], 0, 1);
   }
 
   public static Builder builder() {
-    return new Builder();
+    return new Builder(FeatureSchema.DEFAULT);
+  }
+
+  public static Builder builder(FeatureSchema schema) {
+    return new Builder(schema);
+  }
+
+  public FeatureSchema getSchema() {
+    return schema;
+  }
+
+  public double get(int slot) {
+    return values[offset + slot * stride];
+  }
+
+  public void set(int slot, double value) {
+    values[offset + slot * stride] = value;
   }
 
   public double get(String featureName) {
-    return features.getOrDefault(featureName, 0.0);
+    int slot = schema.slotOf(featureName);
+    return slot >= 0 ? get(slot) : 0.0;
   }
 
+  /**
+   * Produto escalar com pesos alinhados ao schema deste vetor
+   */
+  public double dot(double[] weights) {
+    double sum = 0.0;
+    for (int slot = 0, i = offset; slot < weights.length; slot++, i += stride) {
+      sum += weights[slot] * values[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Cópia nomeada das features (para debug e explicações)
+   */
   public Map<String, Double> getAll() {
-    return new HashMap<>(features);
+    Map<String, Double> all = new LinkedHashMap<>();
+    for (int slot = 0; slot < schema.size(); slot++) {
+      all.put(schema.name(slot), get(slot));
+    }
+    return all;
   }
 
   public int size() {
-    return features.size();
+    return schema.size();
   }
 
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder("FeatureVector{");
-    features.forEach((k, v) -> sb.append(k).append("=").append(String.format("%.3f", v)).append(", "));
-    if (!features.isEmpty()) {
+    for (int slot = 0; slot < schema.size(); slot++) {
+      sb.append(schema.name(slot)).append("=").append(String.format("%.3f", get(slot))).append(", ");
+    }
+    if (schema.size() > 0) {
       sb.setLength(sb.length() - 2);
     }
     sb.append("}");
@@ -42,25 +93,31 @@ public class FeatureVector {
   }
 
   public static class Builder {
-    private final Map<String, Double> features = new HashMap<>();
+    private final FeatureVector vector;
+
+    private Builder(FeatureSchema schema) {
+      this.vector = new FeatureVector(schema);
+    }
 
     public Builder add(String name, double value) {
-      features.put(name, value);
+      int slot = vector.schema.slotOf(name);
+      if (slot < 0) {
+        throw new IllegalArgumentException("Feature desconhecida no schema: " + name);
+      }
+      vector.set(slot, value);
       return this;
     }
 
     public Builder add(String name, boolean value) {
-      features.put(name, value ? 1.0 : 0.0);
-      return this;
+      return add(name, value ? 1.0 : 0.0);
     }
 
     public Builder add(String name, int value) {
-      features.put(name, (double) value);
-      return this;
+      return add(name, (double) value);
     }
 
     public FeatureVector build() {
-      return new FeatureVector(features);
+      return vector;
     }
   }
 }
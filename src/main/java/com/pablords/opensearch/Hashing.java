@@ -0,0 +1,56 @@
+package com.pablords.opensearch;
+
+/**
+ * Hashes de 64 bits compartilhados: FNV-1a (passo a passo) + finalizador
+ * do SplitMix64
+ *
+ * Vários resultados são persistidos (chaves do {@link EmbeddingStore},
+ * hashes do {@link CatalogManifest}, _ids de {@link CatalogProduct}) ou
+ * definem os vetores do {@link HashingEmbeddingModel}: mudar qualquer
+ * constante aqui invalida esses arquivos e índices.
+ */
+final class Hashing {
+
+  static final long FNV_OFFSET = 0xCBF29CE484222325L;
+  static final long FNV_PRIME = 0x100000001B3L;
+  static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // Incremento do SplitMix64
+
+  private Hashing() {
+  }
+
+  /**
+   * Um passo do FNV-1a (um byte, um char ou uma marca/separador)
+   */
+  static long fnv(long h, int value) {
+    return (h ^ value) * FNV_PRIME;
+  }
+
+  /**
+   * FNV-1a sobre os bytes
+   */
+  static long fnv(long h, byte[] bytes) {
+    for (byte b : bytes) {
+      h = fnv(h, b & 0xFF);
+    }
+    return h;
+  }
+
+  /**
+   * Finalizador do SplitMix64: espalha os bits (o FNV sozinho mistura mal os bits altos)
+   */
+  static long mix(long h) {
+    h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+    h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+    return h ^ (h >>> 31);
+  }
+
+  /**
+   * Hash multiplicativo dobrado em 32 bits, para o slot de tabelas com
+   * endereçamento aberto (chaves já bem distribuídas nos bits baixos não
+   * precisam do {@link #mix} completo)
+   */
+  static int fold(long key) {
+    long h = key * GOLDEN_GAMMA;
+    return (int) (h ^ (h >>> 32));
+  }
+}
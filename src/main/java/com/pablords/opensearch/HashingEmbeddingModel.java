@@ -0,0 +1,144 @@
+package com.pablords.opensearch;
+
+/**
+ * Modelo de embedding determinístico e sem código nativo, para testes de carga
+ *
+ * Substitui o {@link DjlEmbeddingModel} quando o que interessa é o custo do
+ * retrieval, da indexação e do re-ranking (não a qualidade semântica):
+ * roda em microssegundos, não baixa nada e gera sempre os mesmos vetores.
+ *
+ * ALGORITMO:
+ * 1. Features esparsas: palavras (TextAnalyzer: lowercase, sem acentos) e
+ *    trigramas de caracteres de cada palavra com marcadores de borda
+ *    ("<no", "not", ..., "ok>"), que aproximam grafias parecidas
+ * 2. Hashing trick: cada feature vira um bucket de 2^20 com sinal aleatório
+ * 3. Projeção aleatória muito esparsa: cada bucket tem uma linha com
+ *    ~sqrt(dimension) posições ±1 pseudoaleatórias, gerada sob demanda a
+ *    partir de (seed, bucket) com o SplitMix64 (nada fica em memória)
+ * 4. Soma ponderada das linhas e normalização L2
+ *
+ * A projeção preserva produtos internos em média (Johnson-Lindenstrauss; a
+ * versão esparsa de Li, Hastie e Church mantém a garantia com ~sqrt(d)
+ * posições por linha, o que torna cada feature ~20x mais barata em 384d),
+ * então textos que compartilham palavras e trigramas ficam próximos em
+ * cosseno. Sinônimos sem grafia em comum não ficam.
+ */
+public class HashingEmbeddingModel extends CachedEmbeddingModel {
+
+  public static final long DEFAULT_SEED = 42L;
+
+  private static final int FEATURE_BITS = 20; // Buckets do hashing trick
+  private static final int FEATURE_MASK = (1 << FEATURE_BITS) - 1;
+  private static final float WORD_WEIGHT = 1.0f;
+  private static final float TRIGRAM_WEIGHT = 0.5f;
+
+  private final long seed;
+  private final int nonZerosPerFeature;
+
+  /**
+   * @param cacheSize Número máximo de embeddings a manter em cache
+   * @param dimension Dimensão dos vetores gerados
+   */
+  public HashingEmbeddingModel(int cacheSize, int dimension) {
+    this(cacheSize, dimension, DEFAULT_SEED);
+  }
+
+  /**
+   * @param seed Semente da projeção (vetores só são comparáveis com a mesma semente)
+   */
+  public HashingEmbeddingModel(int cacheSize, int dimension, long seed) {
+    super("hashing-projection/d" + dimension + "/s" + seed, dimension, cacheSize, defaultBatchSize());
+    if (dimension <= 0) {
+      throw new IllegalArgumentException("Dimensão deve ser positiva: " + dimension);
+    }
+    this.seed = seed;
+    this.nonZerosPerFeature = Math.max(1, Math.min(dimension, (int) Math.ceil(Math.sqrt(dimension))));
+    System.out.println("Modelo de embedding por hashing + projeção aleatória: " + dimension
+        + " dimensões (seed " + seed + ")");
+  }
+
+  /**
+   * Sem estado mutável: thread-safe, um texto por vez
+   */
+  @Override
+  protected float[][] predict(String[] texts) {
+    float[][] embeddings = new float[texts.length][];
+    for (int i = 0; i < texts.length; i++) {
+      embeddings[i] = project(texts[i]);
+    }
+    return embeddings;
+  }
+
+  @Override
+  protected void closeEncoder() {
+    // Nada a liberar
+  }
+
+  /**
+   * Embedding de um texto (sem cache)
+   */
+  public float[] project(String text) {
+    float[] vector = new float[getDimension()];
+    String[] tokens = TextAnalyzer.tokenize(text);
+    for (String token : tokens) {
+      addFeature(vector, hash(0x57L, token, 0, token.length()), WORD_WEIGHT);
+
+      // Trigramas de "<token>" sem alocar a string com bordas
+      int padded = token.length() + 2;
+      for (int start = 0; start + 3 <= padded; start++) {
+        addFeature(vector, trigramHash(token, start), TRIGRAM_WEIGHT);
+      }
+    }
+    if (tokens.length == 0) {
+      addFeature(vector, hash(0x52L, text, 0, text.length()), WORD_WEIGHT); // Só pontuação: texto bruto
+    }
+
+    double norm = 0.0;
+    for (float value : vector) {
+      norm += value * value;
+    }
+    if (norm > 0.0) {
+      float inverse = (float) (1.0 / Math.sqrt(norm));
+      for (int i = 0; i < vector.length; i++) {
+        vector[i] *= inverse;
+      }
+    }
+    return vector;
+  }
+
+  /**
+   * Soma a linha esparsa ±weight do bucket da feature (sinal do hashing trick incluso)
+   */
+  private void addFeature(float[] vector, long featureHash, float weight) {
+    int bucket = (int) (featureHash & FEATURE_MASK);
+    int signedBits = Float.floatToRawIntBits(featureHash < 0 ? -weight : weight);
+    long state = seed ^ (bucket * Hashing.GOLDEN_GAMMA);
+    for (int n = 0; n < nonZerosPerFeature; n++) {
+      state += Hashing.GOLDEN_GAMMA;
+      long bits = Hashing.mix(state);
+      int position = (int) (((bits >>> 32) * vector.length) >>> 32); // Multiply-shift em [0, dimension)
+      // Bit baixo vira o bit de sinal do peso (sem desvio: os bits são aleatórios)
+      vector[position] += Float.intBitsToFloat(signedBits ^ ((int) bits << 31));
+    }
+  }
+
+  private static long trigramHash(String token, int start) {
+    long h = Hashing.FNV_OFFSET ^ 0x54L;
+    for (int i = start; i < start + 3; i++) {
+      char c = i == 0 ? '<' : i == token.length() + 1 ? '>' : token.charAt(i - 1);
+      h = Hashing.fnv(h, c);
+    }
+    return Hashing.mix(h);
+  }
+
+  /**
+   * FNV-1a sobre os chars (com uma marca do tipo de feature) + finalizador
+   */
+  private static long hash(long tag, String text, int from, int to) {
+    long h = Hashing.FNV_OFFSET ^ tag;
+    for (int i = from; i < to; i++) {
+      h = Hashing.fnv(h, text.charAt(i));
+    }
+    return Hashing.mix(h);
+  }
+}
@@ -1,13 +1,26 @@
 package com.pablords.opensearch;
 
+import ai.djl.translate.TranslateException;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.query_dsl.KnnQuery;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch._types.query_dsl.TextQueryType;
 import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ARQUITETURA COMPLETA: Busca Híbrida + LTR (Learning to Rank)
@@ -15,6 +28,7 @@ import java.util.stream.Collectors;
  * ETAPA 1: RETRIEVAL (Recuperação)
  * - Motor Léxico (BM25): Busca em title, description, category
  * - Motor Semântico (k-NN): Busca por similaridade de embeddings
+ * - As duas pernas rodam em paralelo e são fundidas (RRF ou min-max)
  * - Retorna ~200 candidatos (Top 100 de cada, com dedup)
  * 
  * ETAPA 2: FEATURE EXTRACTION
@@ -22,209 +36,428 @@ import java.util.stream.Collectors;
  * - Features: BM25, k-NN, exact match, term coverage, popularidade, etc
  * 
  * ETAPA 3: RE-RANKING (LTR)
+ * - Opcional: cascata com modelo barato que poda candidatos antes do modelo principal
  * - Aplica modelo LTR treinado
  * - Calcula score final
  * - Retorna Top K resultados ordenados
+ *
+ * searchAsync executa o mesmo pipeline sobre o OpenSearchAsyncClient:
+ * BM25 sai imediatamente, k-NN encadeado no embedding e re-ranking em
+ * um pool de CPU dedicado, sem uma thread bloqueada por busca em andamento.
  */
 public class HybridSearchWithLTR {
 
   private static final String INDEX_NAME = "semantic-search-demo";
   private static final String VECTOR_FIELD = "text_vector";
   private static final int RETRIEVAL_SIZE = 100; // Top 100 de cada motor
+  private static final PrintStream QUIET = new PrintStream(OutputStream.nullOutputStream());
 
   private final OpenSearchClient client;
-  private final EmbeddingModel embeddingModel;
+  private final OpenSearchAsyncClient asyncClient;
+  private final CachedEmbeddingModel embeddingModel;
   private final FeatureExtractor featureExtractor;
   private final LTRModel ltrModel;
+  private final CascadeConfig cascade;
+  private final RankFusion fusion;
 
-  public HybridSearchWithLTR(OpenSearchClient client, EmbeddingModel embeddingModel) {
-    this.client = client;
-    this.embeddingModel = embeddingModel;
-    this.featureExtractor = new FeatureExtractor();
-    this.ltrModel = new LTRModel(); // Pesos padrão otimizados
+  // Pernas do retrieval executadas em paralelo (threads daemon)
+  private final ExecutorService retrievalExecutor = Executors.newCachedThreadPool(daemonThreads("hybrid-retrieval"));
+
+  // searchAsync: embedding da query (o EmbeddingModel limita a concorrência ao pool de predictors)
+  private final ExecutorService inferenceExecutor = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), daemonThreads("hybrid-inference"));
+
+  // searchAsync: fusão, features e LTR (CPU-bound, uma thread por core)
+  private final ExecutorService rerankExecutor = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), daemonThreads("hybrid-rerank"));
+
+  public HybridSearchWithLTR(OpenSearchClient client, CachedEmbeddingModel embeddingModel) {
+    this(client, embeddingModel, new LinearLTRModel()); // Pesos padrão otimizados
+  }
+
+  public HybridSearchWithLTR(OpenSearchClient client, CachedEmbeddingModel embeddingModel, LTRModel customModel) {
+    this(client, embeddingModel, customModel, CascadeConfig.disabled());
+  }
+
+  public HybridSearchWithLTR(OpenSearchClient client, CachedEmbeddingModel embeddingModel, LTRModel customModel,
+      CascadeConfig cascade) {
+    this(client, embeddingModel, customModel, cascade, RankFusion.reciprocalRank());
   }
 
-  public HybridSearchWithLTR(OpenSearchClient client, EmbeddingModel embeddingModel, LTRModel customModel) {
+  public HybridSearchWithLTR(OpenSearchClient client, CachedEmbeddingModel embeddingModel, LTRModel customModel,
+      CascadeConfig cascade, RankFusion fusion) {
     this.client = client;
+    this.asyncClient = new OpenSearchAsyncClient(client._transport(), client._transportOptions());
     this.embeddingModel = embeddingModel;
     this.featureExtractor = new FeatureExtractor();
     this.ltrModel = customModel;
+    this.cascade = cascade;
+    this.fusion = fusion;
   }
 
   /**
    * BUSCA COMPLETA COM LTR (3 Etapas)
-   * 
+   *
    * @param queryText      Texto da busca do usuário
    * @param topK           Número de resultados finais
    * @param categoryFilter Filtro opcional de categoria
    * @return Lista de resultados ranqueados por LTR
    */
   public List<SearchResult> search(String queryText, int topK, String categoryFilter) throws Exception {
+    return search(queryText, topK, categoryFilter, true);
+  }
+
+  /**
+   * BUSCA COMPLETA COM LTR, com saída opcional no console
+   *
+   * Em modo silencioso (verbose = false) o pipeline é o mesmo, mas nada é
+   * impresso: usado no warm-up da inicialização e em replays de queries.
+   */
+  public List<SearchResult> search(String queryText, int topK, String categoryFilter, boolean verbose)
+      throws Exception {
+    PrintStream out = verbose ? System.out : QUIET;
     long startTime = System.currentTimeMillis();
 
-    System.out.println("\n" + "═".repeat(80));
-    System.out.println("🔍 BUSCA HÍBRIDA + LTR: \"" + queryText + "\"");
+    out.println("\n" + "═".repeat(80));
+    out.println("🔍 BUSCA HÍBRIDA + LTR: \"" + queryText + "\"");
     if (categoryFilter != null) {
-      System.out.println("📁 Filtro: categoria = " + categoryFilter);
+      out.println("📁 Filtro: categoria = " + categoryFilter);
     }
-    System.out.println("═".repeat(80));
+    out.println("═".repeat(80));
 
     // ================================================================
     // ETAPA 1: RETRIEVAL - Busca Híbrida (BM25 + k-NN)
     // ================================================================
-    System.out.println("\n📊 ETAPA 1: RETRIEVAL (Busca Híbrida)");
-    System.out.println("─".repeat(80));
+    out.println("\n📊 ETAPA 1: RETRIEVAL (Busca Híbrida)");
+    out.println("─".repeat(80));
 
     long retrievalStart = System.currentTimeMillis();
-    List<SearchResult> candidates = retrievalStage(queryText, categoryFilter);
+    LegTimings legTimings = new LegTimings();
+    List<SearchResult> candidates = retrievalStage(queryText, categoryFilter, legTimings);
     long retrievalTime = System.currentTimeMillis() - retrievalStart;
 
-    System.out.println("✓ Motor BM25: Top " + RETRIEVAL_SIZE + " resultados léxicos");
-    System.out.println("✓ Motor k-NN: Top " + RETRIEVAL_SIZE + " resultados semânticos");
-    System.out.println("✓ Total de candidatos únicos: " + candidates.size());
-    System.out.println("⏱️  Tempo: " + retrievalTime + "ms");
+    out.println("✓ Motor BM25: Top " + RETRIEVAL_SIZE + " resultados léxicos (" + legTimings.lexicalMs + "ms)");
+    out.println("✓ Motor k-NN: Top " + RETRIEVAL_SIZE + " resultados semânticos (" + legTimings.semanticMs
+        + "ms, incluindo embedding)");
+    out.println("✓ Fusão: " + fusion.name());
+    out.println("✓ Total de candidatos únicos: " + candidates.size());
+    out.println("⏱️  Tempo: " + retrievalTime + "ms");
 
     if (candidates.isEmpty()) {
-      System.out.println("\n❌ Nenhum resultado encontrado.");
+      out.println("\n❌ Nenhum resultado encontrado.");
       return Collections.emptyList();
     }
 
     // ================================================================
-    // ETAPA 2: FEATURE EXTRACTION
-    // ================================================================
-    System.out.println("\n🔬 ETAPA 2: FEATURE EXTRACTION");
-    System.out.println("─".repeat(80));
-
-    long featureStart = System.currentTimeMillis();
-    for (SearchResult result : candidates) {
-      FeatureVector features = featureExtractor.extractFeatures(result, queryText, candidates);
-      result.setFeatures(features);
-    }
-    long featureTime = System.currentTimeMillis() - featureStart;
-
-    System.out.println("✓ Features extraídas: 17 features por documento");
-    System.out.println("✓ Total de vetores: " + candidates.size());
-    System.out.println("⏱️  Tempo: " + featureTime + "ms (" +
-        String.format("%.2f", (double) featureTime / candidates.size()) + "ms por doc)");
-
-    // ================================================================
-    // ETAPA 3: RE-RANKING com LTR
+    // ETAPAS 2 e 3: FEATURE EXTRACTION + RE-RANKING (LTR)
     // ================================================================
-    System.out.println("\n🤖 ETAPA 3: RE-RANKING (LTR)");
-    System.out.println("─".repeat(80));
-
-    long rerankStart = System.currentTimeMillis();
-    for (SearchResult result : candidates) {
-      double ltrScore = ltrModel.predict(result.getFeatures());
-      result.setLtrScore(ltrScore);
+    RerankOutcome outcome = rerankStage(queryText, candidates, topK);
+    List<SearchResult> topResults = outcome.topResults;
+
+    out.println("\n🔬 ETAPA 2: FEATURE EXTRACTION");
+    out.println("─".repeat(80));
+    if (outcome.survivors < candidates.size()) {
+      out.println("✓ Cascata: " + outcome.survivors + " de " + candidates.size()
+          + " candidatos sobreviveram ao modelo barato");
     }
-    long rerankTime = System.currentTimeMillis() - rerankStart;
-
-    // Ordenar por LTR score (descendente)
-    candidates.sort((a, b) -> Double.compare(b.getLtrScore(), a.getLtrScore()));
-
-    System.out.println("✓ Modelo LTR aplicado a todos os candidatos");
-    System.out.println("✓ Resultados reordenados por score LTR");
-    System.out.println("⏱️  Tempo: " + rerankTime + "ms");
+    out.println("✓ Features extraídas: " + FeatureSchema.DEFAULT.size() + " features por documento");
+    out.println("✓ Total de vetores: " + outcome.survivors);
+    out.println("⏱️  Tempo: " + outcome.featureMs + "ms (" +
+        String.format("%.2f", (double) outcome.featureMs / outcome.survivors) + "ms por doc)");
 
-    // Retornar Top K
-    List<SearchResult> topResults = candidates.stream()
-        .limit(topK)
-        .collect(Collectors.toList());
+    out.println("\n🤖 ETAPA 3: RE-RANKING (LTR)");
+    out.println("─".repeat(80));
+    out.println("✓ Modelo LTR aplicado a " + outcome.survivors + " candidatos");
+    out.println("✓ Top " + topResults.size() + " selecionados por score LTR");
+    out.println("⏱️  Tempo: " + outcome.rerankMs + "ms");
 
     // ================================================================
     // RESUMO FINAL
     // ================================================================
     long totalTime = System.currentTimeMillis() - startTime;
 
-    System.out.println("\n" + "═".repeat(80));
-    System.out.println("⏱️  TIMING BREAKDOWN");
-    System.out.println("─".repeat(80));
-    System.out.println(String.format("   Retrieval (BM25+k-NN)  : %5dms  (%.1f%%)",
+    out.println("\n" + "═".repeat(80));
+    out.println("⏱️  TIMING BREAKDOWN");
+    out.println("─".repeat(80));
+    out.println(String.format("   Retrieval (BM25+k-NN)  : %5dms  (%.1f%%)",
         retrievalTime, 100.0 * retrievalTime / totalTime));
-    System.out.println(String.format("   Feature Extraction     : %5dms  (%.1f%%)",
-        featureTime, 100.0 * featureTime / totalTime));
-    System.out.println(String.format("   LTR Re-ranking         : %5dms  (%.1f%%)",
-        rerankTime, 100.0 * rerankTime / totalTime));
-    System.out.println("   " + "─".repeat(40));
-    System.out.println(String.format("   TOTAL                  : %5dms", totalTime));
-    System.out.println("═".repeat(80));
+    out.println(String.format("   Feature Extraction     : %5dms  (%.1f%%)",
+        outcome.featureMs, 100.0 * outcome.featureMs / totalTime));
+    out.println(String.format("   LTR Re-ranking         : %5dms  (%.1f%%)",
+        outcome.rerankMs, 100.0 * outcome.rerankMs / totalTime));
+    out.println("   " + "─".repeat(40));
+    out.println(String.format("   TOTAL                  : %5dms", totalTime));
+    out.println("═".repeat(80));
 
     // Exibir resultados
-    displayResults(topResults, queryText);
+    if (verbose) {
+      displayResults(topResults, queryText);
+    }
 
     return topResults;
   }
 
+  /**
+   * BUSCA ASSÍNCRONA (mesmas 3 etapas, sem bloquear threads)
+   *
+   * - A perna BM25 é disparada imediatamente no cliente assíncrono
+   * - O embedding da query roda em paralelo no executor de inferência
+   * - A perna k-NN é encadeada na conclusão do embedding
+   * - Fusão, features e LTR rodam no pool de CPU quando as duas pernas chegam
+   *
+   * Não imprime nada no console, então pode ser chamada de forma concorrente.
+   *
+   * @param queryText      Texto da busca do usuário
+   * @param topK           Número de resultados finais
+   * @param categoryFilter Filtro opcional de categoria
+   * @return Future com os resultados ranqueados por LTR
+   */
+  public CompletableFuture<List<SearchResult>> searchAsync(String queryText, int topK, String categoryFilter) {
+    Query categoryQuery = categoryQuery(categoryFilter);
+
+    // 1. Perna léxica: não depende do embedding
+    CompletableFuture<SearchResponse<ProductHit.Source>> lexicalFuture = sendAsync(lexicalRequest(queryText, categoryQuery));
+
+    // 2. Embedding no executor de inferência → perna k-NN
+    CompletableFuture<SearchResponse<ProductHit.Source>> semanticFuture = CompletableFuture
+        .supplyAsync(() -> {
+          try {
+            return embeddingModel.embed(queryText);
+          } catch (TranslateException e) {
+            throw new CompletionException(e);
+          }
+        }, inferenceExecutor)
+        .thenCompose(queryVector -> sendAsync(semanticRequest(queryVector, categoryQuery)));
+
+    // 3. Fusão + re-ranking no pool de CPU (nunca nas threads de I/O do cliente)
+    return lexicalFuture.thenCombineAsync(semanticFuture, (lexicalResponse, semanticResponse) -> {
+      List<SearchResult> candidates = mergeLegs(lexicalResponse, semanticResponse);
+      if (candidates.isEmpty()) {
+        return Collections.<SearchResult>emptyList();
+      }
+      return rerankStage(queryText, candidates, topK).topResults;
+    }, rerankExecutor);
+  }
+
+  /**
+   * Busca assíncrona simplificada (sem filtro)
+   */
+  public CompletableFuture<List<SearchResult>> searchAsync(String queryText, int topK) {
+    return searchAsync(queryText, topK, null);
+  }
+
+  private CompletableFuture<SearchResponse<ProductHit.Source>> sendAsync(SearchRequest request) {
+    try {
+      return asyncClient.search(request, ProductHit.Source.class);
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
   /**
    * ETAPA 1: Retrieval - Busca Híbrida
-   * Combina BM25 (léxico) + k-NN (semântico)
+   *
+   * Executa as pernas léxica (BM25) e vetorial (k-NN) como buscas
+   * independentes e concorrentes: a léxica é disparada antes mesmo do
+   * embedding da query, então a latência é o máximo das duas, não a soma.
+   * Os hits são mesclados por docId com scores e ranks reais de cada perna
+   * e ordenados pela estratégia de fusão configurada.
    */
-  private List<SearchResult> retrievalStage(String queryText, String categoryFilter) throws Exception {
-    // 1. Gerar embedding para k-NN
+  private List<SearchResult> retrievalStage(String queryText, String categoryFilter, LegTimings timings)
+      throws Exception {
+    Query categoryQuery = categoryQuery(categoryFilter);
+
+    // 1. Perna léxica (BM25 em title, description, category) - não depende do embedding
+    SearchRequest lexicalRequest = lexicalRequest(queryText, categoryQuery);
+
+    long legsStart = System.currentTimeMillis();
+    CompletableFuture<SearchResponse<ProductHit.Source>> lexicalFuture = CompletableFuture.supplyAsync(() -> {
+      try {
+        SearchResponse<ProductHit.Source> response = client.search(lexicalRequest, ProductHit.Source.class);
+        timings.lexicalMs = System.currentTimeMillis() - legsStart;
+        return response;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, retrievalExecutor);
+
+    // 2. Perna vetorial (k-NN) - embedding da query em paralelo com a busca léxica
     float[] queryVector = embeddingModel.embed(queryText);
+    SearchResponse<ProductHit.Source> semanticResponse = client.search(semanticRequest(queryVector, categoryQuery), ProductHit.Source.class);
+    timings.semanticMs = System.currentTimeMillis() - legsStart;
+
+    SearchResponse<ProductHit.Source> lexicalResponse;
+    try {
+      lexicalResponse = lexicalFuture.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof UncheckedIOException ? ((UncheckedIOException) e.getCause()).getCause() : e;
+    }
 
-    // 2. Query k-NN (busca semântica)
-    KnnQuery knnQuery = new KnnQuery.Builder()
-        .field(VECTOR_FIELD)
-        .vector(queryVector)
-        .k(RETRIEVAL_SIZE)
-        .build();
+    return mergeLegs(lexicalResponse, semanticResponse);
+  }
 
-    // 3. Query BM25 (busca léxica em title, description, category)
-    Query bm25Query = new Query.Builder()
-        .multiMatch(mm -> mm
-            .query(queryText)
-            .fields("title^3", "description^1.5", "category^0.5")
-            .type(TextQueryType.BestFields)
-            .tieBreaker(0.3))
-        .build();
+  private static Query categoryQuery(String categoryFilter) {
+    return categoryFilter == null ? null
+        : new Query.Builder()
+            .term(t -> t
+                .field("category")
+                .value(v -> v.stringValue(categoryFilter)))
+            .build();
+  }
 
-    // 4. Combinar com bool should
-    Query hybridQuery = new Query.Builder()
+  private static SearchRequest lexicalRequest(String queryText, Query categoryQuery) {
+    Query bm25Query = new Query.Builder()
         .bool(b -> {
-          b.should(new Query.Builder().knn(knnQuery).build())
-              .should(bm25Query)
-              .minimumShouldMatch("1");
-
-          // Filtro de categoria se especificado
-          if (categoryFilter != null) {
-            b.filter(f -> f.term(t -> t
-                .field("category")
-                .value(v -> v.stringValue(categoryFilter))));
+          b.must(m -> m
+              .multiMatch(mm -> mm
+                  .query(queryText)
+                  .fields("title^3", "description^1.5", "category^0.5")
+                  .type(TextQueryType.BestFields)
+                  .tieBreaker(0.3)));
+          if (categoryQuery != null) {
+            b.filter(categoryQuery);
           }
-
           return b;
         })
         .build();
 
-    // 5. Executar busca
-    SearchRequest searchReq = new SearchRequest.Builder()
-        .index(INDEX_NAME)
-        .query(hybridQuery)
-        .size(RETRIEVAL_SIZE * 2) // Buscar mais para garantir diversidade
-        .build();
+    return retrievalRequest(bm25Query);
+  }
 
-    var response = client.search(searchReq, Map.class);
+  private SearchRequest semanticRequest(float[] queryVector, Query categoryQuery) {
+    KnnQuery.Builder knnQuery = new KnnQuery.Builder()
+        .field(VECTOR_FIELD)
+        .vector(embeddingModel.toIndexVector(queryVector)) // INT8: mesmos códigos do índice
+        .k(RETRIEVAL_SIZE);
+    if (categoryQuery != null) {
+      knnQuery.filter(categoryQuery); // Filtragem durante a busca HNSW
+    }
 
-    // 6. Converter hits para SearchResult
-    List<SearchResult> results = new ArrayList<>();
-    for (var hit : response.hits().hits()) {
-      @SuppressWarnings("unchecked")
-      Map<String, Object> source = (Map<String, Object>) hit.source();
+    return retrievalRequest(new Query.Builder().knn(knnQuery.build()).build());
+  }
 
-      // Extrair scores BM25 e k-NN (simplificado - em produção seria mais complexo)
-      double totalScore = hit.score() != null ? hit.score() : 0.0;
-      double bm25Score = totalScore * 0.4; // Estimativa
-      double knnScore = totalScore * 0.6; // Estimativa
+  /**
+   * Requisição de uma perna do retrieval: só os campos que o re-ranking usa
+   *
+   * O _source é filtrado para os campos de texto (o vetor de embedding não
+   * volta na resposta) e os sinais numéricos vêm de doc values.
+   */
+  private static SearchRequest retrievalRequest(Query query) {
+    SearchRequest.Builder request = new SearchRequest.Builder()
+        .index(INDEX_NAME)
+        .query(query)
+        .size(RETRIEVAL_SIZE)
+        .source(src -> src.filter(f -> f.includes(Arrays.asList(ProductHit.SOURCE_FIELDS))));
+    for (String field : ProductHit.DOCVALUE_FIELDS) {
+      request.docvalueFields(d -> d.field(field));
+    }
+    return request.build();
+  }
 
-      SearchResult result = new SearchResult(hit.id(), source, bm25Score, knnScore);
-      results.add(result);
+  /**
+   * Mescla por docId com scores e ranks verdadeiros de cada perna, aplica a
+   * fusão e ordena os candidatos pelo score híbrido
+   */
+  private List<SearchResult> mergeLegs(SearchResponse<ProductHit.Source> lexicalResponse, SearchResponse<ProductHit.Source> semanticResponse) {
+    CandidateMerger merger = new CandidateMerger(RETRIEVAL_SIZE * 2);
+    int rank = 1;
+    for (Hit<ProductHit.Source> hit : lexicalResponse.hits().hits()) {
+      merger.addLexical(hit.id(), ProductHit.decode(hit), hit.score() != null ? hit.score() : 0.0, rank++);
     }
+    rank = 1;
+    for (Hit<ProductHit.Source> hit : semanticResponse.hits().hits()) {
+      merger.addSemantic(hit.id(), ProductHit.decode(hit), hit.score() != null ? hit.score() : 0.0, rank++);
+    }
+
+    double[] fused = new double[merger.size()];
+    fusion.fuse(merger, fused);
+    int[] order = TopKSelector.select(fused, merger.size(), merger.size());
 
+    List<SearchResult> results = new ArrayList<>(order.length);
+    for (int slot : order) {
+      results.add(new SearchResult(merger.docId(slot), merger.product(slot),
+          merger.bm25Score(slot), merger.bm25Rank(slot),
+          merger.knnScore(slot), merger.knnRank(slot), fused[slot]));
+    }
     return results;
   }
 
+  /**
+   * ETAPAS 2 e 3: Feature extraction + re-ranking LTR (somente CPU)
+   *
+   * Compartilhada por search e searchAsync; não imprime nada.
+   * Com cascata, o modelo barato poda os candidatos antes da extração completa.
+   */
+  private RerankOutcome rerankStage(String queryText, List<SearchResult> candidates, int topK) {
+    long featureStart = System.currentTimeMillis();
+    QueryContext queryContext = featureExtractor.analyzeQuery(queryText); // Análise da query uma única vez
+    FeatureExtractor.CandidateStats stats = FeatureExtractor.CandidateStats.of(candidates);
+
+    // Cascata (estágio A): modelo barato sobre todos os candidatos, mantém só os melhores
+    int[] survivors;
+    if (cascade.appliesTo(candidates.size())) {
+      FeatureMatrix cheapMatrix = featureExtractor.extractCheapFeatures(candidates, stats);
+      double[] cheapScores = new double[candidates.size()];
+      cascade.getFirstPassModel().predictBatch(cheapMatrix, cheapScores);
+      survivors = TopKSelector.select(cheapScores, candidates.size(), cascade.getSurvivors());
+    } else {
+      survivors = new int[candidates.size()];
+      for (int i = 0; i < survivors.length; i++) {
+        survivors[i] = i;
+      }
+    }
+
+    // Estágio B: extração completa apenas dos sobreviventes
+    FeatureMatrix featureMatrix = featureExtractor.extractFeatures(candidates, survivors, queryContext, stats);
+    for (int i = 0; i < survivors.length; i++) {
+      candidates.get(survivors[i]).setFeatures(featureMatrix.row(i));
+    }
+    long featureTime = System.currentTimeMillis() - featureStart;
+
+    long rerankStart = System.currentTimeMillis();
+    double[] ltrScores = new double[survivors.length];
+    ltrModel.predictBatch(featureMatrix, ltrScores); // Scoring em lote sobre a matriz
+    for (int i = 0; i < survivors.length; i++) {
+      candidates.get(survivors[i]).setLtrScore(ltrScores[i]);
+    }
+
+    // Top K por LTR score com heap limitado (sem ordenar todos os candidatos)
+    int[] best = TopKSelector.select(ltrScores, survivors.length, topK);
+    List<SearchResult> topResults = new ArrayList<>(best.length);
+    for (int row : best) {
+      topResults.add(candidates.get(survivors[row]));
+    }
+    long rerankTime = System.currentTimeMillis() - rerankStart;
+
+    return new RerankOutcome(topResults, survivors.length, featureTime, rerankTime);
+  }
+
+  /**
+   * Resultado das etapas 2 e 3 com os tempos de cada uma
+   */
+  private static class RerankOutcome {
+    final List<SearchResult> topResults;
+    final int survivors;
+    final long featureMs;
+    final long rerankMs;
+
+    RerankOutcome(List<SearchResult> topResults, int survivors, long featureMs, long rerankMs) {
+      this.topResults = topResults;
+      this.survivors = survivors;
+      this.featureMs = featureMs;
+      this.rerankMs = rerankMs;
+    }
+  }
+
+
+  /**
+   * Tempos de cada perna do retrieval (medidos a partir do disparo)
+   */
+  private static class LegTimings {
+    volatile long lexicalMs;
+    volatile long semanticMs;
+  }
+
   /**
    * Exibe resultados formatados
    */
@@ -289,6 +522,24 @@ public class HybridSearchWithLTR {
     return text.substring(0, maxLength - 3) + "...";
   }
 
+  private static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger counter = new AtomicInteger();
+    return r -> {
+      Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Libera as threads do retrieval, da inferência e do re-ranking
+   */
+  public void close() {
+    retrievalExecutor.shutdown();
+    inferenceExecutor.shutdown();
+    rerankExecutor.shutdown();
+  }
+
   /**
    * Retorna explicação do modelo LTR
    */
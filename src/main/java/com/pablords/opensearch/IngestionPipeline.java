@@ -0,0 +1,423 @@
+package com.pablords.opensearch;
+
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pipeline de ingestão em estágios sobrepostos: leitura → embedding → bulk
+ *
+ *   leitor ──[fila de lotes]──▶ N workers de embedding ──[fila de documentos]──▶ escritor ──▶ BulkIndexer (M senders)
+ *
+ * - Leitor: consome o catálogo em streaming e agrupa produtos em lotes;
+ *   produtos com _id ({@link CatalogProduct#documentId()}) repetido são
+ *   ignorados com aviso (o segundo sobrescreveria o primeiro no índice)
+ * - Embedding: N workers geram os vetores de cada lote (CPU) e montam os documentos
+ * - Bulk: o escritor entrega os documentos ao {@link BulkIndexer}, que
+ *   mantém M requisições em voo (rede), e opcionalmente grava o
+ *   {@link CatalogSnapshot} com os campos e embeddings
+ *
+ * As filas são limitadas: um estágio lento bloqueia o anterior, então a
+ * memória fica limitada a (capacidade das filas x tamanho do lote) produtos,
+ * independente do tamanho do catálogo. Inferência e I/O de rede acontecem
+ * ao mesmo tempo.
+ *
+ * A cada poucos segundos é impressa a vazão e a utilização de cada estágio
+ * e a ocupação de cada fila: a fila cheia antes do estágio mais lento
+ * mostra o gargalo.
+ */
+public class IngestionPipeline {
+
+  private static final int CALIBRATION_SAMPLE = 256; // Primeiros produtos usados na calibração INT8
+  private static final long REPORT_INTERVAL_MS = 2000;
+  private static final long POLL_MS = 100;
+  private static final int MAX_LOGGED_DUPLICATES = 10;
+
+  private final OpenSearchClient client;
+  private final CachedEmbeddingModel model;
+  private final String index;
+  private final int batchSize;
+  private final int embedWorkers;
+  private final int queueCapacity;
+
+  private final Stage reader = new Stage("leitura", 1);
+  private final Stage embedding;
+  private final Stage writer = new Stage("bulk", 1);
+  private final BlockingQueue<Batch> productQueue;
+  private final BlockingQueue<Batch> documentQueue;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private volatile BulkIndexer indexer;
+  private CatalogSnapshot.Writer snapshot;
+  private volatile long startNanos;
+  private volatile long duplicates;
+
+  /**
+   * Configuração das propriedades de sistema: -Dingest.batchSize (padrão: lote
+   * do modelo), -Dingest.embedWorkers (padrão: cores / 2) e -Dingest.queueCapacity
+   * (lotes por fila, padrão 4)
+   */
+  public IngestionPipeline(OpenSearchClient client, CachedEmbeddingModel model, String index) {
+    this(client, model, index,
+        Integer.getInteger("ingest.batchSize", model.getBatchSize()),
+        Integer.getInteger("ingest.embedWorkers", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+        Integer.getInteger("ingest.queueCapacity", 4));
+  }
+
+  /**
+   * @param batchSize     Produtos por lote entre os estágios
+   * @param embedWorkers  Workers de embedding
+   * @param queueCapacity Lotes em cada fila entre estágios
+   */
+  public IngestionPipeline(OpenSearchClient client, CachedEmbeddingModel model, String index, int batchSize,
+      int embedWorkers, int queueCapacity) {
+    if (batchSize <= 0 || embedWorkers <= 0 || queueCapacity <= 0) {
+      throw new IllegalArgumentException("Configuração inválida: lote=" + batchSize + ", workers="
+          + embedWorkers + ", fila=" + queueCapacity);
+    }
+    this.client = client;
+    this.model = model;
+    this.index = index;
+    this.batchSize = batchSize;
+    this.embedWorkers = embedWorkers;
+    this.queueCapacity = queueCapacity;
+    this.embedding = new Stage("embedding", embedWorkers);
+    this.productQueue = new ArrayBlockingQueue<>(queueCapacity);
+    this.documentQueue = new ArrayBlockingQueue<>(queueCapacity);
+  }
+
+  /**
+   * Executa o pipeline até o fim do catálogo (ou até a primeira falha)
+   *
+   * @param products Catálogo em streaming (ex.: {@link CatalogReader}; o _id é {@link CatalogProduct#documentId()})
+   * @return Estatísticas do bulk
+   */
+  public BulkIndexer.Stats run(Iterator<CatalogProduct> products) throws Exception {
+    return run(products, null);
+  }
+
+  /**
+   * Executa o pipeline gravando também o snapshot do catálogo processado
+   * (campos + embeddings), para que a próxima reconstrução não precise do modelo
+   *
+   * @param snapshot Writer do snapshot (null = sem snapshot); não é fechado aqui
+   */
+  public BulkIndexer.Stats run(Iterator<CatalogProduct> products, CatalogSnapshot.Writer snapshot)
+      throws Exception {
+    this.snapshot = snapshot;
+    Iterator<CatalogProduct> source = calibrateIfNeeded(products);
+    startNanos = System.nanoTime();
+
+    List<Thread> threads = new ArrayList<>();
+    CountDownLatch finished = new CountDownLatch(2 + embedWorkers);
+    AtomicInteger activeEmbedders = new AtomicInteger(embedWorkers);
+    BulkIndexer bulk = new BulkIndexer(client, index);
+
+    try (bulk) {
+      bulk.reportProgress(false); // O relatório do pipeline já inclui o bulk
+      indexer = bulk;
+
+      threads.add(stageThread("ingest-reader", finished, () -> readLoop(source)));
+      for (int i = 0; i < embedWorkers; i++) {
+        threads.add(stageThread("ingest-embed-" + (i + 1), finished, () -> embedLoop(activeEmbedders)));
+      }
+      threads.add(stageThread("ingest-writer", finished, this::writeLoop));
+      threads.forEach(Thread::start);
+
+      while (!finished.await(REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        System.out.println("🚚 " + report());
+      }
+    }
+
+    Throwable error = failure.get();
+    if (error != null) {
+      throw new IllegalStateException("Pipeline de ingestão interrompido: " + error.getMessage(), error);
+    }
+    if (duplicates > 0) {
+      System.err.println("⚠️  " + duplicates + " produtos com _id repetido ignorados");
+    }
+    System.out.println("✓ Pipeline concluído: " + report());
+    return bulk.getStats(); // Após o close: inclui as últimas requisições
+  }
+
+  /**
+   * INT8: calibra com os primeiros produtos e os devolve à frente do stream
+   */
+  private Iterator<CatalogProduct> calibrateIfNeeded(Iterator<CatalogProduct> products)
+      throws Exception {
+    if (!model.needsCalibration()) {
+      return products;
+    }
+    List<CatalogProduct> head = new ArrayList<>(CALIBRATION_SAMPLE);
+    while (head.size() < CALIBRATION_SAMPLE && products.hasNext()) {
+      head.add(products.next());
+    }
+    List<String> sample = new ArrayList<>(head.size());
+    for (CatalogProduct product : head) {
+      sample.add(product.text(EmbeddingModel.DEFAULT_EMBED_FIELDS));
+    }
+    if (!sample.isEmpty()) {
+      model.calibrate(sample);
+    }
+
+    Iterator<CatalogProduct> headIterator = head.iterator();
+    return new Iterator<CatalogProduct>() {
+      @Override
+      public boolean hasNext() {
+        return headIterator.hasNext() || products.hasNext();
+      }
+
+      @Override
+      public CatalogProduct next() {
+        return headIterator.hasNext() ? headIterator.next() : products.next();
+      }
+    };
+  }
+
+  private void readLoop(Iterator<CatalogProduct> products) throws InterruptedException {
+    IdSet seen = new IdSet();
+    try {
+      while (failure.get() == null) {
+        long start = System.nanoTime();
+        List<CatalogProduct> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && products.hasNext()) {
+          CatalogProduct product = products.next();
+          String id = product.documentId();
+          if (seen.add(CatalogProduct.hash(id))) {
+            batch.add(product);
+          } else if (++duplicates <= MAX_LOGGED_DUPLICATES) {
+            System.err.println("Produto com _id repetido ignorado: " + id + " (" + product + ")");
+          }
+        }
+        reader.record(batch.size(), System.nanoTime() - start);
+        if (batch.isEmpty()) {
+          break;
+        }
+        put(productQueue, new Batch(batch, null, null));
+      }
+    } finally {
+      for (int i = 0; i < embedWorkers; i++) {
+        put(productQueue, Batch.END);
+      }
+    }
+  }
+
+  private void embedLoop(AtomicInteger activeEmbedders) throws Exception {
+    try {
+      Batch batch;
+      while ((batch = take(productQueue)) != Batch.END) {
+        long start = System.nanoTime();
+        List<String> texts = new ArrayList<>(batch.products.size());
+        for (CatalogProduct product : batch.products) {
+          texts.add(product.text(EmbeddingModel.DEFAULT_EMBED_FIELDS));
+        }
+        List<float[]> vectors = model.embedBatch(texts);
+        List<Map<String, Object>> documents = new ArrayList<>(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+          documents.add(Bootstrap.toDocument(model, batch.products.get(i), vectors.get(i)));
+        }
+        embedding.record(documents.size(), System.nanoTime() - start);
+        put(documentQueue, new Batch(batch.products, vectors, documents));
+      }
+    } finally {
+      if (activeEmbedders.decrementAndGet() == 0) {
+        put(documentQueue, Batch.END); // Último worker encerra o escritor
+      }
+    }
+  }
+
+  private void writeLoop() throws Exception {
+    Batch batch;
+    while ((batch = take(documentQueue)) != Batch.END) {
+      long start = System.nanoTime();
+      for (int i = 0; i < batch.documents.size(); i++) {
+        String id = batch.products.get(i).documentId();
+        indexer.index(id, batch.documents.get(i));
+        if (snapshot != null) {
+          snapshot.add(id, batch.products.get(i), batch.vectors.get(i));
+        }
+      }
+      writer.record(batch.documents.size(), System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * put/take que desistem quando outro estágio falhou (sem travar o pipeline)
+   */
+  private void put(BlockingQueue<Batch> queue, Batch batch) throws InterruptedException {
+    while (!queue.offer(batch, POLL_MS, TimeUnit.MILLISECONDS)) {
+      if (failure.get() != null && batch != Batch.END) {
+        return;
+      }
+      if (failure.get() != null) {
+        queue.clear(); // Abre espaço para o sinal de fim
+      }
+    }
+  }
+
+  private Batch take(BlockingQueue<Batch> queue) throws InterruptedException {
+    Batch batch;
+    while ((batch = queue.poll(POLL_MS, TimeUnit.MILLISECONDS)) == null) {
+      if (failure.get() != null && queue.isEmpty()) {
+        return Batch.END;
+      }
+    }
+    return failure.get() != null ? Batch.END : batch;
+  }
+
+  private Thread stageThread(String name, CountDownLatch finished, StageBody body) {
+    Thread thread = new Thread(() -> {
+      try {
+        body.run();
+      } catch (Throwable e) {
+        failure.compareAndSet(null, e);
+      } finally {
+        finished.countDown();
+      }
+    }, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Vazão, utilização e fila de cada estágio
+   */
+  public String report() {
+    double elapsedSeconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+    StringBuilder line = new StringBuilder();
+    line.append(reader.describe(elapsedSeconds));
+    line.append(String.format(" ▶ [%d/%d] ▶ ", productQueue.size(), queueCapacity));
+    line.append(embedding.describe(elapsedSeconds));
+    line.append(String.format(" ▶ [%d/%d] ▶ ", documentQueue.size(), queueCapacity));
+    line.append(writer.describe(elapsedSeconds));
+    BulkIndexer bulk = indexer;
+    if (bulk != null) {
+      BulkIndexer.Stats stats = bulk.getStats();
+      line.append(String.format(" ▶ [%d/%d] ▶ envio %.0f docs/s, %.2f MB/s, %d em voo",
+          bulk.pendingRequests(), bulk.getMaxInFlight(), stats.docsPerSecond(), stats.megabytesPerSecond(),
+          stats.inFlight));
+    }
+    return line.toString();
+  }
+
+  /**
+   * Estatísticas de um estágio: itens processados e tempo ocupado dos workers
+   */
+  public List<Stage> getStages() {
+    List<Stage> stages = new ArrayList<>(3);
+    stages.add(reader);
+    stages.add(embedding);
+    stages.add(writer);
+    return stages;
+  }
+
+  private interface StageBody {
+    void run() throws Exception;
+  }
+
+  /**
+   * Contadores de um estágio
+   */
+  public static class Stage {
+    private final String name;
+    private final int workers;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+
+    Stage(String name, int workers) {
+      this.name = name;
+      this.workers = workers;
+    }
+
+    void record(int count, long nanos) {
+      items.add(count);
+      busyNanos.add(nanos);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getItems() {
+      return items.sum();
+    }
+
+    /**
+     * Fração do tempo em que os workers do estágio estiveram ocupados
+     * (o resto foi espera em fila: entrada vazia ou saída cheia)
+     */
+    public double utilization(double elapsedSeconds) {
+      return busyNanos.sum() / 1e9 / (elapsedSeconds * workers);
+    }
+
+    String describe(double elapsedSeconds) {
+      return String.format("%s %.0f/s (%d x %.0f%%)", name, items.sum() / elapsedSeconds, workers,
+          100.0 * utilization(elapsedSeconds));
+    }
+  }
+
+  /**
+   * Conjunto de hashes de 64 bits dos _ids já lidos (endereçamento aberto,
+   * 0 = vazio): 16 bytes por produto, sem guardar as Strings
+   */
+  private static final class IdSet {
+    private long[] keys = new long[1024];
+    private int size;
+
+    boolean add(long key) {
+      if (key == 0) {
+        key = 1;
+      }
+      if ((size + 1) * 2 > keys.length) {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        for (long k : old) {
+          if (k != 0) {
+            insert(k);
+          }
+        }
+      }
+      if (!insert(key)) {
+        return false;
+      }
+      size++;
+      return true;
+    }
+
+    private boolean insert(long key) {
+      int mask = keys.length - 1;
+      int i = (int) key & mask;
+      while (keys[i] != 0) {
+        if (keys[i] == key) {
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      return true;
+    }
+  }
+
+  private static class Batch {
+    static final Batch END = new Batch(null, null, null);
+
+    final List<CatalogProduct> products;
+    final List<float[]> vectors;
+    final List<Map<String, Object>> documents;
+
+    Batch(List<CatalogProduct> products, List<float[]> vectors, List<Map<String, Object>> documents) {
+      this.products = products;
+      this.vectors = vectors;
+      this.documents = documents;
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package com.pablords.opensearch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Modelo LTR (Learning to Rank) Linear
+ * 
+ * Para modelos treinados (XGBoost, LightGBM, LambdaMART) veja
+ * {@link TreeEnsembleLTRModel}.
+ * Este é um modelo baseado em pesos aprendidos/configurados manualmente
+ * 
+ * ARQUITETURA:
+ * - Recebe um FeatureVector (18 features)
+ * - Aplica pesos aprendidos
+ * - Retorna score final de ranking
+ */
+public class LinearLTRModel implements LTRModel {
+
+  // Pesos das features (em produção, viriam de treinamento ML)
+  private final Map<String, Double> featureWeights;
+
+  // Scoring em lote SIMD disponível? (-Dltr.simd=false força o caminho escalar)
+  private static final boolean SIMD_ENABLED = detectVectorApi();
+
+  // Pesos alinhados aos slots do schema (binding feito uma única vez)
+  private final FeatureSchema schema;
+  private final double[] boundWeights;
+
+  /**
+   * Construtor com pesos padrão otimizados para e-commerce
+   */
+  public LinearLTRModel() {
+    this(null);
+  }
+
+  /**
+   * Construtor com pesos customizados
+   */
+  public LinearLTRModel(Map<String, Double> customWeights) {
+    this(customWeights, FeatureSchema.DEFAULT);
+  }
+
+  /**
+   * Construtor com pesos customizados para um schema específico
+   */
+  public LinearLTRModel(Map<String, Double> customWeights, FeatureSchema schema) {
+    this.featureWeights = customWeights != null ? customWeights : getDefaultWeights();
+    this.schema = schema;
+    this.boundWeights = schema.bind(featureWeights);
+  }
+
+  /**
+   * Prediz o score LTR para um documento
+   * 
+   * @param features Vetor de features extraídas
+   * @return Score final de ranking (0.0 a 100.0)
+   */
+  @Override
+  public double predict(FeatureVector features) {
+    // Score = Σ(weight_i * feature_i)
+    double score = features.dot(weightsFor(features.getSchema()));
+
+    // Aplicar função de ativação (sigmoid para normalizar entre 0-100)
+    return sigmoid(score) * 100;
+  }
+
+  /**
+   * Scoring em lote sobre a matriz column-major, sem boxing nem alocação
+   * Usa a Vector API quando disponível, com fallback escalar
+   */
+  @Override
+  public void predictBatch(FeatureMatrix matrix, double[] out) {
+    double[] weights = weightsFor(matrix.getSchema());
+    if (SIMD_ENABLED) {
+      VectorizedLinearScorer.score(matrix.data(), matrix.rows(), weights, out);
+    } else {
+      predictBatchScalar(matrix.data(), matrix.rows(), weights, out);
+    }
+  }
+
+  static void predictBatchScalar(double[] data, int rows, double[] weights, double[] out) {
+    Arrays.fill(out, 0, rows, 0.0);
+    for (int slot = 0; slot < weights.length; slot++) {
+      double w = weights[slot];
+      if (w == 0.0) {
+        continue;
+      }
+      int base = slot * rows;
+      for (int row = 0; row < rows; row++) {
+        out[row] += w * data[base + row];
+      }
+    }
+    for (int row = 0; row < rows; row++) {
+      out[row] = sigmoid(out[row]) * 100;
+    }
+  }
+
+  private static boolean detectVectorApi() {
+    if (!Boolean.parseBoolean(System.getProperty("ltr.simd", "true"))
+        || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return false;
+    }
+    try {
+      // Aquece/valida a classe vetorial; qualquer LinkageError desativa o SIMD
+      VectorizedLinearScorer.score(new double[] { 1.0 }, 1, new double[] { 1.0 }, new double[1]);
+      return true;
+    } catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  public static boolean isSimdEnabled() {
+    return SIMD_ENABLED;
+  }
+
+  private double[] weightsFor(FeatureSchema featureSchema) {
+    // Caminho lento apenas para vetores de outro schema
+    return featureSchema == schema ? boundWeights : featureSchema.bind(featureWeights);
+  }
+
+  /**
+   * Pesos padrão otimizados para e-commerce
+   * 
+   * Baseados em boas práticas:
+   * - BM25 e k-NN são importantes, mas não dominantes
+   * - Exact match no título é crucial
+   * - Term coverage é muito importante
+   * - Popularidade e qualidade têm peso moderado
+   */
+  private Map<String, Double> getDefaultWeights() {
+    Map<String, Double> weights = new HashMap<>();
+
+    // ============================================================
+    // GRUPO 1: RELEVÂNCIA (35% do score total)
+    // ============================================================
+    weights.put("bm25_score", 4.0); // BM25 é importante para matches exatos
+    weights.put("knn_score", 5.0); // k-NN um pouco mais importante (semântica)
+    weights.put("hybrid_score", 3.0); // Score combinado
+
+    // ============================================================
+    // GRUPO 2: MATCH TEXTUAL (30% do score total)
+    // ============================================================
+    weights.put("exact_match_title", 8.0); // MUITO IMPORTANTE: palavra exata no título
+    weights.put("exact_match_description", 2.0); // Menos importante na descrição
+    weights.put("exact_match_category", 1.5); // Categoria match ajuda
+    weights.put("term_coverage", 6.0); // Cobertura de termos é crucial
+    weights.put("query_length", 0.5); // Peso baixo (feature contextual)
+
+    // ============================================================
+    // GRUPO 3: QUALIDADE DO TEXTO (10% do score total)
+    // ============================================================
+    weights.put("title_length", 0.01); // Títulos médios são melhores
+    weights.put("description_length", 0.005); // Descrições longas são melhores
+    weights.put("query_title_ratio", 1.0); // Ratio similar é bom sinal
+
+    // ============================================================
+    // GRUPO 4: CONTEXTO (15% do score total)
+    // ============================================================
+    weights.put("first_word_match", 4.0); // Primeira palavra é importante
+    weights.put("query_has_numbers", 1.0); // Queries com número precisam match exato
+    weights.put("title_has_numbers", 0.5); // Títulos com número são específicos
+    weights.put("has_known_brand", 3.0); // Marca conhecida aumenta confiança
+
+    // ============================================================
+    // GRUPO 5: POPULARIDADE (10% do score total)
+    // ============================================================
+    weights.put("simulated_popularity", 2.0); // Produtos populares sobem
+    weights.put("simulated_quality", 1.5); // Qualidade importa
+    weights.put("simulated_ctr", 2.5); // CTR alto é forte sinal
+
+    return weights;
+  }
+
+  /**
+   * Função sigmoid para normalização
+   * Mapeia (-∞, +∞) para (0, 1)
+   */
+  private static double sigmoid(double x) {
+    return 1.0 / (1.0 + Math.exp(-x / 10.0)); // Dividido por 10 para suavizar
+  }
+
+  /**
+   * Retorna explicação do modelo (feature importance)
+   */
+  @Override
+  public String explainModel() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("\n🤖 LTR MODEL - Feature Importance\n");
+    sb.append("═══════════════════════════════════════════════════\n");
+
+    // Ordenar features por peso
+    List<Map.Entry<String, Double>> sortedWeights = new ArrayList<>(featureWeights.entrySet());
+    sortedWeights.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+
+    sb.append(String.format("%-30s | %s\n", "Feature", "Weight"));
+    sb.append("─".repeat(51) + "\n");
+
+    for (Map.Entry<String, Double> entry : sortedWeights) {
+      String importance = getImportanceLabel(entry.getValue());
+      sb.append(String.format("%-30s | %.2f %s\n",
+          entry.getKey(), entry.getValue(), importance));
+    }
+
+    sb.append("═══════════════════════════════════════════════════\n");
+    sb.append("💡 Total features: " + featureWeights.size() + "\n");
+    sb.append("📊 Score range: 0-100 (após sigmoid)\n");
+
+    return sb.toString();
+  }
+
+  private String getImportanceLabel(double weight) {
+    if (weight >= 6.0)
+      return "🔥🔥🔥 (CRÍTICO)";
+    if (weight >= 4.0)
+      return "🔥🔥 (MUITO ALTO)";
+    if (weight >= 2.0)
+      return "🔥 (ALTO)";
+    if (weight >= 1.0)
+      return "⚡ (MÉDIO)";
+    return "• (BAIXO)";
+  }
+
+  /**
+   * Explica a predição de um documento específico
+   */
+  @Override
+  public String explainPrediction(FeatureVector features, double finalScore) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("\n🔍 EXPLICAÇÃO DA PREDIÇÃO\n");
+    sb.append("═══════════════════════════════════════════════════\n");
+    sb.append(String.format("Score Final: %.2f / 100\n", finalScore));
+    sb.append("─".repeat(51) + "\n");
+    sb.append(String.format("%-25s | %8s | %8s | %10s\n",
+        "Feature", "Value", "Weight", "Contrib."));
+    sb.append("─".repeat(51) + "\n");
+
+    // Calcular contribuição de cada feature
+    List<FeatureContribution> contributions = new ArrayList<>();
+    FeatureSchema featureSchema = features.getSchema();
+    double[] weights = weightsFor(featureSchema);
+    for (int slot = 0; slot < featureSchema.size(); slot++) {
+      String name = featureSchema.name(slot);
+      double value = features.get(slot);
+      double weight = weights[slot];
+      double contribution = value * weight;
+      contributions.add(new FeatureContribution(name, value, weight, contribution));
+    }
+
+    // Ordenar por contribuição absoluta
+    contributions.sort((a, b) -> Double.compare(
+        Math.abs(b.contribution), Math.abs(a.contribution)));
+
+    // Mostrar top 10 contribuições
+    for (int i = 0; i < Math.min(10, contributions.size()); i++) {
+      FeatureContribution fc = contributions.get(i);
+      sb.append(String.format("%-25s | %8.3f | %8.2f | %10.3f %s\n",
+          fc.name, fc.value, fc.weight, fc.contribution,
+          fc.contribution > 5 ? "🔥" : ""));
+    }
+
+    sb.append("═══════════════════════════════════════════════════\n");
+
+    return sb.toString();
+  }
+
+  private static class FeatureContribution {
+    String name;
+    double value;
+    double weight;
+    double contribution;
+
+    FeatureContribution(String name, double value, double weight, double contribution) {
+      this.name = name;
+      this.value = value;
+      this.weight = weight;
+      this.contribution = contribution;
+    }
+  }
+
+  /**
+   * Carrega pesos salvos por {@link #saveToFile(String)}
+   * Formato: {"type": "linear", "weights": {"feature": peso, ...}}
+   */
+  static LinearLTRModel fromJson(JsonNode root) {
+    JsonNode weightsNode = root.path("weights");
+    if (!weightsNode.isObject()) {
+      throw new IllegalArgumentException("Modelo linear sem objeto 'weights'");
+    }
+    Map<String, Double> weights = new LinkedHashMap<>();
+    weightsNode.fields().forEachRemaining(e -> weights.put(e.getKey(), e.getValue().asDouble()));
+    return new LinearLTRModel(weights);
+  }
+
+  /**
+   * Salva pesos em arquivo (para persistência)
+   */
+  public void saveToFile(String path) throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = mapper.createObjectNode();
+    root.put("type", "linear");
+    ObjectNode weightsNode = root.putObject("weights");
+    featureWeights.forEach(weightsNode::put);
+    mapper.writerWithDefaultPrettyPrinter().writeValue(new File(path), root);
+    System.out.println("✓ Modelo linear salvo em " + path);
+  }
+}
@@ -1,14 +1,12 @@
 package com.pablords.opensearch;
 
 import org.apache.hc.core5.http.HttpHost;
-import org.opensearch.client.opensearch.OpenSearchClient;
-import org.opensearch.client.transport.httpclient5.ApacheHttpClient5TransportBuilder;
 
-import static com.pablords.opensearch.Bootstrap.*;
+import java.util.concurrent.CompletionException;
 
 /**
  * Demo completa: Busca Híbrida + LTR (Learning to Rank)
- * 
+ *
  * ARQUITETURA EM 3 ETAPAS:
  * 1. RETRIEVAL: BM25 + k-NN (recupera ~200 candidatos)
  * 2. FEATURE EXTRACTION: Extrai 17+ features por documento
@@ -22,49 +20,62 @@ public class Main {
     System.out.println("═".repeat(80));
     System.out.println();
 
-    // --- 1. Inicializar o Modelo de Embedding com cache ---
-    EmbeddingModel embeddingModel = new EmbeddingModel(1000);
-
-    // --- 2. Inicializar o Cliente OpenSearch ---
+    // --- 1. Inicialização paralela: modelo de embedding, cliente, índice e LTR + warm-up ---
+    // Propriedades: -Dembedding.model, -Dembedding.dimension, -Dembedding.encoding, -Dembedding.store,
+    // -Dembedding.coalesce.waitMicros, -Dltr.model, -Dltr.cascade, -Dstartup.reuseIndex,
+    // -Dstartup.deltaSync, -Dsync.manifest, -Dstartup.warmup.rounds, -Dstartup.warmup.queries
+    // (veja StartupOrchestrator.fromSystemProperties)
     final HttpHost host = new HttpHost("http", "localhost", 9200);
-    final ApacheHttpClient5TransportBuilder transportBuilder = ApacheHttpClient5TransportBuilder.builder(host);
-    final OpenSearchClient client = new OpenSearchClient(transportBuilder.build());
-
-    System.out.println("✓ Conectado ao OpenSearch!");
+    StartupOrchestrator startup = StartupOrchestrator.fromSystemProperties(host, 1000);
 
+    StartupOrchestrator.Ready ready;
     try {
-      // --- 3. Preparar índice ---
-      deleteIndexIfExists(client);
-      createKnnIndex(client, EmbeddingModel.VECTOR_DIMENSION);
+      ready = startup.start().join(); // Sinal de prontidão: só completa após o warm-up
+    } catch (CompletionException e) {
+      startup.printReport();
+      System.err.println("\n❌ Falha na inicialização: " + e.getCause().getMessage());
+      e.getCause().printStackTrace();
+      return;
+    }
+    startup.printReport();
 
-      // --- 4. Indexar Documentos (usando Bulk API) ---
-      indexDocuments(client, embeddingModel);
+    CachedEmbeddingModel embeddingModel = ready.getEmbeddingModel();
+    HybridSearchWithLTR searchEngine = ready.getSearchEngine();
 
-      // --- 5. Inicializar Sistema de Busca Híbrida + LTR ---
-      HybridSearchWithLTR searchEngine = new HybridSearchWithLTR(client, embeddingModel);
-      
+    try {
       // Mostrar explicação do modelo LTR
       System.out.println(searchEngine.explainModel());
 
-      // --- 6. DEMONSTRAÇÃO: Busca Híbrida + LTR ---
-      
+      // --- 2. DEMONSTRAÇÃO: Busca Híbrida + LTR ---
+
       // Busca 1: Query com termos específicos + conceito
       searchEngine.search("notebook", 5);
-      
+
       // Busca 2: Query conceitual (vai explorar a semântica)
       // searchEngine.search("dispositivo para ouvir música sem fio", 5);
-      
+
       // // Busca 3: Query com filtro de categoria
       // searchEngine.search("presente para corredor", 5, "Esportes");
-      
+
       // // Busca 4: Query em categoria específica
       // searchEngine.search("livro sobre futuro", 5, "Livros");
 
-      // --- 7. Estatísticas finais ---
+      // // Busca 5: Assíncrona (várias buscas em voo sem bloquear uma thread cada)
+      // searchEngine.searchAsync("fone bluetooth", 5)
+      //     .thenAccept(results -> results.forEach(r -> System.out.println(r.getTitle())))
+      //     .join();
+
+      // --- 3. Estatísticas finais ---
       System.out.println("\n" + "═".repeat(80));
       System.out.println("📊 ESTATÍSTICAS FINAIS");
       System.out.println("═".repeat(80));
       System.out.println("Cache de Embeddings: " + embeddingModel.getCacheStats());
+      if (embeddingModel.getCoalescer() != null) {
+        System.out.println(embeddingModel.getCoalescer());
+      }
+      if (embeddingModel.getStore() != null) {
+        System.out.println(embeddingModel.getStore());
+      }
       System.out.println("✓ Demo concluída com sucesso!");
       System.out.println("═".repeat(80));
 
@@ -72,8 +83,9 @@ public class Main {
       System.err.println("\n❌ Erro durante execução: " + e.getMessage());
       e.printStackTrace();
     } finally {
+      searchEngine.close();
       embeddingModel.close();
       System.out.println("\n🔒 Recursos liberados.");
     }
   }
-}
\ No newline at end of file
+}
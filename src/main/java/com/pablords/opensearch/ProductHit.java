@@ -0,0 +1,115 @@
+package com.pablords.opensearch;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import jakarta.json.JsonArray;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonValue;
+
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.opensearch.core.search.Hit;
+
+import java.util.Map;
+
+/**
+ * Documento retornado pelo retrieval, já tipado
+ *
+ * Contém apenas o que o re-ranking usa: os campos de texto (via source
+ * filtering) e os sinais numéricos de ranking (via docvalue fields).
+ * O vetor de embedding nunca trafega de volta na resposta.
+ */
+public final class ProductHit {
+
+  /** Campos de texto pedidos no _source */
+  public static final String[] SOURCE_FIELDS = { "title", "description", "category" };
+
+  /** Sinais numéricos lidos de doc values */
+  public static final String[] DOCVALUE_FIELDS = { "popularity", "quality", "ctr" };
+
+  // Valores neutros quando o documento não tem o sinal indexado
+  public static final double DEFAULT_POPULARITY = 1000.0;
+  public static final double DEFAULT_QUALITY = 4.0;
+  public static final double DEFAULT_CTR = 0.05;
+
+  private final String title;
+  private final String description;
+  private final String category;
+  private final double popularity;
+  private final double quality;
+  private final double ctr;
+
+  public ProductHit(String title, String description, String category,
+      double popularity, double quality, double ctr) {
+    this.title = title != null ? title : "";
+    this.description = description != null ? description : "";
+    this.category = category != null ? category : "";
+    this.popularity = popularity;
+    this.quality = quality;
+    this.ctr = ctr;
+  }
+
+  /**
+   * Decodifica um hit: texto do _source filtrado + sinais dos doc values
+   */
+  public static ProductHit decode(Hit<Source> hit) {
+    Source source = hit.source();
+    Map<String, JsonData> fields = hit.fields();
+    return new ProductHit(
+        source != null ? source.title : null,
+        source != null ? source.description : null,
+        source != null ? source.category : null,
+        docValue(fields, "popularity", DEFAULT_POPULARITY),
+        docValue(fields, "quality", DEFAULT_QUALITY),
+        docValue(fields, "ctr", DEFAULT_CTR));
+  }
+
+  /**
+   * Doc values chegam como array JSON (ex.: "quality": [4.2])
+   */
+  private static double docValue(Map<String, JsonData> fields, String field, double defaultValue) {
+    JsonData data = fields != null ? fields.get(field) : null;
+    if (data == null) {
+      return defaultValue;
+    }
+    JsonValue value = data.toJson();
+    if (value instanceof JsonArray) {
+      JsonArray array = (JsonArray) value;
+      value = array.isEmpty() ? null : array.get(0);
+    }
+    return value instanceof JsonNumber ? ((JsonNumber) value).doubleValue() : defaultValue;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public double getPopularity() {
+    return popularity;
+  }
+
+  public double getQuality() {
+    return quality;
+  }
+
+  public double getCtr() {
+    return ctr;
+  }
+
+  /**
+   * _source filtrado, desserializado direto pelo cliente (sem Map intermediário)
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Source {
+    public String title;
+    public String description;
+    public String category;
+  }
+}
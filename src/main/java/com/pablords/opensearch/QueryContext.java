@@ -0,0 +1,118 @@
+package com.pablords.opensearch;
+
+/**
+ * Análise da query pré-compilada uma única vez por busca
+ *
+ * Reúne tudo que depende apenas da query (texto normalizado, termos,
+ * primeiro termo, presença de números e de marca conhecida), para que o
+ * FeatureExtractor calcule por candidato apenas as features do documento.
+ *
+ * Também compila um {@link DictionaryMatcher} com os termos e a frase
+ * completa da query, de modo que cada campo do documento é varrido uma
+ * única vez para todas as features de match textual.
+ */
+public class QueryContext {
+
+  private final String rawQuery;
+  private final String normalizedQuery;
+  private final String[] terms;
+  private final boolean hasNumbers;
+  private final boolean hasKnownBrand;
+
+  // Matcher dos termos da query: termIds[i] é o padrão do i-ésimo termo
+  private final DictionaryMatcher termMatcher;
+  private final int[] termIds;
+  private final int phraseId;
+
+  private QueryContext(String rawQuery, String[] terms, DictionaryMatcher brands) {
+    this.rawQuery = rawQuery;
+    this.terms = terms;
+    this.normalizedQuery = String.join(" ", terms);
+    this.hasNumbers = TextAnalyzer.containsDigit(normalizedQuery);
+    this.hasKnownBrand = brands != null && brands.containsAny(normalizedQuery);
+
+    DictionaryMatcher.Builder builder = DictionaryMatcher.builder();
+    this.termIds = new int[terms.length];
+    for (int i = 0; i < terms.length; i++) {
+      termIds[i] = builder.add(terms[i]);
+    }
+    this.phraseId = terms.length > 0 ? builder.add(normalizedQuery) : -1;
+    this.termMatcher = terms.length > 0 ? builder.build() : null;
+  }
+
+  /**
+   * Analisa a query com o mesmo analyzer usado nos campos do documento
+   *
+   * @param query  Texto da query do usuário
+   * @param brands Dicionário de marcas conhecidas (pode ser null)
+   */
+  public static QueryContext of(String query, DictionaryMatcher brands) {
+    String raw = query != null ? query : "";
+    return new QueryContext(raw, TextAnalyzer.tokenize(raw), brands);
+  }
+
+  public String getRawQuery() {
+    return rawQuery;
+  }
+
+  /**
+   * Query em forma canônica (tokens sem acento, lowercase, separados por espaço)
+   */
+  public String getNormalizedQuery() {
+    return normalizedQuery;
+  }
+
+  public String[] getTerms() {
+    return terms;
+  }
+
+  public int getTermCount() {
+    return terms.length;
+  }
+
+  /**
+   * Primeiro termo da query, ou string vazia se não houver termos
+   */
+  public String getFirstTerm() {
+    return terms.length > 0 ? terms[0] : "";
+  }
+
+  public boolean hasNumbers() {
+    return hasNumbers;
+  }
+
+  public boolean hasKnownBrand() {
+    return hasKnownBrand;
+  }
+
+  /**
+   * Contadores reutilizáveis para {@link #scan(CharSequence, DictionaryMatcher.Hits)}
+   */
+  public DictionaryMatcher.Hits newHits() {
+    return termMatcher != null ? termMatcher.newHits() : null;
+  }
+
+  /**
+   * Varre um campo (já normalizado) contando termos e frase da query
+   */
+  public void scan(CharSequence field, DictionaryMatcher.Hits hits) {
+    if (termMatcher != null) {
+      hits.clear();
+      termMatcher.scan(field, hits);
+    }
+  }
+
+  /**
+   * A frase completa da query ocorre no campo?
+   */
+  public boolean phraseMatched(DictionaryMatcher.Hits hits) {
+    return hits != null && hits.contains(phraseId);
+  }
+
+  /**
+   * O i-ésimo termo da query ocorre no campo?
+   */
+  public boolean termMatched(DictionaryMatcher.Hits hits, int term) {
+    return hits != null && hits.contains(termIds[term]);
+  }
+}
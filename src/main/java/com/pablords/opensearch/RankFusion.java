@@ -0,0 +1,111 @@
+package com.pablords.opensearch;
+
+/**
+ * Estratégia de fusão das pernas léxica (BM25) e vetorial (k-NN)
+ *
+ * Recebe os candidatos já mesclados por docId e produz um score híbrido
+ * por candidato, usado para ordenar os candidatos e como feature do LTR.
+ */
+public interface RankFusion {
+
+  /**
+   * @param merged Candidatos mesclados (scores e ranks de cada perna)
+   * @param out    Destino: score fundido por slot (pelo menos merged.size())
+   */
+  void fuse(CandidateMerger merged, double[] out);
+
+  String name();
+
+  /**
+   * Reciprocal Rank Fusion com k = 60 (valor usual da literatura)
+   */
+  static RankFusion reciprocalRank() {
+    return new ReciprocalRankFusion(60);
+  }
+
+  /**
+   * Combinação convexa dos scores normalizados (min-max) de cada perna
+   *
+   * @param lexicalWeight Peso da perna BM25 (k-NN recebe 1 - peso)
+   */
+  static RankFusion minMax(double lexicalWeight) {
+    return new MinMaxFusion(lexicalWeight);
+  }
+
+  /**
+   * RRF: Σ 1 / (k + rank) sobre as pernas em que o documento aparece
+   * Independe da escala dos scores de cada motor
+   */
+  class ReciprocalRankFusion implements RankFusion {
+    private final int k;
+
+    public ReciprocalRankFusion(int k) {
+      this.k = k;
+    }
+
+    @Override
+    public void fuse(CandidateMerger merged, double[] out) {
+      for (int i = 0; i < merged.size(); i++) {
+        double score = 0.0;
+        if (merged.bm25Rank(i) > 0) {
+          score += 1.0 / (k + merged.bm25Rank(i));
+        }
+        if (merged.knnRank(i) > 0) {
+          score += 1.0 / (k + merged.knnRank(i));
+        }
+        out[i] = score;
+      }
+    }
+
+    @Override
+    public String name() {
+      return "RRF(k=" + k + ")";
+    }
+  }
+
+  /**
+   * Normaliza cada perna para 0-1 entre os documentos que ela retornou e
+   * combina: α * bm25 + (1 - α) * knn. Ausência em uma perna conta como 0.
+   */
+  class MinMaxFusion implements RankFusion {
+    private final double lexicalWeight;
+
+    public MinMaxFusion(double lexicalWeight) {
+      if (lexicalWeight < 0.0 || lexicalWeight > 1.0) {
+        throw new IllegalArgumentException("Peso léxico deve estar entre 0 e 1: " + lexicalWeight);
+      }
+      this.lexicalWeight = lexicalWeight;
+    }
+
+    @Override
+    public void fuse(CandidateMerger merged, double[] out) {
+      double minB = Double.POSITIVE_INFINITY, maxB = Double.NEGATIVE_INFINITY;
+      double minK = Double.POSITIVE_INFINITY, maxK = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < merged.size(); i++) {
+        if (merged.bm25Rank(i) > 0) {
+          minB = Math.min(minB, merged.bm25Score(i));
+          maxB = Math.max(maxB, merged.bm25Score(i));
+        }
+        if (merged.knnRank(i) > 0) {
+          minK = Math.min(minK, merged.knnScore(i));
+          maxK = Math.max(maxK, merged.knnScore(i));
+        }
+      }
+
+      for (int i = 0; i < merged.size(); i++) {
+        double bm25 = merged.bm25Rank(i) > 0 ? normalize(merged.bm25Score(i), minB, maxB) : 0.0;
+        double knn = merged.knnRank(i) > 0 ? normalize(merged.knnScore(i), minK, maxK) : 0.0;
+        out[i] = lexicalWeight * bm25 + (1.0 - lexicalWeight) * knn;
+      }
+    }
+
+    private static double normalize(double value, double min, double max) {
+      return max - min < 1e-9 ? 1.0 : (value - min) / (max - min);
+    }
+
+    @Override
+    public String name() {
+      return String.format("MinMax(bm25=%.2f, knn=%.2f)", lexicalWeight, 1.0 - lexicalWeight);
+    }
+  }
+}
@@ -1,24 +1,36 @@
 package com.pablords.opensearch;
 
-import java.util.Map;
-
 /**
  * Representa um resultado de busca com informações completas
  * Usado para passar dados entre as etapas de retrieval e reranking
  */
 public class SearchResult {
   private final String docId;
-  private final Map<String, Object> source;
+  private final ProductHit product;
   private final double bm25Score;
   private final double knnScore;
+  private final int bm25Rank; // 0 = ausente da perna léxica
+  private final int knnRank; // 0 = ausente da perna vetorial
+  private final double fusedScore;
   private double ltrScore;
   private FeatureVector features;
 
-  public SearchResult(String docId, Map<String, Object> source, double bm25Score, double knnScore) {
+  public SearchResult(String docId, ProductHit product, double bm25Score, double knnScore) {
+    this(docId, product, bm25Score, 0, knnScore, 0, bm25Score * 0.4 + knnScore * 0.6);
+  }
+
+  /**
+   * Resultado com scores e ranks reais de cada perna do retrieval
+   */
+  public SearchResult(String docId, ProductHit product, double bm25Score, int bm25Rank,
+      double knnScore, int knnRank, double fusedScore) {
     this.docId = docId;
-    this.source = source;
+    this.product = product;
     this.bm25Score = bm25Score;
+    this.bm25Rank = bm25Rank;
     this.knnScore = knnScore;
+    this.knnRank = knnRank;
+    this.fusedScore = fusedScore;
     this.ltrScore = 0.0;
   }
 
@@ -27,8 +39,8 @@ public class SearchResult {
     return docId;
   }
 
-  public Map<String, Object> getSource() {
-    return source;
+  public ProductHit getProduct() {
+    return product;
   }
 
   public double getBm25Score() {
@@ -39,6 +51,21 @@ public class SearchResult {
     return knnScore;
   }
 
+  public int getBm25Rank() {
+    return bm25Rank;
+  }
+
+  public int getKnnRank() {
+    return knnRank;
+  }
+
+  /**
+   * Score híbrido produzido pela estratégia de fusão do retrieval
+   */
+  public double getFusedScore() {
+    return fusedScore;
+  }
+
   public double getLtrScore() {
     return ltrScore;
   }
@@ -48,15 +75,15 @@ public class SearchResult {
   }
 
   public String getTitle() {
-    return (String) source.getOrDefault("title", "");
+    return product.getTitle();
   }
 
   public String getDescription() {
-    return (String) source.getOrDefault("description", "");
+    return product.getDescription();
   }
 
   public String getCategory() {
-    return (String) source.getOrDefault("category", "");
+    return product.getCategory();
   }
 
   // Setters para LTR
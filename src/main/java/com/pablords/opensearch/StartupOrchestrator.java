@@ -0,0 +1,460 @@
+package com.pablords.opensearch;
+
+import org.apache.hc.core5.http.HttpHost;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.transport.httpclient5.ApacheHttpClient5TransportBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Inicialização rápida: carga paralela, warm-up e sinal de prontidão
+ *
+ * FASES (as independentes rodam em paralelo):
+ *
+ *   modelo ──────── warm-up do modelo ──┐
+ *   transporte ──── índice: verificação ─┼── índice: preparação ── warm-up de busca ── PRONTO
+ *   ltr ────────────────────────────────┘
+ *
+ * - modelo: carrega o EmbeddingModel (DJL/PyTorch ou hashing) com codificação, store e coalescer
+ * - warm-up do modelo: um lote com as queries de warm-up (inicializa o engine
+ *   nativo e já deixa os vetores das head queries no cache)
+ * - transporte: cria o cliente e faz um round-trip ao cluster
+ * - índice: verificação: o índice existe? quantos documentos?
+ * - ltr: carrega o modelo LTR
+ * - índice: preparação: recria e indexa, sincroniza o delta do catálogo ou
+ *   reaproveita o índice existente
+ * - warm-up de busca: replay das head queries por HybridSearchWithLTR.search
+ *   em modo silencioso (JIT do retrieval, das features e do LTR)
+ *
+ * O sinal de prontidão ({@link #readiness()}) só completa depois do warm-up.
+ * {@link #printReport()} mostra a linha do tempo das fases e o tempo até pronto.
+ */
+public class StartupOrchestrator {
+
+  // Head queries padrão (as mesmas da demo)
+  public static final List<String> DEFAULT_WARMUP_QUERIES = Collections.unmodifiableList(Arrays.asList(
+      "notebook",
+      "dispositivo para ouvir música sem fio",
+      "presente para corredor",
+      "livro sobre futuro",
+      "fone bluetooth"));
+
+  private static final int WARMUP_TOP_K = 10;
+
+  private final HttpHost host;
+  private final int cacheSize;
+  private VectorCodec.Type encoding = VectorCodec.Type.FLOAT32;
+  private Path storePath;
+  private long coalesceWaitMicros = -1;
+  private Callable<LTRModel> ltrLoader = LinearLTRModel::new;
+  private CascadeConfig cascade = CascadeConfig.disabled();
+  private boolean reuseIndex;
+  private boolean deltaSync;
+  private List<String> warmUpQueries = DEFAULT_WARMUP_QUERIES;
+  private int warmUpRounds = 3;
+
+  private final CompletableFuture<Ready> readiness = new CompletableFuture<>();
+  private final List<Phase> phases = Collections.synchronizedList(new ArrayList<>());
+  private final List<Double> warmUpRoundMillis = Collections.synchronizedList(new ArrayList<>());
+  private boolean started;
+  private volatile long startNanos;
+  private volatile long readyMillis = -1;
+  private volatile long jvmUptimeAtReadyMillis = -1;
+
+  /**
+   * @param host      Endereço do OpenSearch
+   * @param cacheSize Tamanho do cache de embeddings
+   */
+  public StartupOrchestrator(HttpHost host, int cacheSize) {
+    this.host = host;
+    this.cacheSize = cacheSize;
+  }
+
+  /**
+   * Configuração a partir das propriedades de sistema
+   *
+   * - embedding.model, embedding.dimension (veja EmbeddingModel.fromSystemProperties)
+   * - embedding.encoding, embedding.store, embedding.coalesce.waitMicros
+   * - ltr.model, ltr.cascade
+   * - startup.reuseIndex: reaproveita o índice existente se já tiver documentos
+   *   e o manifesto (sync.manifest) for da mesma configuração de vetores
+   * - startup.deltaSync: atualiza o índice existente só com o delta do catálogo
+   *   (manifesto em sync.manifest, veja Bootstrap.syncDocuments)
+   * - startup.warmup.rounds: rodadas de replay das head queries (0 desativa)
+   * - startup.warmup.queries: arquivo com uma head query por linha
+   */
+  public static StartupOrchestrator fromSystemProperties(HttpHost host, int cacheSize) throws Exception {
+    StartupOrchestrator startup = new StartupOrchestrator(host, cacheSize);
+
+    startup.encoding(VectorCodec.Type.valueOf(System.getProperty("embedding.encoding", "float32").toUpperCase()));
+    String storePath = System.getProperty("embedding.store", "data/embeddings.store");
+    if (!"none".equals(storePath)) {
+      startup.store(Paths.get(storePath));
+    }
+    startup.coalescing(Long.getLong("embedding.coalesce.waitMicros", -1));
+
+    String modelPath = System.getProperty("ltr.model");
+    startup.ltrModel(() -> modelPath != null ? LTRModel.loadFromFile(modelPath) : new LinearLTRModel());
+    Integer cascadeSurvivors = Integer.getInteger("ltr.cascade");
+    if (cascadeSurvivors != null) {
+      startup.cascade(CascadeConfig.of(cascadeSurvivors));
+    }
+
+    startup.reuseIndex(Boolean.getBoolean("startup.reuseIndex"));
+    startup.deltaSync(Boolean.getBoolean("startup.deltaSync"));
+    String queriesPath = System.getProperty("startup.warmup.queries");
+    List<String> queries = queriesPath != null ? readQueries(Paths.get(queriesPath)) : DEFAULT_WARMUP_QUERIES;
+    startup.warmUp(queries, Integer.getInteger("startup.warmup.rounds", 3));
+    return startup;
+  }
+
+  public StartupOrchestrator encoding(VectorCodec.Type encoding) {
+    this.encoding = encoding;
+    return this;
+  }
+
+  /**
+   * Store persistente de embeddings (null desativa)
+   */
+  public StartupOrchestrator store(Path storePath) {
+    this.storePath = storePath;
+    return this;
+  }
+
+  /**
+   * Agrupamento de embed() concorrentes (negativo desativa)
+   */
+  public StartupOrchestrator coalescing(long maxWaitMicros) {
+    this.coalesceWaitMicros = maxWaitMicros;
+    return this;
+  }
+
+  public StartupOrchestrator ltrModel(Callable<LTRModel> ltrLoader) {
+    this.ltrLoader = ltrLoader;
+    return this;
+  }
+
+  public StartupOrchestrator cascade(CascadeConfig cascade) {
+    this.cascade = cascade;
+    return this;
+  }
+
+  /**
+   * Reaproveita o índice existente em vez de recriá-lo (só se já tiver
+   * documentos, a codificação não precisar de calibração nova e o manifesto
+   * do índice for da mesma configuração de vetores; senão recria)
+   */
+  public StartupOrchestrator reuseIndex(boolean reuseIndex) {
+    this.reuseIndex = reuseIndex;
+    return this;
+  }
+
+  /**
+   * Em vez de recriar o índice, sincroniza só o que mudou no catálogo desde
+   * a última indexação (cai na recriação se não houver manifesto válido)
+   */
+  public StartupOrchestrator deltaSync(boolean deltaSync) {
+    this.deltaSync = deltaSync;
+    return this;
+  }
+
+  /**
+   * @param queries Head queries reproduzidas no warm-up
+   * @param rounds  Rodadas de replay (0 desativa o warm-up de busca)
+   */
+  public StartupOrchestrator warmUp(List<String> queries, int rounds) {
+    if (rounds < 0) {
+      throw new IllegalArgumentException("Rodadas de warm-up não podem ser negativas: " + rounds);
+    }
+    this.warmUpQueries = new ArrayList<>(queries);
+    this.warmUpRounds = rounds;
+    return this;
+  }
+
+  /**
+   * Dispara a inicialização e retorna o sinal de prontidão
+   */
+  public synchronized CompletableFuture<Ready> start() {
+    if (started) {
+      return readiness;
+    }
+    started = true;
+    startNanos = System.nanoTime();
+    ExecutorService executor = Executors.newCachedThreadPool(daemonThreads("startup"));
+
+    CompletableFuture<CachedEmbeddingModel> loadedModel = CompletableFuture
+        .supplyAsync(() -> timed("modelo", this::loadModel), executor);
+    CompletableFuture<CachedEmbeddingModel> modelFuture = loadedModel
+        .thenApplyAsync(model -> timed("warm-up do modelo", () -> warmUpModel(model)), executor);
+
+    CompletableFuture<OpenSearchClient> clientFuture = CompletableFuture
+        .supplyAsync(() -> timed("transporte", this::connect), executor);
+    CompletableFuture<Long> documentsFuture = clientFuture
+        .thenApplyAsync(client -> timed("índice: verificação", () -> Bootstrap.countDocuments(client)), executor);
+
+    CompletableFuture<LTRModel> ltrFuture = CompletableFuture
+        .supplyAsync(() -> timed("ltr", ltrLoader), executor);
+
+    CompletableFuture<Ready> readyFuture = CompletableFuture.allOf(modelFuture, documentsFuture, ltrFuture)
+        .thenApplyAsync(ignored -> {
+          CachedEmbeddingModel model = modelFuture.join();
+          OpenSearchClient client = clientFuture.join();
+          timed("índice: preparação", () -> prepareIndex(client, model, documentsFuture.join()));
+          HybridSearchWithLTR engine = new HybridSearchWithLTR(client, model, ltrFuture.join(), cascade);
+          timed("warm-up de busca", () -> warmUpSearch(engine));
+          return new Ready(model, client, engine);
+        }, executor);
+
+    readyFuture.whenComplete((ready, error) -> {
+      executor.shutdown();
+      if (error != null) {
+        loadedModel.thenAccept(CachedEmbeddingModel::close); // Não deixar o modelo carregado para trás
+        readiness.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+        return;
+      }
+      readyMillis = elapsedMillis();
+      jvmUptimeAtReadyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+      readiness.complete(ready);
+    });
+    return readiness;
+  }
+
+  /**
+   * Sinal de prontidão: completa após o warm-up (ou com a falha de uma fase)
+   */
+  public CompletableFuture<Ready> readiness() {
+    return readiness;
+  }
+
+  public boolean isReady() {
+    return readiness.isDone() && !readiness.isCompletedExceptionally();
+  }
+
+  /**
+   * Duração de cada fase em ms, na ordem de início
+   */
+  public Map<String, Long> getPhaseTimings() {
+    Map<String, Long> timings = new LinkedHashMap<>();
+    for (Phase phase : sortedPhases()) {
+      timings.put(phase.name, phase.durationMs);
+    }
+    return timings;
+  }
+
+  /**
+   * Tempo do início da orquestração até pronto (-1 se ainda não está pronto)
+   */
+  public long getTimeToReadyMillis() {
+    return readyMillis;
+  }
+
+  private CachedEmbeddingModel loadModel() throws Exception {
+    CachedEmbeddingModel model = EmbeddingModel.fromSystemProperties(cacheSize); // -Dembedding.model=djl|hashing
+    try {
+      model.useEncoding(encoding);
+      if (storePath != null) {
+        model.openStore(storePath);
+      }
+      if (coalesceWaitMicros >= 0) {
+        model.enableCoalescing(model.getBatchSize(), coalesceWaitMicros);
+      }
+      return model;
+    } catch (Exception e) {
+      model.close();
+      throw e;
+    }
+  }
+
+  private CachedEmbeddingModel warmUpModel(CachedEmbeddingModel model) throws Exception {
+    if (!warmUpQueries.isEmpty() && !model.needsCalibration()) {
+      model.embedBatch(warmUpQueries); // INT8 sem escala ainda: fica para a busca
+    }
+    return model;
+  }
+
+  private OpenSearchClient connect() throws Exception {
+    OpenSearchClient client = new OpenSearchClient(ApacheHttpClient5TransportBuilder.builder(host).build());
+    client.info(); // Round-trip: conexão e pool HTTP prontos antes da primeira busca
+    System.out.println("✓ Conectado ao OpenSearch!");
+    return client;
+  }
+
+  private Void prepareIndex(OpenSearchClient client, CachedEmbeddingModel model, long documents) throws Exception {
+    // Só reaproveita vetores da mesma configuração: códigos INT8 contra um
+    // campo float (ou o inverso) dariam ranking sem sentido ou erro no cluster
+    if (reuseIndex && documents > 0 && !model.needsCalibration() && Bootstrap.matchesIndex(model)) {
+      System.out.println("♻️  Reaproveitando índice existente (" + documents + " documentos)");
+      return null;
+    }
+    if (deltaSync && documents >= 0 && Bootstrap.syncDocuments(client, model)) {
+      return null;
+    }
+    Bootstrap.deleteIndexIfExists(client);
+    Bootstrap.createKnnIndex(client, model.getDimension(), encoding);
+    Bootstrap.indexDocuments(client, model);
+    return null;
+  }
+
+  /**
+   * Rodadas sequenciais; dentro de cada rodada as queries rodam em paralelo
+   * (exercita vários predictors e as threads do retrieval)
+   */
+  private Void warmUpSearch(HybridSearchWithLTR engine) throws Exception {
+    if (warmUpQueries.isEmpty() || warmUpRounds == 0) {
+      return null;
+    }
+    int threads = Math.min(warmUpQueries.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService pool = Executors.newFixedThreadPool(threads, daemonThreads("startup-warmup"));
+    try {
+      for (int round = 0; round < warmUpRounds; round++) {
+        List<Callable<Long>> searches = new ArrayList<>(warmUpQueries.size());
+        for (String query : warmUpQueries) {
+          searches.add(() -> {
+            long start = System.nanoTime();
+            engine.search(query, WARMUP_TOP_K, null, false);
+            return System.nanoTime() - start;
+          });
+        }
+        long totalNanos = 0;
+        for (Future<Long> search : pool.invokeAll(searches)) {
+          totalNanos += search.get();
+        }
+        warmUpRoundMillis.add(totalNanos / 1e6 / warmUpQueries.size());
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return null;
+  }
+
+  /**
+   * Linha do tempo das fases e tempo até pronto
+   */
+  public void printReport() {
+    System.out.println("\n" + "═".repeat(80));
+    System.out.println("⏱️  INICIALIZAÇÃO");
+    System.out.println("─".repeat(80));
+    System.out.println(String.format("   %-22s | %8s | %8s", "Fase", "Início", "Duração"));
+    System.out.println("   " + "─".repeat(44));
+    for (Phase phase : sortedPhases()) {
+      System.out.println(String.format("   %-22s | %6dms | %6dms", phase.name, phase.startMs, phase.durationMs));
+    }
+    if (!warmUpRoundMillis.isEmpty()) {
+      System.out.println(String.format("\n   Warm-up: %d rodadas x %d queries | 1ª rodada %.1fms/busca → última %.1fms/busca",
+          warmUpRoundMillis.size(), warmUpQueries.size(),
+          warmUpRoundMillis.get(0), warmUpRoundMillis.get(warmUpRoundMillis.size() - 1)));
+    }
+    if (readyMillis >= 0) {
+      System.out.println(String.format("   ✓ Pronto em %dms (%dms desde o início da JVM)", readyMillis, jvmUptimeAtReadyMillis));
+    } else {
+      System.out.println("   ❌ Não ficou pronto");
+    }
+    System.out.println("═".repeat(80));
+  }
+
+  private List<Phase> sortedPhases() {
+    List<Phase> sorted;
+    synchronized (phases) {
+      sorted = new ArrayList<>(phases);
+    }
+    sorted.sort(Comparator.comparingLong(phase -> phase.startMs));
+    return sorted;
+  }
+
+  /**
+   * Executa uma fase medindo início e duração (exceções viram CompletionException)
+   */
+  private <T> T timed(String name, Callable<T> body) {
+    long start = elapsedMillis();
+    try {
+      return body.call();
+    } catch (CompletionException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CompletionException(new IllegalStateException("Falha na fase de inicialização '" + name + "'", e));
+    } finally {
+      phases.add(new Phase(name, start, elapsedMillis() - start));
+    }
+  }
+
+  private long elapsedMillis() {
+    return (System.nanoTime() - startNanos) / 1_000_000;
+  }
+
+  private static List<String> readQueries(Path path) throws Exception {
+    List<String> queries = new ArrayList<>();
+    for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+      if (!line.trim().isEmpty()) {
+        queries.add(line.trim());
+      }
+    }
+    return queries;
+  }
+
+  private static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger counter = new AtomicInteger();
+    return r -> {
+      Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Componentes prontos para servir buscas
+   */
+  public static class Ready {
+    private final CachedEmbeddingModel embeddingModel;
+    private final OpenSearchClient client;
+    private final HybridSearchWithLTR searchEngine;
+
+    Ready(CachedEmbeddingModel embeddingModel, OpenSearchClient client, HybridSearchWithLTR searchEngine) {
+      this.embeddingModel = embeddingModel;
+      this.client = client;
+      this.searchEngine = searchEngine;
+    }
+
+    public CachedEmbeddingModel getEmbeddingModel() {
+      return embeddingModel;
+    }
+
+    public OpenSearchClient getClient() {
+      return client;
+    }
+
+    public HybridSearchWithLTR getSearchEngine() {
+      return searchEngine;
+    }
+  }
+
+  private static class Phase {
+    final String name;
+    final long startMs;
+    final long durationMs;
+
+    Phase(String name, long startMs, long durationMs) {
+      this.name = name;
+      this.startMs = startMs;
+      this.durationMs = durationMs;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.pablords.opensearch;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Analisador de texto equivalente ao analyzer "standard" do índice
+ * (tokenização por palavras + lowercase), acrescido de accent folding
+ * para o catálogo em português ("câmera" → "camera").
+ *
+ * Usado tanto na query quanto nos campos do documento, para que os
+ * matches calculados nas features usem a mesma normalização.
+ */
+public final class TextAnalyzer {
+
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+  private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+  private static final String[] NO_TOKENS = new String[0];
+
+  // Latin-1 → caractere analisado (SEPARATOR = fora de token), derivado do
+  // próprio fold/tokenize; cobre o catálogo sem regex nem NFD por documento
+  private static final char SEPARATOR = 0;
+  private static final char UNMAPPED = 0xFFFF;
+  private static final char[] LATIN1 = latin1Table();
+
+  private TextAnalyzer() {
+  }
+
+  /**
+   * Lowercase + remoção de acentos, preservando pontuação e espaços
+   */
+  public static String fold(String text) {
+    if (text == null || text.isEmpty()) {
+      return "";
+    }
+    String lower = text.toLowerCase(Locale.ROOT);
+    if (isAscii(lower)) {
+      return lower;
+    }
+    String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+    return DIACRITICS.matcher(decomposed).replaceAll("");
+  }
+
+  /**
+   * Quebra o texto em tokens normalizados (sem acentos, lowercase)
+   */
+  public static String[] tokenize(String text) {
+    String folded = fold(text);
+    if (folded.isEmpty()) {
+      return NO_TOKENS;
+    }
+    List<String> tokens = new ArrayList<>();
+    for (String token : TOKEN_SEPARATOR.split(folded)) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens.toArray(NO_TOKENS);
+  }
+
+  /**
+   * Forma canônica do texto: tokens normalizados separados por um espaço
+   * Permite comparar frases via contains de forma consistente
+   */
+  public static String analyze(String text) {
+    return String.join(" ", tokenize(text));
+  }
+
+  /**
+   * Mesma saída de {@link #analyze(String)}, escrita num buffer reutilizável
+   *
+   * Texto Latin-1 é analisado numa única passada por tabela; só textos com
+   * outros caracteres passam pelo caminho completo (regex + NFD).
+   *
+   * @return O próprio buffer, com o conteúdo anterior descartado
+   */
+  public static StringBuilder analyzeInto(String text, StringBuilder out) {
+    out.setLength(0);
+    if (text == null) {
+      return out;
+    }
+    boolean pendingSpace = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      char mapped = c < LATIN1.length ? LATIN1[c] : UNMAPPED;
+      if (mapped == UNMAPPED) {
+        out.setLength(0);
+        return out.append(analyze(text));
+      }
+      if (mapped == SEPARATOR) {
+        pendingSpace = out.length() > 0;
+        continue;
+      }
+      if (pendingSpace) {
+        out.append(' ');
+        pendingSpace = false;
+      }
+      out.append(mapped);
+    }
+    return out;
+  }
+
+  /**
+   * Verifica se o texto contém algum dígito (sem regex)
+   */
+  public static boolean containsDigit(CharSequence text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (Character.isDigit(text.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static char[] latin1Table() {
+    char[] table = new char[256];
+    for (char c = 0; c < table.length; c++) {
+      String[] tokens = tokenize(String.valueOf(c));
+      if (tokens.length == 0) {
+        table[c] = SEPARATOR;
+      } else {
+        table[c] = tokens[0].length() == 1 ? tokens[0].charAt(0) : UNMAPPED;
+      }
+    }
+    return table;
+  }
+
+  private static boolean isAscii(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,89 @@
+package com.pablords.opensearch;
+
+/**
+ * Seleção parcial dos K maiores scores com heap limitado (min-heap de índices)
+ *
+ * O(n log k) e sem boxing, em vez de ordenar a lista inteira só para
+ * aproveitar os primeiros K. Empates mantêm a ordem original (índice menor
+ * primeiro), como o sort estável fazia.
+ */
+public final class TopKSelector {
+
+  private TopKSelector() {
+  }
+
+  /**
+   * Índices dos K maiores scores, em ordem decrescente de score
+   *
+   * @param scores Scores por posição
+   * @param n      Quantidade de posições válidas em scores
+   * @param k      Número de posições a manter
+   */
+  public static int[] select(double[] scores, int n, int k) {
+    int size = Math.min(k, n);
+    if (size <= 0) {
+      return new int[0];
+    }
+
+    // heap[0] é o pior entre os K melhores vistos até agora
+    int[] heap = new int[size];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      if (count < size) {
+        heap[count] = i;
+        siftUp(heap, count++, scores);
+      } else if (better(i, heap[0], scores)) {
+        heap[0] = i;
+        siftDown(heap, 0, size, scores);
+      }
+    }
+
+    // Extrair do heap em ordem crescente e gravar de trás para frente
+    int[] result = new int[size];
+    for (int end = size - 1; end >= 0; end--) {
+      result[end] = heap[0];
+      heap[0] = heap[end];
+      siftDown(heap, 0, end, scores);
+    }
+    return result;
+  }
+
+  /**
+   * a deve ficar à frente de b no ranking?
+   */
+  private static boolean better(int a, int b, double[] scores) {
+    int cmp = Double.compare(scores[a], scores[b]);
+    return cmp > 0 || (cmp == 0 && a < b);
+  }
+
+  private static void siftUp(int[] heap, int pos, double[] scores) {
+    int item = heap[pos];
+    while (pos > 0) {
+      int parent = (pos - 1) >>> 1;
+      if (!better(heap[parent], item, scores)) {
+        break;
+      }
+      heap[pos] = heap[parent];
+      pos = parent;
+    }
+    heap[pos] = item;
+  }
+
+  private static void siftDown(int[] heap, int pos, int size, double[] scores) {
+    int item = heap[pos];
+    int half = size >>> 1;
+    while (pos < half) {
+      int child = 2 * pos + 1;
+      int right = child + 1;
+      if (right < size && better(heap[child], heap[right], scores)) {
+        child = right;
+      }
+      if (!better(item, heap[child], scores)) {
+        break;
+      }
+      heap[pos] = heap[child];
+      pos = child;
+    }
+    heap[pos] = item;
+  }
+}
@@ -0,0 +1,441 @@
+package com.pablords.opensearch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Modelo LTR baseado em ensemble de árvores (LambdaMART / gradient boosting)
+ *
+ * Carrega dumps JSON do XGBoost ou do LightGBM e compila todas as árvores em
+ * arrays primitivos (struct-of-arrays): feature, threshold, filhos e valor de
+ * folha de cada nó ficam em arrays paralelos. O scoring apenas percorre
+ * índices inteiros, sem objetos por nó e sem alocação por predição.
+ *
+ * Convenção interna: em um nó de split, vai para a esquerda se
+ * {@code x < threshold}; se o valor for NaN segue o filho de "missing".
+ * - XGBoost guarda limiares em float32 e compara {@code (float) x < t}:
+ *   limiares são lidos como float e as features arredondadas para float
+ *   antes da comparação, para que valores na fronteira (ex.: 0.1) sigam o
+ *   mesmo ramo que no XGBoost
+ * - LightGBM compara em double {@code x <= t}, convertido para
+ *   {@code x < nextUp(t)} na compilação; o missing_type de cada nó é
+ *   respeitado (None: NaN vale 0.0; Zero: NaN e zero seguem o default;
+ *   NaN: NaN segue o default)
+ */
+public class TreeEnsembleLTRModel implements LTRModel {
+
+  private static final int LEAF = -1;
+
+  // kZeroThreshold do LightGBM (float 1e-35 promovido para double)
+  private static final double LIGHTGBM_ZERO = 1e-35f;
+
+  private final FeatureSchema schema;
+  private final String source;
+  private final double baseScore;
+  private final boolean floatSplits; // Features arredondadas para float antes do split (XGBoost)
+
+  // Nós de todas as árvores, achatados (struct-of-arrays)
+  private final int[] treeRoots;
+  private final int[] feature; // slot do schema, ou LEAF
+  private final double[] threshold; // limiar do split, ou valor da folha
+  private final int[] left;
+  private final int[] right;
+  private final int[] missing;
+
+  private TreeEnsembleLTRModel(FeatureSchema schema, String source, double baseScore, boolean floatSplits,
+      NodeBuffer nodes) {
+    this.schema = schema;
+    this.source = source;
+    this.baseScore = baseScore;
+    this.floatSplits = floatSplits;
+    this.treeRoots = nodes.roots.stream().mapToInt(Integer::intValue).toArray();
+    this.feature = Arrays.copyOf(nodes.feature, nodes.size);
+    this.threshold = Arrays.copyOf(nodes.threshold, nodes.size);
+    this.left = Arrays.copyOf(nodes.left, nodes.size);
+    this.right = Arrays.copyOf(nodes.right, nodes.size);
+    this.missing = Arrays.copyOf(nodes.missing, nodes.size);
+  }
+
+  // ================================================================
+  // Carregamento
+  // ================================================================
+
+  /**
+   * Compila um dump JSON do XGBoost ({@code dump_model(..., dump_format='json')})
+   *
+   * Aceita o array de árvores do dump ou um objeto com "trees" e,
+   * opcionalmente, "base_score", "objective" e "feature_names" (para splits
+   * "f0", "f1", ...).
+   *
+   * O XGBoost grava base_score no espaço da resposta, não da margem: com o
+   * "objective" (texto ou {"name": ...}, como no save_config) ele é
+   * convertido como no treino (ver {@link #baseMargin}). Sem objective,
+   * base_score é somado como margem.
+   */
+  public static TreeEnsembleLTRModel fromXGBoost(JsonNode root, FeatureSchema schema) {
+    JsonNode trees = root.isArray() ? root : root.path("trees");
+    JsonNode objectiveNode = root.path("objective");
+    String objective = objectiveNode.isObject() ? objectiveNode.path("name").asText("")
+        : objectiveNode.asText("");
+    double baseScore = root.has("base_score")
+        ? baseMargin(objective, root.path("base_score").asDouble())
+        : 0.0;
+    String[] featureNames = readNames(root.path("feature_names"));
+
+    NodeBuffer nodes = new NodeBuffer();
+    for (JsonNode tree : trees) {
+      nodes.roots.add(addXGBoostNode(tree, schema, featureNames, nodes));
+    }
+    return new TreeEnsembleLTRModel(schema, "XGBoost", baseScore, true, nodes);
+  }
+
+  /**
+   * base_score → margem, pelo link do objective (ProbToMargin do XGBoost):
+   * - logísticos (binary:logistic, binary:logitraw, reg:logistic): log(p / (1 - p))
+   * - log-link (count:poisson, reg:gamma, reg:tweedie, survival:*): log(base_score)
+   * - demais (reg:squarederror, rank:pairwise/ndcg/map, ...): o próprio valor
+   */
+  static double baseMargin(String objective, double baseScore) {
+    switch (objective) {
+      case "binary:logistic":
+      case "binary:logitraw":
+      case "reg:logistic":
+        if (!(baseScore > 0.0 && baseScore < 1.0)) {
+          throw new IllegalArgumentException("base_score de " + objective + " deve estar em (0, 1): " + baseScore);
+        }
+        return Math.log(baseScore / (1.0 - baseScore));
+      case "count:poisson":
+      case "reg:gamma":
+      case "reg:tweedie":
+      case "survival:cox":
+      case "survival:aft":
+        if (!(baseScore > 0.0)) {
+          throw new IllegalArgumentException("base_score de " + objective + " deve ser positivo: " + baseScore);
+        }
+        return Math.log(baseScore);
+      default:
+        return baseScore;
+    }
+  }
+
+  private static int addXGBoostNode(JsonNode node, FeatureSchema schema, String[] featureNames,
+      NodeBuffer nodes) {
+    int index = nodes.allocate();
+    if (node.has("leaf")) {
+      nodes.setLeaf(index, (float) node.get("leaf").asDouble()); // Folhas também são float32
+      return index;
+    }
+
+    int yesId = node.path("yes").asInt();
+    int noId = node.path("no").asInt();
+    int missingId = node.path("missing").asInt(yesId);
+
+    int yes = -1;
+    int no = -1;
+    for (JsonNode child : node.path("children")) {
+      int childId = child.path("nodeid").asInt();
+      int childIndex = addXGBoostNode(child, schema, featureNames, nodes);
+      if (childId == yesId) {
+        yes = childIndex;
+      } else if (childId == noId) {
+        no = childIndex;
+      }
+    }
+    if (yes < 0 || no < 0) {
+      throw new IllegalArgumentException("Nó XGBoost " + node.path("nodeid").asInt() + " sem filhos yes/no");
+    }
+
+    int slot = resolveXGBoostFeature(node.path("split").asText(), schema, featureNames);
+    nodes.setSplit(index, slot, (float) node.path("split_condition").asDouble(), yes, no,
+        missingId == yesId ? yes : no);
+    return index;
+  }
+
+  private static int resolveXGBoostFeature(String split, FeatureSchema schema, String[] featureNames) {
+    int slot = schema.slotOf(split);
+    if (slot >= 0) {
+      return slot;
+    }
+    if (split.matches("f\\d+")) {
+      int column = Integer.parseInt(split.substring(1));
+      return resolveColumn(column, schema, featureNames);
+    }
+    throw new IllegalArgumentException("Feature do modelo fora do schema: " + split);
+  }
+
+  /**
+   * Compila um dump JSON do LightGBM ({@code booster.dump_model()})
+   */
+  public static TreeEnsembleLTRModel fromLightGBM(JsonNode root, FeatureSchema schema) {
+    String[] featureNames = readNames(root.path("feature_names"));
+
+    NodeBuffer nodes = new NodeBuffer();
+    for (JsonNode tree : root.path("tree_info")) {
+      nodes.roots.add(addLightGBMNode(tree.path("tree_structure"), schema, featureNames, nodes));
+    }
+    return new TreeEnsembleLTRModel(schema, "LightGBM", 0.0, false, nodes);
+  }
+
+  private static int addLightGBMNode(JsonNode node, FeatureSchema schema, String[] featureNames,
+      NodeBuffer nodes) {
+    int index = nodes.allocate();
+    if (!node.has("split_feature")) {
+      nodes.setLeaf(index, node.path("leaf_value").asDouble());
+      return index;
+    }
+
+    String decisionType = node.path("decision_type").asText("<=");
+    if (!"<=".equals(decisionType)) {
+      throw new IllegalArgumentException("Split LightGBM não suportado: " + decisionType);
+    }
+
+    String missingType = node.path("missing_type").asText("None");
+    int leftChild = addLightGBMNode(node.path("left_child"), schema, featureNames, nodes);
+    int rightChild = addLightGBMNode(node.path("right_child"), schema, featureNames, nodes);
+    int slot = resolveColumn(node.path("split_feature").asInt(), schema, featureNames);
+    double threshold = node.path("threshold").asDouble();
+    int defaultChild = node.path("default_left").asBoolean(true) ? leftChild : rightChild;
+
+    // x <= t  ⇔  x < nextUp(t)
+    double limit = Math.nextUp(threshold);
+    switch (missingType) {
+      case "None":
+        // NaN é tratado como 0.0
+        nodes.setSplit(index, slot, limit, leftChild, rightChild, 0.0 < limit ? leftChild : rightChild);
+        return index;
+      case "NaN":
+        nodes.setSplit(index, slot, limit, leftChild, rightChild, defaultChild);
+        return index;
+      case "Zero":
+        // NaN e |x| <= kZeroThreshold seguem o default; os demais valores
+        // comparam com o limiar: x < -z ? split : (x <= z ? default : split)
+        int split = nodes.allocate();
+        nodes.setSplit(split, slot, limit, leftChild, rightChild, defaultChild);
+        int zero = nodes.allocate();
+        nodes.setSplit(zero, slot, Math.nextUp(LIGHTGBM_ZERO), defaultChild, split, defaultChild);
+        nodes.setSplit(index, slot, -LIGHTGBM_ZERO, split, zero, defaultChild);
+        return index;
+      default:
+        throw new IllegalArgumentException("missing_type LightGBM não suportado: " + missingType);
+    }
+  }
+
+  private static int resolveColumn(int column, FeatureSchema schema, String[] featureNames) {
+    if (featureNames != null && column < featureNames.length) {
+      int slot = schema.slotOf(featureNames[column]);
+      if (slot < 0) {
+        throw new IllegalArgumentException("Feature do modelo fora do schema: " + featureNames[column]);
+      }
+      return slot;
+    }
+    if (column >= schema.size()) {
+      throw new IllegalArgumentException("Coluna " + column + " fora do schema de " + schema.size() + " features");
+    }
+    return column;
+  }
+
+  private static String[] readNames(JsonNode namesNode) {
+    if (!namesNode.isArray()) {
+      return null;
+    }
+    String[] names = new String[namesNode.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = namesNode.get(i).asText();
+    }
+    return names;
+  }
+
+  // ================================================================
+  // Scoring
+  // ================================================================
+
+  /**
+   * Soma das folhas de todas as árvores (margem bruta do modelo)
+   */
+  public double predictMargin(FeatureVector features) {
+    if (features.getSchema() != schema) {
+      throw new IllegalArgumentException("FeatureVector de schema diferente do modelo");
+    }
+    double sum = baseScore;
+    for (int root : treeRoots) {
+      sum += threshold[leafOf(root, features)];
+    }
+    return sum;
+  }
+
+  private int leafOf(int node, FeatureVector features) {
+    int n = node;
+    while (feature[n] != LEAF) {
+      double x = splitValue(features.get(feature[n]));
+      n = x < threshold[n] ? left[n] : (Double.isNaN(x) ? missing[n] : right[n]);
+    }
+    return n;
+  }
+
+  /**
+   * Valor da feature como o formato de origem o compara (float no XGBoost)
+   */
+  private double splitValue(double x) {
+    return floatSplits ? (float) x : x;
+  }
+
+  /**
+   * Prediz o score LTR (margem mapeada para 0-100 via função logística)
+   */
+  @Override
+  public double predict(FeatureVector features) {
+    return 100.0 / (1.0 + Math.exp(-predictMargin(features)));
+  }
+
+  /**
+   * Scoring em lote direto sobre a matriz (sem criar views por linha)
+   */
+  @Override
+  public void predictBatch(FeatureMatrix matrix, double[] out) {
+    if (matrix.getSchema() != schema) {
+      throw new IllegalArgumentException("FeatureMatrix de schema diferente do modelo");
+    }
+    double[] data = matrix.data();
+    int rows = matrix.rows();
+    for (int row = 0; row < rows; row++) {
+      double sum = baseScore;
+      for (int root : treeRoots) {
+        int n = root;
+        while (feature[n] != LEAF) {
+          double x = splitValue(data[feature[n] * rows + row]);
+          n = x < threshold[n] ? left[n] : (Double.isNaN(x) ? missing[n] : right[n]);
+        }
+        sum += threshold[n];
+      }
+      out[row] = 100.0 / (1.0 + Math.exp(-sum));
+    }
+  }
+
+  public int getTreeCount() {
+    return treeRoots.length;
+  }
+
+  public int getNodeCount() {
+    return feature.length;
+  }
+
+  // ================================================================
+  // Explicações
+  // ================================================================
+
+  private int[] splitCounts() {
+    int[] counts = new int[schema.size()];
+    for (int f : feature) {
+      if (f != LEAF) {
+        counts[f]++;
+      }
+    }
+    return counts;
+  }
+
+  @Override
+  public String explainModel() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("\n🌲 LTR MODEL (" + source + ") - Feature Importance (nº de splits)\n");
+    sb.append("═══════════════════════════════════════════════════\n");
+
+    int[] counts = splitCounts();
+    Integer[] order = new Integer[counts.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Integer.compare(counts[b], counts[a]));
+
+    sb.append(String.format("%-30s | %s\n", "Feature", "Splits"));
+    sb.append("─".repeat(51) + "\n");
+    for (int slot : order) {
+      if (counts[slot] > 0) {
+        sb.append(String.format("%-30s | %d\n", schema.name(slot), counts[slot]));
+      }
+    }
+
+    sb.append("═══════════════════════════════════════════════════\n");
+    sb.append("💡 Árvores: " + treeRoots.length + " | Nós: " + feature.length + "\n");
+    sb.append("📊 Score range: 0-100 (após função logística)\n");
+    return sb.toString();
+  }
+
+  @Override
+  public String explainPrediction(FeatureVector features, double finalScore) {
+    // Conta quantas decisões cada feature tomou nos caminhos percorridos
+    int[] decisions = new int[schema.size()];
+    for (int root : treeRoots) {
+      int n = root;
+      while (feature[n] != LEAF) {
+        decisions[feature[n]]++;
+        double x = splitValue(features.get(feature[n]));
+        n = x < threshold[n] ? left[n] : (Double.isNaN(x) ? missing[n] : right[n]);
+      }
+    }
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("\n🔍 EXPLICAÇÃO DA PREDIÇÃO\n");
+    sb.append("═══════════════════════════════════════════════════\n");
+    sb.append(String.format("Score Final: %.2f / 100 (margem %.4f)\n", finalScore, predictMargin(features)));
+    sb.append("─".repeat(51) + "\n");
+    sb.append(String.format("%-25s | %8s | %10s\n", "Feature", "Value", "Decisões"));
+    sb.append("─".repeat(51) + "\n");
+
+    List<Integer> used = new ArrayList<>();
+    for (int slot = 0; slot < decisions.length; slot++) {
+      if (decisions[slot] > 0) {
+        used.add(slot);
+      }
+    }
+    used.sort((a, b) -> Integer.compare(decisions[b], decisions[a]));
+    for (int i = 0; i < Math.min(10, used.size()); i++) {
+      int slot = used.get(i);
+      sb.append(String.format("%-25s | %8.3f | %10d\n", schema.name(slot), features.get(slot), decisions[slot]));
+    }
+
+    sb.append("═══════════════════════════════════════════════════\n");
+    return sb.toString();
+  }
+
+  /**
+   * Buffer crescente de nós usado apenas durante a compilação
+   */
+  private static final class NodeBuffer {
+    final List<Integer> roots = new ArrayList<>();
+    int[] feature = new int[64];
+    double[] threshold = new double[64];
+    int[] left = new int[64];
+    int[] right = new int[64];
+    int[] missing = new int[64];
+    int size;
+
+    int allocate() {
+      if (size == feature.length) {
+        int capacity = size * 2;
+        feature = Arrays.copyOf(feature, capacity);
+        threshold = Arrays.copyOf(threshold, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        missing = Arrays.copyOf(missing, capacity);
+      }
+      return size++;
+    }
+
+    void setLeaf(int index, double value) {
+      feature[index] = LEAF;
+      threshold[index] = value;
+      left[index] = right[index] = missing[index] = -1;
+    }
+
+    void setSplit(int index, int slot, double limit, int yes, int no, int missingChild) {
+      feature[index] = slot;
+      threshold[index] = limit;
+      left[index] = yes;
+      right[index] = no;
+      missing[index] = missingChild;
+    }
+  }
+}
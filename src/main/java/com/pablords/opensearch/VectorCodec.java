@@ -0,0 +1,245 @@
+package com.pablords.opensearch;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Codificação compacta de embeddings (cache, store e índice k-NN)
+ *
+ * - FLOAT32: sem perda, 4 bytes por dimensão
+ * - FLOAT16: meia precisão IEEE 754, 2 bytes por dimensão
+ * - INT8: quantização escalar simétrica, 1 byte por dimensão.
+ *   código = round(v / scale), limitado a [-127, 127]. A escala é única
+ *   para todas as dimensões, então o cosseno entre códigos aproxima o
+ *   cosseno entre os vetores originais e o índice pode usar byte vectors.
+ *   A escala vem da calibração sobre uma amostra do catálogo.
+ */
+public final class VectorCodec {
+
+  public enum Type {
+    FLOAT32(4), FLOAT16(2), INT8(1);
+
+    final int bytesPerDimension;
+
+    Type(int bytesPerDimension) {
+      this.bytesPerDimension = bytesPerDimension;
+    }
+  }
+
+  // Quantil de |v| usado na calibração (ignora outliers extremos)
+  public static final double DEFAULT_CALIBRATION_QUANTILE = 0.999;
+
+  private final Type type;
+  private final int dimension;
+  private final float scale; // Só INT8
+
+  private VectorCodec(Type type, int dimension, float scale) {
+    this.type = type;
+    this.dimension = dimension;
+    this.scale = scale;
+  }
+
+  public static VectorCodec float32(int dimension) {
+    return new VectorCodec(Type.FLOAT32, dimension, 1.0f);
+  }
+
+  public static VectorCodec float16(int dimension) {
+    return new VectorCodec(Type.FLOAT16, dimension, 1.0f);
+  }
+
+  /**
+   * @param scale Valor representado por uma unidade do código
+   */
+  public static VectorCodec int8(int dimension, float scale) {
+    if (!(scale > 0.0f)) {
+      throw new IllegalArgumentException("Escala INT8 deve ser positiva: " + scale);
+    }
+    return new VectorCodec(Type.INT8, dimension, scale);
+  }
+
+  /**
+   * Calibra a escala INT8 pelo quantil de |v| sobre todos os valores da amostra
+   */
+  public static VectorCodec calibrateInt8(List<float[]> sample, double quantile) {
+    if (sample.isEmpty()) {
+      throw new IllegalArgumentException("Amostra de calibração vazia");
+    }
+    int dimension = sample.get(0).length;
+    float[] magnitudes = new float[sample.size() * dimension];
+    int n = 0;
+    for (float[] vector : sample) {
+      for (float value : vector) {
+        magnitudes[n++] = Math.abs(value);
+      }
+    }
+    Arrays.sort(magnitudes);
+    float limit = magnitudes[Math.min(n - 1, (int) Math.floor(quantile * (n - 1)))];
+    return int8(dimension, Math.max(limit, Float.MIN_NORMAL) / 127.0f);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public int getDimension() {
+    return dimension;
+  }
+
+  public float getScale() {
+    return scale;
+  }
+
+  public int bytesPerVector() {
+    return dimension * type.bytesPerDimension;
+  }
+
+  /**
+   * O índice k-NN deve usar knn_vector com data_type byte?
+   */
+  public boolean usesByteIndex() {
+    return type == Type.INT8;
+  }
+
+  public byte[] encode(float[] vector) {
+    byte[] out = new byte[bytesPerVector()];
+    encode(vector, ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN), 0);
+    return out;
+  }
+
+  /**
+   * Grava o vetor codificado na posição absoluta offset
+   */
+  public void encode(float[] vector, ByteBuffer out, int offset) {
+    if (vector.length != dimension) {
+      throw new IllegalArgumentException("Vetor com dimensão " + vector.length + ", esperado " + dimension);
+    }
+    for (int i = 0; i < dimension; i++) {
+      switch (type) {
+        case FLOAT32:
+          out.putFloat(offset + i * 4, vector[i]);
+          break;
+        case FLOAT16:
+          out.putShort(offset + i * 2, toHalf(vector[i]));
+          break;
+        default:
+          out.put(offset + i, quantize(vector[i]));
+      }
+    }
+  }
+
+  public float[] decode(byte[] encoded) {
+    return decode(ByteBuffer.wrap(encoded).order(ByteOrder.LITTLE_ENDIAN), 0);
+  }
+
+  /**
+   * Lê o vetor codificado a partir da posição absoluta offset
+   */
+  public float[] decode(ByteBuffer in, int offset) {
+    float[] vector = new float[dimension];
+    for (int i = 0; i < dimension; i++) {
+      switch (type) {
+        case FLOAT32:
+          vector[i] = in.getFloat(offset + i * 4);
+          break;
+        case FLOAT16:
+          vector[i] = fromHalf(in.getShort(offset + i * 2));
+          break;
+        default:
+          vector[i] = in.get(offset + i) * scale;
+      }
+    }
+    return vector;
+  }
+
+  /**
+   * Vetor no formato enviado ao índice e às queries k-NN
+   * (INT8: os próprios códigos; demais: o vetor original)
+   */
+  public float[] toIndexVector(float[] vector) {
+    if (type != Type.INT8) {
+      return vector;
+    }
+    float[] codes = new float[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      codes[i] = quantize(vector[i]);
+    }
+    return codes;
+  }
+
+  private byte quantize(float value) {
+    return (byte) Math.max(-127, Math.min(127, Math.round(value / scale)));
+  }
+
+  @Override
+  public String toString() {
+    return type == Type.INT8 ? String.format("INT8(scale=%.3e)", scale) : type.name();
+  }
+
+  /**
+   * float → half (IEEE 754 binary16), arredondamento para o par mais próximo
+   */
+  static short toHalf(float value) {
+    int bits = Float.floatToRawIntBits(value);
+    int sign = (bits >>> 16) & 0x8000;
+    int exponent = (bits >>> 23) & 0xFF;
+    int mantissa = bits & 0x7FFFFF;
+
+    if (exponent == 0xFF) { // Inf ou NaN
+      return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+    }
+    int halfExponent = exponent - 127 + 15;
+    if (halfExponent >= 0x1F) { // Overflow → infinito
+      return (short) (sign | 0x7C00);
+    }
+    if (halfExponent <= 0) { // Subnormal ou zero
+      if (halfExponent < -10) {
+        return (short) sign;
+      }
+      mantissa |= 0x800000;
+      int shift = 14 - halfExponent;
+      int half = mantissa >>> shift;
+      int remainder = mantissa & ((1 << shift) - 1);
+      int halfway = 1 << (shift - 1);
+      if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+        half++;
+      }
+      return (short) (sign | half);
+    }
+
+    int half = (halfExponent << 10) | (mantissa >>> 13);
+    int remainder = mantissa & 0x1FFF;
+    if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+      half++; // Pode propagar para o expoente, o que é o resultado correto
+    }
+    return (short) (sign | half);
+  }
+
+  /**
+   * half (IEEE 754 binary16) → float
+   */
+  static float fromHalf(short value) {
+    int bits = value & 0xFFFF;
+    int sign = (bits & 0x8000) << 16;
+    int exponent = (bits >>> 10) & 0x1F;
+    int mantissa = bits & 0x3FF;
+
+    if (exponent == 0x1F) {
+      return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+    }
+    if (exponent == 0) {
+      if (mantissa == 0) {
+        return Float.intBitsToFloat(sign);
+      }
+      // Subnormal: normalizar
+      exponent = 1;
+      while ((mantissa & 0x400) == 0) {
+        mantissa <<= 1;
+        exponent--;
+      }
+      mantissa &= 0x3FF;
+    }
+    return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+  }
+}
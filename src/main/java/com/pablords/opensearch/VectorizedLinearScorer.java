@@ -0,0 +1,57 @@
+package com.pablords.opensearch;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scoring linear em lote com a Vector API (SIMD)
+ *
+ * Opera sobre a matriz column-major da {@link FeatureMatrix}: cada registro
+ * vetorial acumula o score de {@code SPECIES.length()} candidatos enquanto
+ * percorre as colunas de features, e a sigmoid é aplicada lane a lane antes
+ * de gravar o resultado.
+ *
+ * Só é carregada quando o módulo jdk.incubator.vector está presente
+ * (--add-modules jdk.incubator.vector); caso contrário o
+ * {@link LinearLTRModel} usa o caminho escalar.
+ */
+final class VectorizedLinearScorer {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  private VectorizedLinearScorer() {
+  }
+
+  /**
+   * Calcula 100 * sigmoid(Σ w_j * x_ij / 10) para cada linha da matriz
+   *
+   * @param data    Matriz column-major (slot * rows + linha)
+   * @param rows    Número de candidatos
+   * @param weights Pesos alinhados aos slots
+   * @param out     Destino (pelo menos rows posições)
+   */
+  static void score(double[] data, int rows, double[] weights, double[] out) {
+    int upper = SPECIES.loopBound(rows);
+    int i = 0;
+    for (; i < upper; i += SPECIES.length()) {
+      DoubleVector acc = DoubleVector.zero(SPECIES);
+      for (int slot = 0; slot < weights.length; slot++) {
+        double w = weights[slot];
+        if (w != 0.0) {
+          acc = DoubleVector.fromArray(SPECIES, data, slot * rows + i).fma(DoubleVector.broadcast(SPECIES, w), acc);
+        }
+      }
+      // sigmoid(x / 10) * 100, igual a LinearLTRModel#sigmoid
+      DoubleVector denominator = acc.mul(-0.1).lanewise(VectorOperators.EXP).add(1.0);
+      DoubleVector.broadcast(SPECIES, 100.0).div(denominator).intoArray(out, i);
+    }
+    for (; i < rows; i++) {
+      double sum = 0.0;
+      for (int slot = 0; slot < weights.length; slot++) {
+        sum += weights[slot] * data[slot * rows + i];
+      }
+      out[i] = 100.0 / (1.0 + Math.exp(-sum / 10.0));
+    }
+  }
+}
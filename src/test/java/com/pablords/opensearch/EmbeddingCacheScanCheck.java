@@ -0,0 +1,74 @@
+package com.pablords.opensearch;
+
+import java.util.Random;
+
+/**
+ * Verificação: resistência do EmbeddingCache a varreduras
+ *
+ * Um conjunto de head queries (20% da capacidade) é consultado intercalado
+ * com um fluxo de queries únicas, em proporções crescentes de varredura.
+ * Depois do aquecimento, mede a taxa de hit das head queries e quantas
+ * continuam residentes no final. Falha se, com até 4 queries únicas por
+ * head query, alguma head query sair do cache.
+ *
+ * Fica em src/test para não ir no artefato; rode após mvn test-compile:
+ * java -cp target/classes:target/test-classes com.pablords.opensearch.EmbeddingCacheScanCheck
+ */
+public class EmbeddingCacheScanCheck {
+
+  private static final int CAPACITY = 1000;
+  private static final int HEAD_QUERIES = 200;
+  private static final int OPERATIONS = 200_000;
+  private static final int WARM_UP = 20_000;
+  private static final int[] SCAN_RATIOS = { 1, 4, 16 };
+  private static final int MAX_GUARANTEED_RATIO = 4;
+
+  public static void main(String[] args) {
+    float[] vector = new float[8];
+
+    System.out.println("═".repeat(60));
+    System.out.println("🛡️  CACHE: head queries sob varredura de queries únicas");
+    System.out.println("═".repeat(60));
+    System.out.printf("%-12s | %10s | %s\n", "Únicas:head", "Residentes", "Hit rate (head)");
+    System.out.println("─".repeat(60));
+
+    boolean failed = false;
+    for (int ratio : SCAN_RATIOS) {
+      EmbeddingCache cache = new EmbeddingCache(CAPACITY, VectorCodec.float32(vector.length));
+      Random random = new Random(7);
+      long headHits = 0;
+      long headLookups = 0;
+      int unique = 0;
+      for (int op = 0; op < OPERATIONS; op++) {
+        boolean isHead = op % (ratio + 1) == 0;
+        String key = isHead ? "head-" + random.nextInt(HEAD_QUERIES) : "unique-" + unique++;
+        float[] cached = cache.get(key);
+        if (isHead && op >= WARM_UP) {
+          headLookups++;
+          if (cached != null) {
+            headHits++;
+          }
+        }
+        if (cached == null) {
+          cache.put(key, vector);
+        }
+      }
+
+      int resident = 0;
+      for (int i = 0; i < HEAD_QUERIES; i++) {
+        if (cache.peek("head-" + i) != null) {
+          resident++;
+        }
+      }
+      System.out.printf("%-12s | %6d/%d | %.3f\n", ratio + ":1", resident, HEAD_QUERIES,
+          (double) headHits / headLookups);
+      failed |= ratio <= MAX_GUARANTEED_RATIO && resident < HEAD_QUERIES;
+    }
+    System.out.println("═".repeat(60));
+    if (failed) {
+      throw new IllegalStateException("Head queries expulsas por varredura de até "
+          + MAX_GUARANTEED_RATIO + ":1");
+    }
+    System.out.println("✓ Head queries residentes com até " + MAX_GUARANTEED_RATIO + " queries únicas por head query");
+  }
+}
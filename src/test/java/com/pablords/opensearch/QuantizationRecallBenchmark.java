@@ -0,0 +1,124 @@
+package com.pablords.opensearch;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custo de qualidade da quantização: recall@k de FLOAT16 e INT8 vs FLOAT32
+ *
+ * Os produtos do catálogo são os documentos (mesmos campos do índice) e as
+ * descrições são as queries. Para cada query, o top-k exato por cosseno em
+ * FLOAT32 é comparado com o top-k calculado sobre os vetores codificados
+ * (no INT8 a query também é quantizada, como na busca k-NN com byte vectors).
+ *
+ * Busca exata (força bruta) dos dois lados: mede só o efeito da codificação,
+ * sem a aproximação do HNSW.
+ *
+ * Fica em src/test para não ir no artefato; rode após mvn test-compile:
+ * java -cp target/classes:target/test-classes com.pablords.opensearch.QuantizationRecallBenchmark [k] [catálogo]
+ */
+public class QuantizationRecallBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int k = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    String catalog = args.length > 1 ? args[1] : "data/products_synthetic.json";
+
+    List<Map<String, String>> products = new ObjectMapper().readValue(new File(catalog),
+        new TypeReference<List<Map<String, String>>>() {
+        });
+    List<String> queryTexts = new ArrayList<>();
+    for (Map<String, String> product : products) {
+      String description = product.get("description");
+      if (description != null && !description.trim().isEmpty()) {
+        queryTexts.add(description);
+      }
+    }
+
+    EmbeddingModel model = EmbeddingModel.fromSystemProperties(1); // -Dembedding.model=djl|hashing
+    try {
+      List<float[]> docs = model.embedProducts(products, EmbeddingModel.DEFAULT_EMBED_FIELDS);
+      List<float[]> queries = model.embedBatch(queryTexts);
+      int dimension = docs.get(0).length;
+
+      VectorCodec[] codecs = {
+          VectorCodec.float32(dimension),
+          VectorCodec.float16(dimension),
+          VectorCodec.calibrateInt8(docs, VectorCodec.DEFAULT_CALIBRATION_QUANTILE)
+      };
+
+      System.out.println("═".repeat(70));
+      System.out.println("📏 QUANTIZAÇÃO: recall@" + k + " vs FLOAT32 (busca exata)");
+      System.out.println("═".repeat(70));
+      System.out.println("Documentos: " + docs.size() + " | Queries: " + queries.size() + " | Dimensão: " + dimension);
+      System.out.println("─".repeat(70));
+      System.out.println(String.format("%-24s | %12s | %10s | %10s", "Codificação", "Bytes/vetor", "Redução", "Recall@" + k));
+      System.out.println("─".repeat(70));
+      int baseBytes = codecs[0].bytesPerVector();
+      for (VectorCodec codec : codecs) {
+        System.out.println(String.format("%-24s | %12d | %9.1fx | %10.4f",
+            codec, codec.bytesPerVector(), (double) baseBytes / codec.bytesPerVector(),
+            recallAtK(docs, queries, codec, k)));
+      }
+      System.out.println("═".repeat(70));
+    } finally {
+      model.close();
+    }
+  }
+
+  /**
+   * Fração média do top-k exato (FLOAT32) recuperada com a codificação dada
+   */
+  public static double recallAtK(List<float[]> docs, List<float[]> queries, VectorCodec codec, int k) {
+    List<float[]> encodedDocs = new ArrayList<>(docs.size());
+    for (float[] doc : docs) {
+      encodedDocs.add(asIndexed(codec, doc));
+    }
+
+    double[] exactScores = new double[docs.size()];
+    double[] approxScores = new double[docs.size()];
+    double totalRecall = 0.0;
+    for (float[] query : queries) {
+      float[] encodedQuery = codec.usesByteIndex() ? codec.toIndexVector(query) : query;
+      for (int d = 0; d < docs.size(); d++) {
+        exactScores[d] = cosine(query, docs.get(d));
+        approxScores[d] = cosine(encodedQuery, encodedDocs.get(d));
+      }
+
+      int[] exact = TopKSelector.select(exactScores, docs.size(), k);
+      int[] approx = TopKSelector.select(approxScores, docs.size(), k);
+      int found = 0;
+      for (int e : exact) {
+        for (int a : approx) {
+          if (a == e) {
+            found++;
+            break;
+          }
+        }
+      }
+      totalRecall += (double) found / exact.length;
+    }
+    return queries.isEmpty() ? 0.0 : totalRecall / queries.size();
+  }
+
+  /**
+   * Vetor como fica no índice: INT8 → códigos, demais → codificado e decodificado
+   */
+  private static float[] asIndexed(VectorCodec codec, float[] vector) {
+    return codec.usesByteIndex() ? codec.toIndexVector(vector) : codec.decode(codec.encode(vector));
+  }
+
+  private static double cosine(float[] a, float[] b) {
+    double dot = 0.0, normA = 0.0, normB = 0.0;
+    for (int i = 0; i < a.length; i++) {
+      dot += a[i] * b[i];
+      normA += a[i] * a[i];
+      normB += b[i] * b[i];
+    }
+    return normA == 0.0 || normB == 0.0 ? 0.0 : dot / Math.sqrt(normA * normB);
+  }
+}